@@ -0,0 +1,242 @@
+package sk.uniba.fmph.dcs.terra_futura.actions;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+import java.util.Arrays;
+
+/**
+ * Compact description of a card activation: the activated card, the resources taken and produced,
+ * the pollution placed and the optional assistance.
+ * <p>
+ * Every resource movement is one int holding the cell index of the card (see {@link GridPosition#index()})
+ * and the ordinal of the resource, see {@link #encode(Resource, GridPosition)}; pollution is stored as
+ * plain cell indices. The arrays only grow, so an instance that is {@link #clear() cleared} and refilled
+ * for every request does not allocate. Only positions inside the grid area can be encoded.
+ */
+public final class ActivationRequest {
+
+    /**
+     * Value of {@link #getAssistingPlayer()} when the activation uses no assistance.
+     */
+    public static final int NO_PLAYER = 0;
+
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int RESOURCE_BITS = Integer.SIZE - Integer.numberOfLeadingZeros(RESOURCES.length - 1);
+    private static final int RESOURCE_MASK = (1 << RESOURCE_BITS) - 1;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int NO_CELL = -1;
+
+    private int card = NO_CELL;
+    private int[] inputs = new int[INITIAL_CAPACITY];
+    private int inputCount;
+    private int[] outputs = new int[INITIAL_CAPACITY];
+    private int outputCount;
+    private int[] pollution = new int[INITIAL_CAPACITY];
+    private int pollutionCount;
+    private int assistingPlayer = NO_PLAYER;
+    private int assistingCard = NO_CELL;
+
+    /**
+     * Encodes a resource on a grid position into one int.
+     *
+     * @param resource the resource
+     * @param position position of the card holding the resource
+     * @return {@code (cell index << resource bits) | resource ordinal}
+     * @throws IllegalArgumentException if the position lies outside the grid area
+     */
+    public static int encode(final Resource resource, final GridPosition position) {
+        return (cell(position) << RESOURCE_BITS) | resource.ordinal();
+    }
+
+    /**
+     * Returns the resource of an encoded movement.
+     *
+     * @param encoded value returned by {@link #encode(Resource, GridPosition)}
+     * @return the resource
+     */
+    public static Resource resourceOf(final int encoded) {
+        return RESOURCES[encoded & RESOURCE_MASK];
+    }
+
+    /**
+     * Returns the position of an encoded movement.
+     *
+     * @param encoded value returned by {@link #encode(Resource, GridPosition)}
+     * @return the shared position instance of the cell
+     */
+    public static GridPosition positionOf(final int encoded) {
+        return GridPosition.ofIndex(encoded >>> RESOURCE_BITS);
+    }
+
+    private static int cell(final GridPosition position) {
+        int index = position.index();
+        if (index < 0) {
+            throw new IllegalArgumentException("Position " + position + " lies outside the grid");
+        }
+        return index;
+    }
+
+    private static int[] append(final int[] values, final int count, final int value) {
+        int[] target = count == values.length ? Arrays.copyOf(values, count * 2) : values;
+        target[count] = value;
+        return target;
+    }
+
+    /**
+     * Resets the request so it can be filled again, keeping its buffers.
+     *
+     * @return this request
+     */
+    public ActivationRequest clear() {
+        card = NO_CELL;
+        inputCount = 0;
+        outputCount = 0;
+        pollutionCount = 0;
+        assistingPlayer = NO_PLAYER;
+        assistingCard = NO_CELL;
+        return this;
+    }
+
+    /**
+     * Sets the position of the card being activated.
+     *
+     * @param position position of the card in the player's grid
+     * @return this request
+     */
+    public ActivationRequest card(final GridPosition position) {
+        this.card = cell(position);
+        return this;
+    }
+
+    /**
+     * Adds a resource taken from the card at the given position.
+     *
+     * @param resource the resource
+     * @param position position of the card
+     * @return this request
+     */
+    public ActivationRequest input(final Resource resource, final GridPosition position) {
+        inputs = append(inputs, inputCount, encode(resource, position));
+        inputCount++;
+        return this;
+    }
+
+    /**
+     * Adds a resource produced onto the card at the given position.
+     *
+     * @param resource the resource
+     * @param position position of the card
+     * @return this request
+     */
+    public ActivationRequest output(final Resource resource, final GridPosition position) {
+        outputs = append(outputs, outputCount, encode(resource, position));
+        outputCount++;
+        return this;
+    }
+
+    /**
+     * Adds one pollution placed on the card at the given position.
+     *
+     * @param position position of the card
+     * @return this request
+     */
+    public ActivationRequest pollution(final GridPosition position) {
+        pollution = append(pollution, pollutionCount, cell(position));
+        pollutionCount++;
+        return this;
+    }
+
+    /**
+     * Makes the activation use the card of another player as assistance.
+     *
+     * @param player   id of the assisting player
+     * @param position position of the assisting card in that player's grid
+     * @return this request
+     */
+    public ActivationRequest assistance(final int player, final GridPosition position) {
+        this.assistingCard = cell(position);
+        this.assistingPlayer = player;
+        return this;
+    }
+
+    public boolean hasCard() {
+        return card != NO_CELL;
+    }
+
+    /**
+     * Returns the position of the activated card.
+     *
+     * @return the position
+     * @throws IllegalStateException if the card was not set
+     */
+    public GridPosition getCard() {
+        if (!hasCard()) {
+            throw new IllegalStateException("Activated card is not set");
+        }
+        return GridPosition.ofIndex(card);
+    }
+
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * Returns an encoded input.
+     *
+     * @param i index of the input
+     * @return the input as encoded by {@link #encode(Resource, GridPosition)}
+     */
+    public int getInput(final int i) {
+        return inputs[i];
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * Returns an encoded output.
+     *
+     * @param i index of the output
+     * @return the output as encoded by {@link #encode(Resource, GridPosition)}
+     */
+    public int getOutput(final int i) {
+        return outputs[i];
+    }
+
+    public int getPollutionCount() {
+        return pollutionCount;
+    }
+
+    /**
+     * Returns the position of a placed pollution.
+     *
+     * @param i index of the pollution
+     * @return the position
+     */
+    public GridPosition getPollution(final int i) {
+        return GridPosition.ofIndex(pollution[i]);
+    }
+
+    public boolean hasAssistance() {
+        return assistingPlayer != NO_PLAYER;
+    }
+
+    public int getAssistingPlayer() {
+        return assistingPlayer;
+    }
+
+    /**
+     * Returns the position of the assisting card in the assisting player's grid.
+     *
+     * @return the position
+     * @throws IllegalStateException if the request uses no assistance
+     */
+    public GridPosition getAssistingCard() {
+        if (!hasAssistance()) {
+            throw new IllegalStateException("Request uses no assistance");
+        }
+        return GridPosition.ofIndex(assistingCard);
+    }
+}
@@ -53,4 +53,20 @@ public class ProcessAction {
 
         return transferService.executeTransaction(grid, inputs, outputs, pollution);
     }
+
+    /**
+     * Activates a card and executes the transaction of an encoded request.
+     *
+     * @param card    The card being activated.
+     * @param grid    The game grid.
+     * @param request Resources and pollution moved by the action.
+     * @return true if the activation was successful, false otherwise.
+     */
+    public boolean activateCard(final Card card, final Grid grid, final ActivationRequest request) {
+        if (card == null) {
+            return false;
+        }
+
+        return transferService.executeTransaction(grid, request);
+    }
 }
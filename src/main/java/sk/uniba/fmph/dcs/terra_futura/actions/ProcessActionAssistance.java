@@ -6,7 +6,6 @@ import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -14,10 +13,11 @@ import java.util.Set;
 
 /**
  * Handles assistance action where a player uses a card effect from another player.
+ * A successful activation marks the activated card and the cards in its row and column as
+ * activated for the turn, so none of them can be activated again in that turn; a rejected one
+ * marks nothing.
  */
 public class ProcessActionAssistance {
-    private static final int GRID_SIZE = 3;
-
     private final ResourceTransferService transferService;
 
     public ProcessActionAssistance(final ResourceTransferService transferService) {
@@ -49,102 +49,108 @@ public class ProcessActionAssistance {
             final List<Pair<Resource, GridPosition>> outputs,
             final List<GridPosition> pollution
     ) {
-        if (card == null || grid == null) {
-            return false;
-        }
-
-        final GridPosition cardPosition = findCardPosition(grid, card);
-        if (cardPosition == null) {
+        final Optional<GridPosition> cardPosition = findActivatable(card, grid, assistingPlayer, assistingCard);
+        if (cardPosition.isEmpty()) {
             return false;
         }
 
-        if (!grid.canBeActivated(cardPosition)) {
-            return false;
-        }
+        // Execute resource transfer using the service
+        final boolean success = transferService.executeTransaction(grid, inputs, outputs, pollution);
 
-        // Validate assistance parameters
-        if (card.hasAssistance()) {
-            if (assistingPlayer <= 0 || assistingCard == null) {
-                return false;
-            }
+        if (success) {
+            activate(grid, cardPosition.get());
         }
 
-        // Activate neighbors in the same row/column
-        final List<GridPosition> neighborPositions = getNeighborPositions(grid, cardPosition);
-        final Set<Card> alreadyActivatedCards = new HashSet<>();
+        return success;
+    }
 
-        for (final GridPosition pos : neighborPositions) {
-            if (grid.canBeActivated(pos)) {
-                final Optional<Card> neighborCardOpt = grid.getCard(pos);
-                if (neighborCardOpt.isPresent()) {
-                    final Card neighborCard = neighborCardOpt.get();
-                    if (alreadyActivatedCards.add(neighborCard)) {
-                        grid.setActivated(pos);
-                    }
-                }
-            }
+    /**
+     * Activates a card using assistance from another player with an encoded request.
+     *
+     * @param card            The card being activated
+     * @param grid            The game grid
+     * @param assistingPlayer ID of the assisting player
+     * @param assistingCard   Card providing assistance
+     * @param request         Resources and pollution moved by the action
+     * @return true if activation succeeded
+     */
+    public boolean activateCard(
+            final Card card,
+            final Grid grid,
+            final int assistingPlayer,
+            final Card assistingCard,
+            final ActivationRequest request
+    ) {
+        final Optional<GridPosition> cardPosition = findActivatable(card, grid, assistingPlayer, assistingCard);
+        if (cardPosition.isEmpty()) {
+            return false;
         }
 
-        // Execute resource transfer using the service
-        final boolean success = transferService.executeTransaction(grid, inputs, outputs, pollution);
+        final boolean success = transferService.executeTransaction(grid, request);
 
         if (success) {
-            grid.setActivated(cardPosition);
+            activate(grid, cardPosition.get());
         }
 
         return success;
     }
 
     /**
-     * Finds the position of a card in the grid.
+     * Validates the activation.
      *
-     * @param grid The game grid
-     * @param card The card to find
-     * @return GridPosition or null if not found
+     * @param card            The card being activated
+     * @param grid            The game grid
+     * @param assistingPlayer ID of the assisting player
+     * @param assistingCard   Card providing assistance
+     * @return position of the card, or empty if it cannot be activated
      */
-    private GridPosition findCardPosition(final Grid grid, final Card card) {
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                final GridPosition pos = new GridPosition(x, y);
-                final Optional<Card> foundCard = grid.getCard(pos);
-                if (foundCard.isPresent() && foundCard.get().equals(card)) {
-                    return pos;
-                }
+    private Optional<GridPosition> findActivatable(final Card card, final Grid grid,
+            final int assistingPlayer, final Card assistingCard) {
+        if (card == null || grid == null) {
+            return Optional.empty();
+        }
+
+        final Optional<GridPosition> foundPosition = grid.findCard(card);
+        if (foundPosition.isEmpty()) {
+            return Optional.empty();
+        }
+        final GridPosition cardPosition = foundPosition.get();
+
+        if (!grid.canBeActivated(cardPosition)) {
+            return Optional.empty();
+        }
+
+        // Validate assistance parameters
+        if (card.hasAssistance()) {
+            if (assistingPlayer <= 0 || assistingCard == null) {
+                return Optional.empty();
             }
         }
-        return null;
+
+        return foundPosition;
     }
 
     /**
-     * Gets all neighbor positions in the same row or column.
+     * Marks the activated card and the cards in the same row and column as activated.
      *
-     * @param grid    The game grid
-     * @param cardPos The card position
-     * @return List of neighbor positions
+     * @param grid         The game grid
+     * @param cardPosition position of the activated card
      */
-    private List<GridPosition> getNeighborPositions(final Grid grid, final GridPosition cardPos) {
-        final List<GridPosition> neighbors = new ArrayList<>();
-        final int targetX = cardPos.x();
-        final int targetY = cardPos.y();
-
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                final GridPosition pos = new GridPosition(x, y);
-
-                // Skip the card itself
-                if (pos.equals(cardPos)) {
-                    continue;
-                }
+    private void activate(final Grid grid, final GridPosition cardPosition) {
+        final Set<Card> alreadyActivatedCards = new HashSet<>();
 
-                // Check if in same row or column
-                if (pos.x() == targetX || pos.y() == targetY) {
-                    if (grid.getCard(pos).isPresent()) {
-                        neighbors.add(pos);
+        for (int neighbors = grid.getLineNeighbours(cardPosition); neighbors != 0; neighbors &= neighbors - 1) {
+            final GridPosition pos = GridPosition.ofIndex(Integer.numberOfTrailingZeros(neighbors));
+            if (grid.canBeActivated(pos)) {
+                final Optional<Card> neighborCardOpt = grid.getCard(pos);
+                if (neighborCardOpt.isPresent()) {
+                    final Card neighborCard = neighborCardOpt.get();
+                    if (alreadyActivatedCards.add(neighborCard)) {
+                        grid.setActivated(pos);
                     }
                 }
             }
         }
-
-        return neighbors;
+        grid.setActivated(cardPosition);
     }
 }
@@ -5,21 +5,28 @@ import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
 import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
 
 /**
  * Service responsible for transferring resources between cards and handling
  * pollution.
  * This service encapsulates the core transaction logic used by various actions.
+ * <p>
+ * Resources are grouped per card in a {@link TransactionBuffer} owned by the service, so
+ * a transaction looks every card up once and allocates nothing in steady state. A service,
+ * like the game it belongs to, must not be used by several threads at once; keeping the
+ * buffer per service rather than per thread lets a game keep it when its single writer
+ * runs on a different thread for every batch of commands, such as a fresh virtual thread.
+ * Transactions are atomic: if a card throws while resources are being moved,
+ * the cards already changed are reverted and the transaction fails.
  */
 public class ResourceTransferService {
 
+    private final TransactionBuffer buffer = new TransactionBuffer();
+
     /**
      * Executes a resource transaction.
      *
@@ -28,7 +35,8 @@ public class ResourceTransferService {
      * @param outputs   List of resources to put to specific positions.
      * @param pollution List of positions to place pollution on.
      * @return true if the transaction was successful, false otherwise (e.g.,
-     *         insufficient resources or capacity).
+     *         insufficient resources or capacity, or a card failing midway).
+     * @throws IllegalStateException if a failed transaction could not be rolled back
      */
     public boolean executeTransaction(final Grid grid, final List<Pair<Resource, GridPosition>> inputs,
             final List<Pair<Resource, GridPosition>> outputs, final List<GridPosition> pollution) {
@@ -36,105 +44,130 @@ public class ResourceTransferService {
             return false;
         }
 
-        // 1. Validation Phase
-
-        // Validate Inputs
-        Map<GridPosition, List<Resource>> inputsByCard = new HashMap<>();
-        for (Pair<Resource, GridPosition> input : inputs) {
-            inputsByCard.computeIfAbsent(input.getValue(), k -> new ArrayList<>()).add(input.getKey());
-        }
-
-        for (Map.Entry<GridPosition, List<Resource>> entry : inputsByCard.entrySet()) {
-            GridPosition pos = entry.getKey();
-            List<Resource> requiredResources = entry.getValue();
-
-            if (grid.getCard(pos).isEmpty()) {
-                return false;
+        TransactionBuffer buffer = acquireBuffer();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Pair<Resource, GridPosition> input = inputs.get(i);
+                buffer.take(input.getValue(), input.getKey());
             }
-            Card sourceCard = grid.getCard(pos).get();
-
-            if (!sourceCard.canGetResources(requiredResources)) {
-                return false;
+            for (int i = 0; i < outputs.size(); i++) {
+                Pair<Resource, GridPosition> output = outputs.get(i);
+                buffer.give(output.getValue(), output.getKey());
+            }
+            // Pollution is treated as Resource.POLLUTION and validated together with the outputs
+            for (int i = 0; i < pollution.size(); i++) {
+                buffer.give(pollution.get(i), Resource.POLLUTION);
             }
+            return validate(grid, buffer) && apply(buffer);
+        } finally {
+            buffer.release();
         }
+    }
 
-        // Validate Outputs
-        // Group outputs by card to use canPutResources(List) efficiently
-        Map<GridPosition, List<Resource>> outputsByCard = new HashMap<>();
-        for (Pair<Resource, GridPosition> output : outputs) {
-            outputsByCard.computeIfAbsent(output.getValue(), k -> new ArrayList<>()).add(output.getKey());
+    /**
+     * Executes the resource transaction of an encoded activation request.
+     * Behaves like {@link #executeTransaction(Grid, List, List, List)} without building any lists.
+     *
+     * @param grid    The game grid.
+     * @param request The activation whose inputs, outputs and pollution are transferred.
+     * @return true if the transaction was successful, false otherwise.
+     * @throws IllegalStateException if a failed transaction could not be rolled back
+     */
+    public boolean executeTransaction(final Grid grid, final ActivationRequest request) {
+        if (grid == null || request == null) {
+            return false;
         }
 
-        // Convert pollution list to set for O(1) lookup performance
-        Set<GridPosition> pollutionSet = new HashSet<>(pollution);
-
-        for (Map.Entry<GridPosition, List<Resource>> entry : outputsByCard.entrySet()) {
-            GridPosition pos = entry.getKey();
-            List<Resource> resourcesToAdd = entry.getValue();
+        TransactionBuffer buffer = acquireBuffer();
+        try {
+            load(buffer, request);
+            return validate(grid, buffer) && apply(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
 
-            // Skip validation if this card will also receive pollution
-            // It will be validated with combined resources in the pollution loop
-            if (pollutionSet.contains(pos)) {
-                continue;
-            }
+    /**
+     * Checks whether {@link #executeTransaction(Grid, ActivationRequest)} would succeed
+     * for cards that do not fail midway, without changing any card.
+     *
+     * @param grid    The game grid.
+     * @param request The activation whose inputs, outputs and pollution would be transferred.
+     * @return true if every card can give and accept its share of the transaction.
+     */
+    public boolean canExecuteTransaction(final Grid grid, final ActivationRequest request) {
+        if (grid == null || request == null) {
+            return false;
+        }
 
-            if (grid.getCard(pos).isEmpty()) {
-                return false;
-            }
-            Card targetCard = grid.getCard(pos).get();
-            if (!targetCard.canPutResources(resourcesToAdd)) {
-                return false;
-            }
+        TransactionBuffer buffer = acquireBuffer();
+        try {
+            load(buffer, request);
+            return validate(grid, buffer);
+        } finally {
+            buffer.release();
         }
+    }
 
-        // Validate Pollution
-        // Pollution is treated as Resource.POLLUTION and validated via canPutResources
-        Map<GridPosition, List<Resource>> pollutionByCard = new HashMap<>();
-        for (GridPosition pos : pollution) {
-            pollutionByCard.computeIfAbsent(pos, k -> new ArrayList<>()).add(Resource.POLLUTION);
+    private static void load(final TransactionBuffer buffer, final ActivationRequest request) {
+        for (int i = 0; i < request.getInputCount(); i++) {
+            int input = request.getInput(i);
+            buffer.take(ActivationRequest.positionOf(input), ActivationRequest.resourceOf(input));
         }
+        for (int i = 0; i < request.getOutputCount(); i++) {
+            int output = request.getOutput(i);
+            buffer.give(ActivationRequest.positionOf(output), ActivationRequest.resourceOf(output));
+        }
+        for (int i = 0; i < request.getPollutionCount(); i++) {
+            buffer.give(request.getPollution(i), Resource.POLLUTION);
+        }
+    }
 
-        for (Map.Entry<GridPosition, List<Resource>> entry : pollutionByCard.entrySet()) {
-            GridPosition pos = entry.getKey();
-            List<Resource> pollutionResources = entry.getValue();
+    private TransactionBuffer acquireBuffer() {
+        if (buffer.acquire()) {
+            return buffer;
+        }
+        // Re-entered from a card while the service's buffer is in use
+        TransactionBuffer nested = new TransactionBuffer();
+        nested.acquire();
+        return nested;
+    }
 
-            if (grid.getCard(pos).isEmpty()) {
+    private static boolean validate(final Grid grid, final TransactionBuffer buffer) {
+        if (buffer.overflowed()) {
+            return false;
+        }
+        for (int slot = 0; slot < buffer.size(); slot++) {
+            Optional<Card> card = grid.getCard(buffer.position(slot));
+            if (card.isEmpty()) {
                 return false;
             }
-            Card targetCard = grid.getCard(pos).get();
-
-            // Check combined capacity for outputs and pollution on the same card
-            List<Resource> combinedResources = new ArrayList<>();
-            if (outputsByCard.containsKey(pos)) {
-                combinedResources.addAll(outputsByCard.get(pos));
+            Card target = card.get();
+            ResourceBag taken = buffer.taken(slot);
+            ResourceBag given = buffer.given(slot);
+            if (!taken.isEmpty() && !target.canGetResources(taken)) {
+                return false;
             }
-            combinedResources.addAll(pollutionResources);
-
-            if (!targetCard.canPutResources(combinedResources)) {
+            if (!given.isEmpty() && !target.canPutResources(given)) {
                 return false;
             }
+            buffer.setCard(slot, target);
         }
+        return true;
+    }
 
-        // 2. Execution Phase
-
-        // Execute Inputs
-        for (Map.Entry<GridPosition, List<Resource>> entry : inputsByCard.entrySet()) {
-            Card sourceCard = grid.getCard(entry.getKey()).get();
-            sourceCard.getResources(entry.getValue());
-        }
-
-        // Execute Outputs
-        for (Map.Entry<GridPosition, List<Resource>> entry : outputsByCard.entrySet()) {
-            Card targetCard = grid.getCard(entry.getKey()).get();
-            targetCard.putResources(entry.getValue());
-        }
-
-        // Execute Pollution
-        for (Map.Entry<GridPosition, List<Resource>> entry : pollutionByCard.entrySet()) {
-            Card targetCard = grid.getCard(entry.getKey()).get();
-            targetCard.putResources(entry.getValue());
+    private static boolean apply(final TransactionBuffer buffer) {
+        try {
+            buffer.apply();
+            return true;
+        } catch (RuntimeException e) {
+            try {
+                buffer.rollback();
+            } catch (RuntimeException rollbackFailure) {
+                rollbackFailure.addSuppressed(e);
+                throw new IllegalStateException("Failed transaction could not be rolled back", rollbackFailure);
+            }
+            return false;
         }
-
-        return true;
     }
 }
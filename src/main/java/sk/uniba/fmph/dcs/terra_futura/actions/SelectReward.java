@@ -2,6 +2,12 @@ package sk.uniba.fmph.dcs.terra_futura.actions;
 
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.hash.Zobrist;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+import sk.uniba.fmph.dcs.terra_futura.undo.Undoable;
 
 import java.util.Optional;
 import java.util.List;
@@ -12,10 +18,23 @@ import java.util.ArrayList;
  * Manages the reward selection process when assistance is involved.
  * Tracks which player can select from available reward resources.
  */
-public class SelectReward {
+public class SelectReward implements Snapshotable, Undoable {
+
+    private static final Resource[] RESOURCES = Resource.values();
+
+    // Keys of changes recorded in the undo log
+    private static final int PLAYER = 0;
+    private static final int SELECTION = 1;
+    // A selection is packed as its size in the low 4 bits followed by 4 bits per resource ordinal
+    private static final int PACK_BITS = 4;
+    private static final int PACK_MASK = 0xF;
+    private static final int MAX_PACKED = Long.SIZE / PACK_BITS - 1;
+    private static final long NOT_PACKED = -1;
 
     private Optional<Integer> player;
     private List<Resource> selection;
+    // Log recording changes, or null when changes are not undoable
+    private UndoLog undoLog;
 
     /**
      * Constructs a new SelectReward with no player and empty selection.
@@ -25,6 +44,18 @@ public class SelectReward {
         this.selection = new ArrayList<>();
     }
 
+    /**
+     * Creates a reward selection in the same state, not attached to an undo log.
+     *
+     * @return the copy
+     */
+    public SelectReward copy() {
+        SelectReward copy = new SelectReward();
+        copy.player = player;
+        copy.selection.addAll(selection);
+        return copy;
+    }
+
     /**
      * Sets the reward context for a player.
      *
@@ -38,6 +69,7 @@ public class SelectReward {
             clear();
             return false;
         }
+        remember();
         this.player = Optional.of(player);
         this.selection = new ArrayList<>(reward);
         return true;
@@ -60,6 +92,7 @@ public class SelectReward {
      */
     public void selectReward(final Resource resource) {
         if (canSelectReward(resource)) {
+            remember();
             selection.remove(resource);
         }
     }
@@ -69,10 +102,81 @@ public class SelectReward {
      *
      */
     public void clear() {
+        remember();
         this.player = Optional.empty();
         this.selection.clear();
     }
 
+    /**
+     * Combines the {@link Zobrist#reward(int, int)} keys of the resources offered to the player.
+     *
+     * @return the keys, or 0 if no reward is offered
+     */
+    public long zobristKeys() {
+        if (player.isEmpty()) {
+            return 0;
+        }
+        int kinds = 0;
+        for (Resource resource : selection) {
+            kinds |= 1 << resource.ordinal();
+        }
+        long keys = 0;
+        for (int mask = kinds; mask != 0; mask &= mask - 1) {
+            keys ^= Zobrist.reward(player.get(), Integer.numberOfTrailingZeros(mask));
+        }
+        return keys;
+    }
+
+    /**
+     * Records changes of the reward state in the log from now on.
+     *
+     * @param log the log, or null to stop recording
+     */
+    public void setUndoLog(final UndoLog log) {
+        this.undoLog = log;
+    }
+
+    private void remember() {
+        if (undoLog == null) {
+            return;
+        }
+        undoLog.record(this, PLAYER, 0, player);
+        if (selection.size() > MAX_PACKED) {
+            undoLog.record(this, SELECTION, NOT_PACKED, new ArrayList<>(selection));
+            return;
+        }
+        long packed = selection.size();
+        for (int i = 0; i < selection.size(); i++) {
+            packed |= (long) selection.get(i).ordinal() << (PACK_BITS * (i + 1));
+        }
+        undoLog.record(this, SELECTION, packed);
+    }
+
+    /**
+     * Restores the player or the offered resources recorded before a change.
+     *
+     * @param key   whether the player or the selection changed
+     * @param value packed selection
+     * @param ref   previous player, or the previous selection if it was too long to pack
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void undo(final int key, final long value, final Object ref) {
+        if (key == PLAYER) {
+            player = (Optional<Integer>) ref;
+            return;
+        }
+        selection.clear();
+        if (value == NOT_PACKED) {
+            selection.addAll((List<Resource>) ref);
+            return;
+        }
+        int size = (int) (value & PACK_MASK);
+        for (int i = 1; i <= size; i++) {
+            selection.add(RESOURCES[(int) (value >>> (PACK_BITS * i)) & PACK_MASK]);
+        }
+    }
+
     /**
      * Returns the current state as a string for debugging.
      *
@@ -81,4 +185,41 @@ public class SelectReward {
     public String state() {
         return player.map(integer -> "Player: " + integer + ", Selection: " + selection.toString()).orElse("Player: None, Selection: []");
     }
+
+    /**
+     * Writes whether a player is selecting, the player and the offered resources as ordinals.
+     *
+     * @param out the snapshot
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        if (player.isEmpty()) {
+            out.putByte(0);
+            return;
+        }
+        out.putByte(1);
+        out.putSignedVarint(player.get());
+        out.putVarint(selection.size());
+        for (Resource resource : selection) {
+            out.putVarint(resource.ordinal());
+        }
+    }
+
+    /**
+     * Restores a reward selection written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in the snapshot
+     * @return the restored selection
+     * @throws IllegalArgumentException if the snapshot is malformed
+     */
+    public static SelectReward readSnapshot(final SnapshotReader in) {
+        SelectReward reward = new SelectReward();
+        if (in.getByte() != 0) {
+            reward.player = Optional.of(in.getSignedVarint());
+            for (int i = in.getVarint(Integer.MAX_VALUE); i > 0; i--) {
+                reward.selection.add(RESOURCES[in.getVarint(RESOURCES.length)]);
+            }
+        }
+        return reward;
+    }
 }
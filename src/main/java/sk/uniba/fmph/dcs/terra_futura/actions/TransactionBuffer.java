@@ -0,0 +1,180 @@
+package sk.uniba.fmph.dcs.terra_futura.actions;
+
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space of a resource transaction.
+ * Every card touched by the transaction gets one slot holding its position, the card itself
+ * and the packed counts (see {@link ResourceBag#packed()}) of resources taken from and put on it.
+ * Transactions touch only a handful of cards, so slots are found by a linear scan.
+ * Arrays only grow and bags are interned in a small cache, so a buffer reused for
+ * similar transactions does not allocate.
+ * <p>
+ * Changes are applied slot by slot, first all takes and then all puts, so the undo log
+ * is just the number of slots whose takes and puts have been applied.
+ */
+final class TransactionBuffer {
+
+    private static final int INITIAL_SLOTS = 8;
+    private static final int BAG_CACHE_SIZE = 64;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int BAG_CACHE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(BAG_CACHE_SIZE);
+
+    private GridPosition[] positions = new GridPosition[INITIAL_SLOTS];
+    private Card[] cards = new Card[INITIAL_SLOTS];
+    private long[] taken = new long[INITIAL_SLOTS];
+    private long[] given = new long[INITIAL_SLOTS];
+    private int size;
+    private int appliedTakes;
+    private int appliedGives;
+    private boolean inUse;
+    private boolean overflow;
+
+    private final ResourceBag[] bagCache = new ResourceBag[BAG_CACHE_SIZE];
+
+    /**
+     * Marks the buffer as used by a running transaction.
+     *
+     * @return false if the buffer is already used, e.g. by a card calling back into the service
+     */
+    boolean acquire() {
+        if (inUse) {
+            return false;
+        }
+        inUse = true;
+        return true;
+    }
+
+    /**
+     * Forgets all slots and makes the buffer available again.
+     */
+    void release() {
+        Arrays.fill(positions, 0, size, null);
+        Arrays.fill(cards, 0, size, null);
+        size = 0;
+        appliedTakes = 0;
+        appliedGives = 0;
+        overflow = false;
+        inUse = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether some card would receive or lose more resources of a kind than a bag can hold.
+     *
+     * @return true if the transaction cannot be represented
+     */
+    boolean overflowed() {
+        return overflow;
+    }
+
+    void take(final GridPosition position, final Resource resource) {
+        int slot = slot(position);
+        taken[slot] = addOne(taken[slot], resource);
+    }
+
+    void give(final GridPosition position, final Resource resource) {
+        int slot = slot(position);
+        given[slot] = addOne(given[slot], resource);
+    }
+
+    GridPosition position(final int slot) {
+        return positions[slot];
+    }
+
+    void setCard(final int slot, final Card card) {
+        cards[slot] = card;
+    }
+
+    ResourceBag taken(final int slot) {
+        return bag(taken[slot]);
+    }
+
+    ResourceBag given(final int slot) {
+        return bag(given[slot]);
+    }
+
+    /**
+     * Takes the resources of every slot from its card, then puts the given resources on it.
+     * The cards must have been set by validation. Progress is recorded for {@link #rollback()}.
+     */
+    void apply() {
+        for (; appliedTakes < size; appliedTakes++) {
+            ResourceBag bag = taken(appliedTakes);
+            if (!bag.isEmpty()) {
+                cards[appliedTakes].getResources(bag);
+            }
+        }
+        for (; appliedGives < size; appliedGives++) {
+            ResourceBag bag = given(appliedGives);
+            if (!bag.isEmpty()) {
+                cards[appliedGives].putResources(bag);
+            }
+        }
+    }
+
+    /**
+     * Reverts the changes applied so far, most recent first.
+     * The change that failed is assumed to have left its card untouched.
+     */
+    void rollback() {
+        for (int slot = Math.max(appliedTakes, appliedGives) - 1; slot >= 0; slot--) {
+            ResourceBag takenBag = slot < appliedTakes ? taken(slot) : ResourceBag.EMPTY;
+            ResourceBag givenBag = slot < appliedGives ? given(slot) : ResourceBag.EMPTY;
+            if (!takenBag.isEmpty() || !givenBag.isEmpty()) {
+                cards[slot].revertResources(takenBag, givenBag);
+            }
+        }
+        appliedTakes = 0;
+        appliedGives = 0;
+    }
+
+    private long addOne(final long packed, final Resource resource) {
+        long sum = packed + ResourceBag.unit(resource).packed();
+        if (!ResourceBag.isValidPacked(sum)) {
+            overflow = true;
+            return packed;
+        }
+        return sum;
+    }
+
+    private int slot(final GridPosition position) {
+        for (int i = 0; i < size; i++) {
+            if (positions[i].equals(position)) {
+                return i;
+            }
+        }
+        if (size == positions.length) {
+            int capacity = size * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            cards = Arrays.copyOf(cards, capacity);
+            taken = Arrays.copyOf(taken, capacity);
+            given = Arrays.copyOf(given, capacity);
+        }
+        positions[size] = position;
+        taken[size] = 0;
+        given[size] = 0;
+        return size++;
+    }
+
+    private ResourceBag bag(final long packed) {
+        if (packed == 0) {
+            return ResourceBag.EMPTY;
+        }
+        int index = (int) ((packed * HASH_MULTIPLIER) >>> BAG_CACHE_SHIFT);
+        ResourceBag cached = bagCache[index];
+        if (cached == null || cached.packed() != packed) {
+            cached = ResourceBag.fromPacked(packed);
+            bagCache[index] = cached;
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,298 @@
+package sk.uniba.fmph.dcs.terra_futura.bot;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+import sk.uniba.fmph.dcs.terra_futura.simulation.Policies;
+import sk.uniba.fmph.dcs.terra_futura.simulation.Policy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Computer player choosing moves by Monte Carlo tree search over the legal moves of a {@link Game}.
+ * <p>
+ * Several threads grow one shared tree, each in its own {@link Game#fork()} of the position. An
+ * iteration descends by UCT making the moves with {@link Game#makeMove(Move)}, plays the rest of
+ * the game with the rollout policy and takes all moves back, so it allocates no game state. Visit counts and
+ * rewards are updated atomically. A thread counts its visit on the way down and adds the reward
+ * on the way back, so until then the visit reads as a loss; this virtual loss steers concurrent
+ * threads to other branches. A node is expanded on its second visit, its children published
+ * with a compare-and-set. The search stops at a deadline, or after a number of iterations, and
+ * the most visited move is chosen. Because moves come from the game itself, a bot can only make
+ * the moves a human player could.
+ * <p>
+ * The reward of a finished rollout for a player is a logistic function of the lead of its score
+ * (see {@link Game#getScore(int)}) over the best other player, or over zero in a solo game.
+ */
+public final class MctsBot implements AutoCloseable {
+
+    /**
+     * Default time to think about one move.
+     */
+    public static final Duration DEFAULT_THINK_TIME = Duration.ofMillis(50);
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    // Score lead giving a reward of about 0.73
+    private static final double SCORE_SCALE = 10;
+    // Rewards are summed as fixed-point numbers with this many fraction bits
+    private static final int REWARD_BITS = 20;
+    private static final double REWARD_ONE = 1 << REWARD_BITS;
+    private static final int MAX_ROLLOUT_PLIES = 1000;
+
+    /**
+     * Node of the shared tree, reached by a move of the {@code mover}.
+     */
+    private static final class Node {
+        private static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicLongFieldUpdater<Node> REWARD =
+                AtomicLongFieldUpdater.newUpdater(Node.class, "reward");
+        private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        private final Move move;
+        private final int mover;
+        private volatile int visits;
+        // Sum of the rewards of the mover, in fixed point
+        private volatile long reward;
+        // Null until expanded
+        private volatile Node[] children;
+
+        Node(final Move move, final int mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int threads;
+    private final Duration thinkTime;
+    private final long maxIterations;
+    private final Policy rollout;
+    private final SplittableRandom random;
+    private final AtomicLong lastIterations = new AtomicLong();
+
+    /**
+     * Creates a bot thinking {@link #DEFAULT_THINK_TIME} per move on all cores with random rollouts.
+     *
+     * @param seed seed of the random numbers of the bot
+     */
+    public MctsBot(final long seed) {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_THINK_TIME, Long.MAX_VALUE, Policies.random(), seed);
+    }
+
+    /**
+     * Creates a bot.
+     *
+     * @param threads       number of search threads
+     * @param thinkTime     time to think about one move
+     * @param maxIterations iterations after which the search stops before the deadline
+     * @param rollout       policy playing the games out
+     * @param seed          seed of the random numbers of the bot
+     * @throws IllegalArgumentException if the number of threads or of iterations is not positive
+     */
+    public MctsBot(final int threads, final Duration thinkTime, final long maxIterations, final Policy rollout,
+            final long seed) {
+        if (threads <= 0 || maxIterations <= 0) {
+            throw new IllegalArgumentException("Threads and iterations must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mcts-bot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads = threads;
+        this.thinkTime = thinkTime;
+        this.maxIterations = maxIterations;
+        this.rollout = rollout;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Chooses a move for the player on turn. The position of the game is not changed, and the game
+     * must not be changed until the method returns. The search forks the game, so afterwards the game
+     * places copies of the cards it takes, as described in {@link Game#fork()}.
+     *
+     * @param game the game, whose grids, pile and cards must support {@link Game#fork()}
+     * @return the chosen move, or null if the player has no legal move
+     * @throws IllegalStateException if the game cannot be forked or the search was interrupted
+     */
+    public Move chooseMove(final Game game) {
+        List<Move> moves = new ArrayList<>();
+        game.legalMoves().forEachRemaining(moves::add);
+        if (moves.size() <= 1) {
+            lastIterations.set(0);
+            return moves.isEmpty() ? null : moves.get(0);
+        }
+        Node root = new Node(null, game.getCurrentPlayerOnTurn());
+        root.children = children(moves, game.getCurrentPlayerOnTurn());
+        long deadline = System.nanoTime() + thinkTime.toNanos();
+        AtomicLong iterations = new AtomicLong();
+        List<Future<?>> workers = new ArrayList<>();
+        SplittableRandom decision;
+        synchronized (random) {
+            decision = random.split();
+        }
+        for (int i = 0; i < threads; i++) {
+            Game fork = game.fork();
+            SplittableRandom workerRandom = decision.split();
+            workers.add(executor.submit(() -> search(root, fork, workerRandom, deadline, iterations)));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        lastIterations.set(iterations.get());
+        Node best = root.children[0];
+        for (Node child : root.children) {
+            if (child.visits > best.visits) {
+                best = child;
+            }
+        }
+        return best.move;
+    }
+
+    /**
+     * Chooses a move for the player on turn and makes it.
+     *
+     * @param game the game
+     * @return outcome of the move, or {@link ActionResult#WRONG_STATE} if the player has no legal move
+     * @throws IllegalStateException if the game cannot be forked or the search was interrupted
+     */
+    public ActionResult play(final Game game) {
+        int player = game.getCurrentPlayerOnTurn();
+        Move move = chooseMove(game);
+        return move == null ? ActionResult.WRONG_STATE : move.applyTo(game, player);
+    }
+
+    /**
+     * Returns the number of iterations of the newest search.
+     *
+     * @return the iterations of all threads together
+     */
+    public long getLastIterations() {
+        return lastIterations.get();
+    }
+
+    private static Node[] children(final List<Move> moves, final int mover) {
+        Node[] children = new Node[moves.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = new Node(moves.get(i), mover);
+        }
+        return children;
+    }
+
+    private void search(final Node root, final Game game, final SplittableRandom rnd, final long deadline,
+            final AtomicLong iterations) {
+        List<Node> path = new ArrayList<>();
+        List<Move> moves = new ArrayList<>();
+        while (System.nanoTime() < deadline && iterations.getAndIncrement() < maxIterations) {
+            path.clear();
+            int made = 0;
+            Node node = root;
+            Node.VISITS.incrementAndGet(root);
+            boolean playing = true;
+            while (playing) {
+                Node[] nodeChildren = node.children;
+                if (nodeChildren == null && node.visits > 1) {
+                    nodeChildren = expand(node, game, moves);
+                }
+                if (nodeChildren == null || nodeChildren.length == 0) {
+                    break;
+                }
+                node = select(node, nodeChildren);
+                Node.VISITS.incrementAndGet(node);
+                path.add(node);
+                made++;
+                playing = game.makeMove(node.move) == ActionResult.OK;
+            }
+            for (int ply = 0; playing && ply < MAX_ROLLOUT_PLIES; ply++) {
+                moves.clear();
+                game.legalMoves().forEachRemaining(moves::add);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                made++;
+                playing = game.makeMove(rollout.choose(game, moves, rnd)) == ActionResult.OK;
+            }
+            for (Node visited : path) {
+                Node.REWARD.addAndGet(visited, (long) (reward(game, visited.mover) * REWARD_ONE));
+            }
+            for (int i = 0; i < made; i++) {
+                game.unmakeMove();
+            }
+        }
+    }
+
+    private static Node[] expand(final Node node, final Game game, final List<Move> moves) {
+        moves.clear();
+        game.legalMoves().forEachRemaining(moves::add);
+        Node[] expanded = children(moves, game.getCurrentPlayerOnTurn());
+        return Node.CHILDREN.compareAndSet(node, null, expanded) ? expanded : node.children;
+    }
+
+    /**
+     * Picks the child with the best upper confidence bound; unvisited children come first.
+     *
+     * @param parent   the node
+     * @param children its children
+     * @return the child to descend to
+     */
+    private static Node select(final Node parent, final Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0) {
+                return child;
+            }
+            double value = child.reward / REWARD_ONE / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                best = child;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Rates the position for a player.
+     *
+     * @param game   the position after the rollout
+     * @param player the player
+     * @return reward between 0 and 1
+     */
+    private static double reward(final Game game, final int player) {
+        int best = Integer.MIN_VALUE;
+        for (int other : game.getPlayers()) {
+            if (other != player) {
+                best = Math.max(best, game.getScore(other));
+            }
+        }
+        double lead = game.getScore(player) - (best == Integer.MIN_VALUE ? 0 : best);
+        return 1 / (1 + Math.exp(-lead / SCORE_SCALE));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -1,6 +1,8 @@
 package sk.uniba.fmph.dcs.terra_futura.card;
 
+import sk.uniba.fmph.dcs.terra_futura.effect.EffectSignature;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 import java.util.List;
 
 public interface Card {
@@ -58,6 +60,102 @@ public interface Card {
      */
     boolean checkLower(List<Resource> input, List<Resource> output, int pollution);
 
+    /**
+     * Checks if the resources in the bag can be obtained from this card.
+     * Same as {@link #canGetResources(List)}, without building a list.
+     *
+     * @param resources the resources to check
+     * @return true if the resources can be obtained, false otherwise
+     */
+    default boolean canGetResources(ResourceBag resources) {
+        return canGetResources(resources.toList());
+    }
+
+    /**
+     * Obtains the resources in the bag from this card.
+     * Same as {@link #getResources(List)}, without building a list.
+     *
+     * @param resources the resources to obtain
+     */
+    default void getResources(ResourceBag resources) {
+        getResources(resources.toList());
+    }
+
+    /**
+     * Checks if the resources in the bag can be placed on this card.
+     * Same as {@link #canPutResources(List)}, without building a list.
+     *
+     * @param resources the resources to check
+     * @return true if the resources can be placed, false otherwise
+     */
+    default boolean canPutResources(ResourceBag resources) {
+        return canPutResources(resources.toList());
+    }
+
+    /**
+     * Places the resources in the bag on this card.
+     * Same as {@link #putResources(List)}, without building a list.
+     *
+     * @param resources the resources to place
+     */
+    default void putResources(ResourceBag resources) {
+        putResources(resources.toList());
+    }
+
+    /**
+     * Undoes a resource transfer on this card: puts back the taken resources and removes the given ones.
+     * Used to roll back a transaction that failed midway, so implementations should restore
+     * the previous state without applying the rules of {@link #getResources(List)} and
+     * {@link #putResources(List)}. The default implementation goes through those methods.
+     *
+     * @param taken resources that were taken from the card
+     * @param given resources that were placed on the card
+     */
+    default void revertResources(ResourceBag taken, ResourceBag given) {
+        if (!given.isEmpty()) {
+            getResources(given);
+        }
+        if (!taken.isEmpty()) {
+            putResources(taken);
+        }
+    }
+
+    /**
+     * Bag variant of {@link #check(List, List, int)}.
+     *
+     * @param input     the input resources
+     * @param output    the output resources
+     * @param pollution the pollution value to check
+     * @return true if the card can process the resources and pollution, false otherwise
+     */
+    default boolean check(ResourceBag input, ResourceBag output, int pollution) {
+        return check(input.toList(), output.toList(), pollution);
+    }
+
+    /**
+     * Bag variant of {@link #checkLower(List, List, int)}.
+     *
+     * @param input     the input resources
+     * @param output    the output resources
+     * @param pollution the pollution threshold to check against
+     * @return true if the card can process the resources with lower pollution, false otherwise
+     */
+    default boolean checkLower(ResourceBag input, ResourceBag output, int pollution) {
+        return checkLower(input.toList(), output.toList(), pollution);
+    }
+
+    /**
+     * Lists the exact input/output combinations accepted by the effects of this card,
+     * candidates for {@link #check(ResourceBag, ResourceBag, int)} and
+     * {@link #checkLower(ResourceBag, ResourceBag, int)}.
+     * Open-ended effects contribute nothing; the default implementation returns an empty list.
+     *
+     * @return the combinations of the upper and lower effects
+     */
+    default List<EffectSignature> signatures() {
+        return List.of();
+    }
+
     /**
      * Checks if this card provides assistance.
      *
@@ -0,0 +1,58 @@
+package sk.uniba.fmph.dcs.terra_futura.card;
+
+import sk.uniba.fmph.dcs.terra_futura.effect.Effect;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of card definitions identified by dense integer IDs.
+ * Snapshots store a card as its catalog ID and resource counts; the effects and pollution
+ * space are taken from the catalog when the card is restored, so the same catalog (the same
+ * definitions registered in the same order) must be used to write and read a snapshot.
+ * Effects are immutable, so all cards of one definition share them.
+ */
+public final class CardCatalog {
+
+    private record Definition(List<Resource> resources, int pollutionSpace, Effect upperEffect,
+            Effect lowerEffect) {
+    }
+
+    private final List<Definition> definitions = new ArrayList<>();
+
+    /**
+     * Adds a card definition.
+     *
+     * @param resources      resources the card starts with
+     * @param pollutionSpace pollution the card can hold before it is blocked
+     * @param upperEffect    upper effect of the card, or null
+     * @param lowerEffect    lower effect of the card, or null
+     * @return ID of the definition
+     */
+    public int register(final List<Resource> resources, final int pollutionSpace, final Effect upperEffect,
+            final Effect lowerEffect) {
+        definitions.add(new Definition(List.copyOf(resources), pollutionSpace, upperEffect, lowerEffect));
+        return definitions.size() - 1;
+    }
+
+    /**
+     * Creates a new card of a definition holding its starting resources.
+     *
+     * @param id ID of the definition
+     * @return the new card
+     * @throws IllegalArgumentException if there is no such definition
+     */
+    public CardImpl create(final int id) {
+        if (id < 0 || id >= definitions.size()) {
+            throw new IllegalArgumentException("Unknown card " + id);
+        }
+        Definition definition = definitions.get(id);
+        return new CardImpl(new ArrayList<>(definition.resources()), definition.pollutionSpace(),
+                definition.upperEffect(), definition.lowerEffect(), id);
+    }
+
+    public int size() {
+        return definitions.size();
+    }
+}
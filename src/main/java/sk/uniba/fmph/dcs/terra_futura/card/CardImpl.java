@@ -2,43 +2,277 @@ package sk.uniba.fmph.dcs.terra_futura.card;
 
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.effect.Effect;
+import sk.uniba.fmph.dcs.terra_futura.effect.EffectSignature;
+import sk.uniba.fmph.dcs.terra_futura.hash.Zobrist;
+import sk.uniba.fmph.dcs.terra_futura.hash.ZobristHash;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+import sk.uniba.fmph.dcs.terra_futura.undo.Undoable;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class CardImpl implements Card {
+public class CardImpl implements Card, Snapshotable, Undoable {
 
-private final List<Resource> resources;
+/**
+ * Catalog ID of cards not created by a {@link CardCatalog}.
+ */
+public static final int NO_CATALOG_ID = -1;
+
+private static final Resource[] RESOURCE_KINDS = Resource.values();
+private static final int POLLUTION = Resource.POLLUTION.ordinal();
+
+// Number of resources of each kind held by the card, indexed by Resource ordinal
+private final int[] counts = new int[RESOURCE_KINDS.length];
+// Scratch tally of a requested resource list, reused to keep checks allocation-free
+private final int[] requested = new int[RESOURCE_KINDS.length];
 private final int pollutionSpaceL;
 private final Effect upperEffect;
 private final Effect lowerEffect;
+private final int catalogId;
+// Combinations of the upper and lower effect, collected once
+private final List<EffectSignature> signatures;
+// Log recording count changes, or null when changes are not undoable
+private UndoLog undoLog;
+// Hash of the game the card is placed in, or null, and the grid slot and cell hashed as its place
+private ZobristHash zobrist;
+private int hashSlot;
+private int hashCell;
 
 public CardImpl(final ArrayList<Resource> resources, final int pollutionSpaceL,
                 final Effect upperEffect, final Effect lowerEffect) {
+        this(resources, pollutionSpaceL, upperEffect, lowerEffect, NO_CATALOG_ID);
+    }
+
+CardImpl(final ArrayList<Resource> resources, final int pollutionSpaceL,
+                final Effect upperEffect, final Effect lowerEffect, final int catalogId) {
         this.upperEffect = upperEffect;
         this.lowerEffect = lowerEffect;
-        this.resources = resources;
         this.pollutionSpaceL = pollutionSpaceL;
+        this.catalogId = catalogId;
+        List<EffectSignature> all = new ArrayList<>();
+        if (upperEffect != null) {
+            all.addAll(upperEffect.signatures());
+        }
+        if (lowerEffect != null) {
+            all.addAll(lowerEffect.signatures());
+        }
+        this.signatures = List.copyOf(all);
+        for (Resource res : resources) {
+            counts[res.ordinal()]++;
+        }
+    }
+
+    private CardImpl(final CardImpl source) {
+        this.upperEffect = source.upperEffect;
+        this.lowerEffect = source.lowerEffect;
+        this.pollutionSpaceL = source.pollutionSpaceL;
+        this.catalogId = source.catalogId;
+        this.signatures = source.signatures;
+        System.arraycopy(source.counts, 0, counts, 0, counts.length);
+    }
+
+    /**
+     * Creates a card with the same resources that shares the effects of this card.
+     * The copy is not attached to an undo log.
+     *
+     * @return the copy
+     */
+    public CardImpl copy() {
+        return new CardImpl(this);
+    }
+
+    /**
+     * Returns the number of resources of one kind on this card.
+     *
+     * @param resource the kind
+     * @return the count
+     */
+    public int getResourceCount(final Resource resource) {
+        return counts[resource.ordinal()];
+    }
+
+    /**
+     * Returns the ID of the catalog definition this card was created from.
+     *
+     * @return the catalog ID, or {@link #NO_CATALOG_ID}
+     */
+    public int getCatalogId() {
+        return catalogId;
     }
-private int countOfResource(final List<Resource>  resources, final Resource resourceType) {
-    int count = 0;
-    for (Resource res : resources) {
-        if (res == resourceType) {
-            count++;
+
+    /**
+     * Writes the catalog ID followed by the count of every resource kind as varints.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if the card was not created by a {@link CardCatalog}
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        if (catalogId == NO_CATALOG_ID) {
+            throw new IllegalStateException("Card without catalog ID cannot be snapshotted");
+        }
+        out.putVarint(catalogId);
+        for (int count : counts) {
+            out.putVarint(count);
         }
     }
-    return count;
-}
 
-private List<Resource> kindsOfResources(final List<Resource> resources) {
-    ArrayList<Resource> kinds = new ArrayList<>();
-    for (Resource res : resources) {
-        if (!kinds.contains(res)) {
-            kinds.add(res);
+    /**
+     * Restores a card written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in      the snapshot
+     * @param catalog catalog the card was created from
+     * @return the restored card
+     * @throws IllegalArgumentException if the snapshot is malformed or the card is not in the catalog
+     */
+    public static CardImpl readSnapshot(final SnapshotReader in, final CardCatalog catalog) {
+        CardImpl card = catalog.create(in.getVarint());
+        for (int i = 0; i < card.counts.length; i++) {
+            card.counts[i] = in.getVarint(Integer.MAX_VALUE);
         }
+        return card;
+    }
+
+    /**
+     * Counts the requested resources by kind into the scratch tally.
+     *
+     * @param resources the requested resources
+     * @return number of distinct kinds in the request
+     */
+    private int tally(final List<Resource> resources) {
+        for (int i = 0; i < requested.length; i++) {
+            requested[i] = 0;
+        }
+        int kinds = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            if (requested[resources.get(i).ordinal()]++ == 0) {
+                kinds++;
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * Copies the counts of the bag into the scratch tally.
+     *
+     * @param resources the requested resources
+     * @return number of distinct kinds in the request
+     */
+    private int tally(final ResourceBag resources) {
+        for (Resource res : RESOURCE_KINDS) {
+            requested[res.ordinal()] = resources.count(res);
+        }
+        return resources.kinds();
+    }
+
+    /**
+     * Applies the rules of {@link #canGetResources(List)} to the tallied request.
+     *
+     * @param kinds number of distinct kinds in the request
+     * @param size  total number of requested resources
+     * @return true if the tallied resources can be taken
+     */
+    private boolean canGetRequested(final int kinds, final int size) {
+        if (kinds == 1 && requested[POLLUTION] > 0 && counts[POLLUTION] >= size) {
+            return true;
+        }
+        if (counts[POLLUTION] >= pollutionSpaceL) {
+            return false;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < requested[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeRequested() {
+        for (int i = 0; i < counts.length; i++) {
+            add(i, -requested[i]);
+        }
+    }
+
+    /**
+     * Changes the count of one resource kind, recording the previous count in the undo log.
+     *
+     * @param kind  ordinal of the resource
+     * @param delta change of the count
+     */
+    private void add(final int kind, final int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (undoLog != null) {
+            undoLog.record(this, kind, counts[kind]);
+        }
+        setCount(kind, counts[kind] + delta);
+    }
+
+    private void setCount(final int kind, final int count) {
+        if (zobrist != null) {
+            zobrist.toggle(Zobrist.count(hashSlot, hashCell, kind, counts[kind])
+                    ^ Zobrist.count(hashSlot, hashCell, kind, count));
+        }
+        counts[kind] = count;
+    }
+
+    /**
+     * Makes the resources on this card part of a game hash, as held by the card at a grid cell.
+     * The resources are removed from the hash the card was part of before.
+     *
+     * @param hash the hash, or null to leave it
+     * @param slot index of the player owning the grid
+     * @param cell index of the cell
+     */
+    public void setZobristHash(final ZobristHash hash, final int slot, final int cell) {
+        if (zobrist != null) {
+            zobrist.toggle(resourceKeys());
+        }
+        this.zobrist = hash;
+        this.hashSlot = slot;
+        this.hashCell = cell;
+        if (hash != null) {
+            hash.toggle(resourceKeys());
+        }
+    }
+
+    private long resourceKeys() {
+        long keys = 0;
+        for (int kind = 0; kind < counts.length; kind++) {
+            keys ^= Zobrist.count(hashSlot, hashCell, kind, counts[kind]);
+        }
+        return keys;
+    }
+
+    /**
+     * Records changes of the resources on this card in the log from now on.
+     *
+     * @param log the log, or null to stop recording
+     */
+    public void setUndoLog(final UndoLog log) {
+        this.undoLog = log;
+    }
+
+    /**
+     * Restores the count of a resource kind recorded before a change.
+     *
+     * @param key   ordinal of the resource
+     * @param value previous count
+     * @param ref   unused
+     */
+    @Override
+    public void undo(final int key, final long value, final Object ref) {
+        setCount(key, (int) value);
+    }
+
+    private int availablePollution() {
+        return pollutionSpaceL - counts[POLLUTION];
     }
-    return kinds;
-}
 
     /**
      * Checks if the specified resources can be removed from the card.
@@ -56,18 +290,21 @@ public boolean canGetResources(final List<Resource> resources) {
     if (resources.isEmpty()) {
         return false;
     }
-    if (kindsOfResources(resources).size() == 1 && resources.contains(Resource.POLLUTION) && countOfResource(this.resources, Resource.POLLUTION) >= resources.size()) {
-        return true;
-    }
-    if (countOfResource(this.resources, Resource.POLLUTION) >= pollutionSpaceL) {
+    return canGetRequested(tally(resources), resources.size());
+}
+
+    /**
+     * Same as {@link #canGetResources(List)} for a bag of resources.
+     *
+     * @param resources The resources to remove.
+     * @return true if the resources can be taken, false otherwise.
+     */
+@Override
+public boolean canGetResources(final ResourceBag resources) {
+    if (resources.isEmpty()) {
         return false;
     }
-    for (Resource res : kindsOfResources(resources)) {
-        if (countOfResource(this.resources, res) < countOfResource(resources, res)) {
-            return false;
-        }
-    }
-    return true;
+    return canGetRequested(tally(resources), resources.size());
 }
 
     /**
@@ -79,10 +316,18 @@ public boolean canGetResources(final List<Resource> resources) {
      */
 
 public boolean canPutResources(final List<Resource> resources) {
-    if (countOfResource(this.resources, Resource.POLLUTION) >= this.pollutionSpaceL) {
-        return false;
-    }
-    return true;
+    return counts[POLLUTION] < this.pollutionSpaceL;
+}
+
+    /**
+     * Same as {@link #canPutResources(List)} for a bag of resources.
+     *
+     * @param resources The resources to add.
+     * @return true if the card is not full of pollution, false otherwise.
+     */
+@Override
+public boolean canPutResources(final ResourceBag resources) {
+    return counts[POLLUTION] < this.pollutionSpaceL;
 }
 
     /**
@@ -96,10 +341,21 @@ public void getResources(final List<Resource> resources) {
     if (!canGetResources(resources)) {
         throw new IllegalArgumentException("Cannot get resources from this card.");
     }
-    ArrayList<Resource> willBeRemoved = new ArrayList<>();
-    for (Resource res : resources) {
-        this.resources.remove(res);
+    removeRequested();
+}
+
+    /**
+     * Same as {@link #getResources(List)} for a bag of resources.
+     *
+     * @param resources The resources to remove.
+     * @throws IllegalArgumentException if the resources cannot be taken.
+     */
+@Override
+public void getResources(final ResourceBag resources) {
+    if (!canGetResources(resources)) {
+        throw new IllegalArgumentException("Cannot get resources from this card.");
     }
+    removeRequested();
 }
 
     /**
@@ -113,7 +369,38 @@ public void putResources(final List<Resource> resources) {
     if (!canPutResources(resources)) {
         throw new IllegalArgumentException("Cannot put resources on this card.");
     }
-    this.resources.addAll(resources);
+    for (int i = 0; i < resources.size(); i++) {
+        add(resources.get(i).ordinal(), 1);
+    }
+}
+
+    /**
+     * Same as {@link #putResources(List)} for a bag of resources.
+     *
+     * @param resources The resources to add.
+     * @throws IllegalArgumentException if the card is blocked by pollution.
+     */
+@Override
+public void putResources(final ResourceBag resources) {
+    if (!canPutResources(resources)) {
+        throw new IllegalArgumentException("Cannot put resources on this card.");
+    }
+    for (Resource res : RESOURCE_KINDS) {
+        add(res.ordinal(), resources.count(res));
+    }
+}
+
+    /**
+     * Restores the counts from before a transfer directly, ignoring the pollution rules.
+     *
+     * @param taken resources that were taken from the card
+     * @param given resources that were placed on the card
+     */
+@Override
+public void revertResources(final ResourceBag taken, final ResourceBag given) {
+    for (Resource res : RESOURCE_KINDS) {
+        add(res.ordinal(), taken.count(res) - given.count(res));
+    }
 }
 
     /**
@@ -131,10 +418,23 @@ public void putResources(final List<Resource> resources) {
     if (upperEffect == null) {
         return false;
     }
-    int pollutionCount = countOfResource(this.resources, Resource.POLLUTION);
-    int availablePollution = pollutionSpaceL - pollutionCount;
+    return upperEffect.check(input, output, availablePollution());
+    }
 
-    return upperEffect.check(input, output, availablePollution);
+    /**
+     * Same as {@link #check(List, List, int)} for bags of resources.
+     *
+     * @param input     The input resources required for the action.
+     * @param output    The output resources produced by the action.
+     * @param pollution The pollution context (not used directly, calculated from internal state).
+     * @return true if the upper effect exists and the action is valid given the card's current state.
+     */
+    @Override
+    public boolean check(final ResourceBag input, final ResourceBag output, final int pollution) {
+        if (upperEffect == null) {
+            return false;
+        }
+        return upperEffect.check(input, output, availablePollution());
     }
 
     /**
@@ -153,10 +453,33 @@ public void putResources(final List<Resource> resources) {
     if (lowerEffect == null) {
         return false;
     }
-        int pollutionCount = countOfResource(this.resources, Resource.POLLUTION);
-        int availablePollution = pollutionSpaceL - pollutionCount;
+    return lowerEffect.check(input, output, availablePollution());
+    }
+
+    /**
+     * Same as {@link #checkLower(List, List, int)} for bags of resources.
+     *
+     * @param input     The input resources required for the action.
+     * @param output    The output resources produced by the action.
+     * @param pollution The pollution context (not used directly, calculated from internal state).
+     * @return true if the lower effect exists and the action is valid given the card's current state.
+     */
+    @Override
+    public boolean checkLower(final ResourceBag input, final ResourceBag output, final int pollution) {
+        if (lowerEffect == null) {
+            return false;
+        }
+        return lowerEffect.check(input, output, availablePollution());
+    }
 
-    return lowerEffect.check(input, output, availablePollution);
+    /**
+     * Lists the combinations of the upper effect followed by those of the lower effect.
+     *
+     * @return the combinations of both effects
+     */
+    @Override
+    public List<EffectSignature> signatures() {
+        return signatures;
     }
 
     /**
@@ -173,6 +496,7 @@ public void putResources(final List<Resource> resources) {
     /**
      * Returns a string representation of the card's current state, including its effects,
      * held resources, and pollution limit.
+     * Resources are listed grouped by kind in {@link Resource} declaration order.
      *
      * @return The state string.
      */
@@ -182,6 +506,12 @@ public void putResources(final List<Resource> resources) {
         String upperState = (upperEffect == null) ? "null" : upperEffect.state();
         String lowerState = (lowerEffect == null) ? "null" : lowerEffect.state();
 
+        List<Resource> resources = new ArrayList<>();
+        for (Resource res : RESOURCE_KINDS) {
+            for (int i = 0; i < counts[res.ordinal()]; i++) {
+                resources.add(res);
+            }
+        }
         return String.format("CardImpl{upperEffect=%s, lowerEffect=%s, resources=%s, pollutionSpaceL=%d}",
                 upperState, lowerState, resources.toString(), pollutionSpaceL);
     }
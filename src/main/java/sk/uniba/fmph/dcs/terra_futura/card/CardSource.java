@@ -9,4 +9,30 @@ import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
  * @param index card index in deck
  */
 public record CardSource(Deck deck, int index) {
+
+    // Sources of the first positions of every deck are shared, covering the visible rows
+    private static final int SHARED_INDICES = 8;
+    private static final CardSource[][] SHARED = new CardSource[Deck.values().length][SHARED_INDICES];
+
+    static {
+        for (Deck deck : Deck.values()) {
+            for (int index = 0; index < SHARED_INDICES; index++) {
+                SHARED[deck.ordinal()][index] = new CardSource(deck, index);
+            }
+        }
+    }
+
+    /**
+     * Returns the source of a card, a shared instance for the first positions of a deck.
+     *
+     * @param deck  deck type
+     * @param index card index in deck
+     * @return the source
+     */
+    public static CardSource of(final Deck deck, final int index) {
+        if (deck != null && index >= 0 && index < SHARED_INDICES) {
+            return SHARED[deck.ordinal()][index];
+        }
+        return new CardSource(deck, index);
+    }
 }
@@ -1,6 +1,7 @@
 package sk.uniba.fmph.dcs.terra_futura.effect;
 
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
 import java.util.List;
 import java.util.Objects;
@@ -9,6 +10,7 @@ import java.util.Objects;
  * Implementation of an effect that produces base resources without any input cost
  * and without consuming pollution.
  * This represents the "arbitrary" basic activation of a card.
+ * The output is compared as a multiset, so the order in which resources are listed does not matter.
  */
 public final class ArbitraryBasic implements Effect {
 
@@ -16,6 +18,10 @@ public final class ArbitraryBasic implements Effect {
     private final int from;
     private final int pollution;
 
+    // Multiset signature of to, precompiled so a check is a comparison of packed counts
+    private final ResourceBag toBag;
+    private final List<EffectSignature> signatures;
+
     public ArbitraryBasic(final List<Resource> to) {
         this(0, to, 0);
     }
@@ -30,14 +36,33 @@ public final class ArbitraryBasic implements Effect {
         this.from = from;
         this.to = Objects.requireNonNull(to, "Output resources cannot be null");
         this.pollution = pollution;
+        this.toBag = ResourceBag.of(to);
+        this.signatures = List.of(new EffectSignature(ResourceBag.EMPTY, toBag, EffectSignature.ANY_POLLUTION));
     }
 
     @Override
     public boolean check(final List<Resource> input, final List<Resource> output, final int availablePollution) {
-        if (!input.isEmpty()) {
+        if (!input.isEmpty() || output.size() != to.size()) {
             return false;
         }
-        return output.equals(to);
+        long tally = 0;
+        for (int i = 0; i < output.size(); i++) {
+            tally += ResourceBag.unit(output.get(i)).packed();
+            if (!ResourceBag.isValidPacked(tally)) {
+                return false;
+            }
+        }
+        return tally == toBag.packed();
+    }
+
+    @Override
+    public boolean check(final ResourceBag input, final ResourceBag output, final int availablePollution) {
+        return input.isEmpty() && output.equals(toBag);
+    }
+
+    @Override
+    public List<EffectSignature> signatures() {
+        return signatures;
     }
 
     @Override
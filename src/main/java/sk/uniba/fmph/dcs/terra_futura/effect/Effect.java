@@ -1,6 +1,7 @@
 package sk.uniba.fmph.dcs.terra_futura.effect;
 
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
 import java.util.List;
 
@@ -21,6 +22,30 @@ public interface Effect {
      */
     boolean check(List<Resource> input, List<Resource> output, int pollution);
 
+    /**
+     * Bag variant of {@link #check(List, List, int)}, letting callers evaluate
+     * an effect without building resource lists.
+     *
+     * @param input     the input resources.
+     * @param output    the desired output resources.
+     * @param pollution the amount of pollution available for use.
+     * @return true if the effect can be applied, false otherwise.
+     */
+    default boolean check(ResourceBag input, ResourceBag output, int pollution) {
+        return check(input.toList(), output.toList(), pollution);
+    }
+
+    /**
+     * Lists the exact input/output combinations this effect accepts.
+     * Effects whose accepted combinations cannot be enumerated (open-ended effects)
+     * return an empty list, which is also the default.
+     *
+     * @return the accepted combinations, or an empty list for open-ended effects.
+     */
+    default List<EffectSignature> signatures() {
+        return List.of();
+    }
+
     /**
      * Indicates whether this effect provides an Assistance reward.
      *
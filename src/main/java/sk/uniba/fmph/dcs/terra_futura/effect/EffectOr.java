@@ -1,33 +1,108 @@
 package sk.uniba.fmph.dcs.terra_futura.effect;
 
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 /**
  * Composite effect that succeeds if at least one of its sub-effects succeeds.
  * Used to model cards with multiple activation options.
+ * <p>
+ * Sub-effects that list their exact combinations via {@link Effect#signatures()} are indexed
+ * by input and output at construction, so checking them is a pair of map lookups no matter
+ * how many alternatives the card has. Only open-ended sub-effects are probed one by one.
  */
 public final class EffectOr implements Effect {
 
     private final List<Effect> effects;
 
+    // input -> output -> minimal available pollution needed by any indexed sub-effect
+    private final Map<ResourceBag, Map<ResourceBag, Integer>> index = new HashMap<>();
+    // sub-effects without a fixed signature, checked linearly
+    private final List<Effect> openEnded = new ArrayList<>();
+    private final List<EffectSignature> signatures;
+    private final boolean hasAssistance;
+
     public EffectOr(final List<Effect> effects) {
-        this.effects = Objects.requireNonNull(effects, "Effects list cannot be null");
+        Objects.requireNonNull(effects, "Effects list cannot be null");
         if (effects.isEmpty()) {
             throw new IllegalArgumentException("EffectOr must contain at least one effect");
         }
+        this.effects = List.copyOf(effects);
+
+        List<EffectSignature> allSignatures = new ArrayList<>();
+        boolean assistance = false;
+        for (Effect effect : this.effects) {
+            assistance |= effect.hasAssistance();
+            List<EffectSignature> effectSignatures = effect.signatures();
+            if (effectSignatures.isEmpty()) {
+                openEnded.add(effect);
+                continue;
+            }
+            for (EffectSignature signature : effectSignatures) {
+                index.computeIfAbsent(signature.input(), k -> new HashMap<>())
+                        .merge(signature.output(), signature.pollution(), Math::min);
+                allSignatures.add(signature);
+            }
+        }
+        this.hasAssistance = assistance;
+        this.signatures = openEnded.isEmpty() ? List.copyOf(allSignatures) : List.of();
+    }
+
+    private boolean indexAccepts(final ResourceBag input, final ResourceBag output, final int pollution) {
+        Map<ResourceBag, Integer> outputs = index.get(input);
+        if (outputs == null) {
+            return false;
+        }
+        Integer required = outputs.get(output);
+        return required != null && pollution >= required;
     }
 
     @Override
     public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
-        return effects.stream().anyMatch(effect -> effect.check(input, output, pollution));
+        if (!index.isEmpty() && input.size() <= ResourceBag.MAX_COUNT && output.size() <= ResourceBag.MAX_COUNT
+                && indexAccepts(ResourceBag.of(input), ResourceBag.of(output), pollution)) {
+            return true;
+        }
+        for (Effect effect : openEnded) {
+            if (effect.check(input, output, pollution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean check(final ResourceBag input, final ResourceBag output, final int pollution) {
+        if (indexAccepts(input, output, pollution)) {
+            return true;
+        }
+        for (Effect effect : openEnded) {
+            if (effect.check(input, output, pollution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the combinations of all sub-effects, or nothing if any sub-effect is open-ended.
+     *
+     * @return the accepted combinations, or an empty list if they cannot be enumerated
+     */
+    @Override
+    public List<EffectSignature> signatures() {
+        return signatures;
     }
 
     @Override
     public boolean hasAssistance() {
-        return effects.stream().anyMatch(Effect::hasAssistance);
+        return hasAssistance;
     }
 
     @Override
@@ -0,0 +1,26 @@
+package sk.uniba.fmph.dcs.terra_futura.effect;
+
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
+
+import java.util.Objects;
+
+/**
+ * One exact input → output combination accepted by an effect.
+ *
+ * @param input     resources the effect consumes
+ * @param output    resources the effect produces
+ * @param pollution minimal available pollution the effect needs,
+ *                  {@link #ANY_POLLUTION} if it does not depend on pollution at all
+ */
+public record EffectSignature(ResourceBag input, ResourceBag output, int pollution) {
+
+    /**
+     * Pollution requirement of effects that accept any amount of available pollution.
+     */
+    public static final int ANY_POLLUTION = Integer.MIN_VALUE;
+
+    public EffectSignature {
+        Objects.requireNonNull(input, "Input resources cannot be null");
+        Objects.requireNonNull(output, "Output resources cannot be null");
+    }
+}
@@ -1,12 +1,14 @@
 package sk.uniba.fmph.dcs.terra_futura.effect;
 
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Fixed transformation effect: exact input → exact output, optionally consuming pollution.
+ * Input and output are compared as multisets, so the order in which resources are listed does not matter.
  */
 public final class TransformationFixed implements Effect {
 
@@ -14,10 +16,18 @@ public final class TransformationFixed implements Effect {
     private final List<Resource> to;
     private final int pollution;
 
+    // Multiset signatures of from/to, precompiled so a check is a comparison of packed counts
+    private final ResourceBag fromBag;
+    private final ResourceBag toBag;
+    private final List<EffectSignature> signatures;
+
     public TransformationFixed(final List<Resource> from, final List<Resource> to, final int pollution) {
         this.from = Objects.requireNonNull(from, "Input resources cannot be null");
         this.to = Objects.requireNonNull(to, "Output resources cannot be null");
         this.pollution = pollution;
+        this.fromBag = ResourceBag.of(from);
+        this.toBag = ResourceBag.of(to);
+        this.signatures = List.of(new EffectSignature(fromBag, toBag, pollution));
     }
 
     @Override
@@ -27,12 +37,39 @@ public final class TransformationFixed implements Effect {
             return false;
         }
 
-
-        if (!input.equals(from)) {
+        if (input.size() != from.size() || output.size() != to.size()) {
             return false;
         }
 
-        return output.equals(to);
+        return matches(input, fromBag.packed()) && matches(output, toBag.packed());
+    }
+
+    /**
+     * Tallies the resources into packed counts and compares them with a bag's, without creating a bag.
+     *
+     * @param resources resources to tally
+     * @param packed    packed counts of the bag
+     * @return false if the counts differ or some count exceeds {@link ResourceBag#MAX_COUNT}
+     */
+    private static boolean matches(final List<Resource> resources, final long packed) {
+        long tally = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            tally += ResourceBag.unit(resources.get(i)).packed();
+            if (!ResourceBag.isValidPacked(tally)) {
+                return false;
+            }
+        }
+        return tally == packed;
+    }
+
+    @Override
+    public boolean check(final ResourceBag input, final ResourceBag output, final int availablePollution) {
+        return availablePollution >= pollution && input.equals(fromBag) && output.equals(toBag);
+    }
+
+    @Override
+    public List<EffectSignature> signatures() {
+        return signatures;
     }
 
     @Override
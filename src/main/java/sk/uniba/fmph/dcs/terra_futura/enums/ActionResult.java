@@ -0,0 +1,20 @@
+package sk.uniba.fmph.dcs.terra_futura.enums;
+
+/**
+ * Outcome of a player action that reports rejections without throwing.
+ */
+public enum ActionResult {
+    OK,
+    WRONG_STATE,
+    NOT_ON_TURN,
+    UNKNOWN_PLAYER,
+    NOT_ACTIVATABLE,
+    TRANSFER_REJECTED,
+    REWARD_NOT_AVAILABLE,
+    // Refused by an action that does not report a reason
+    REJECTED,
+    // The action addressed a game that is not hosted
+    UNKNOWN_GAME,
+    // The action could not be recorded before it was applied, so it was not applied
+    NOT_RECORDED
+}
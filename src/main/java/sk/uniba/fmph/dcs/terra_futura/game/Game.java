@@ -1,21 +1,37 @@
 package sk.uniba.fmph.dcs.terra_futura.game;
 
 import org.apache.commons.lang3.tuple.Pair;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
 import sk.uniba.fmph.dcs.terra_futura.actions.ProcessAction;
 import sk.uniba.fmph.dcs.terra_futura.actions.ProcessActionAssistance;
+import sk.uniba.fmph.dcs.terra_futura.actions.ResourceTransferService;
 import sk.uniba.fmph.dcs.terra_futura.actions.SelectReward;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
 import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
 import sk.uniba.fmph.dcs.terra_futura.deck.Pile;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
 import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
 import sk.uniba.fmph.dcs.terra_futura.enums.GameState;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
-
+import sk.uniba.fmph.dcs.terra_futura.hash.Zobrist;
+import sk.uniba.fmph.dcs.terra_futura.hash.ZobristHash;
+import sk.uniba.fmph.dcs.terra_futura.pile.MultiDeckPile;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+import sk.uniba.fmph.dcs.terra_futura.undo.Undoable;
+
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +41,34 @@ import java.util.Set;
 /**
  * Game class manages game state and player turns.
  */
-public final class Game implements TerraFuturaInterface {
+public final class Game implements TerraFuturaInterface, Snapshotable, Undoable {
     private static final int LAST_REGULAR_TURN = 9;
 
+    private static final int SNAPSHOT_MAGIC = 0x54465347;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final GameState[] STATES = GameState.values();
+    private static final Resource[] RESOURCES = Resource.values();
+    // Flags of the game phases in a snapshot
+    private static final int FINAL_ACTIVATION_PHASE = 1;
+    private static final int SCORING_PHASE = 2;
+    // Flags of a player in a snapshot
+    private static final int PENDING_ACTIVATION_PATTERN = 1;
+    private static final int PENDING_SCORING = 2;
+    private static final int HAS_GRID = 4;
+    // Keys of changes recorded in the undo log
+    private static final int UNDO_SCALARS = 0;
+    private static final int UNDO_PHASE = 1;
+    private static final int UNDO_PENDING_ACTIVATION_PATTERN = 2;
+    private static final int UNDO_PENDING_SCORING = 3;
+    private static final int PHASE_SHIFT = 8;
+    private static final long INT_MASK = 0xFFFFFFFFL;
+
     private GameState state;
     private final Map<Integer, Grid> grids;
-    private final Pile pile;
+    private final MultiDeckPile piles;
+    // Whether cards in the piles are shared with forks, so a taken card is copied before it changes.
+    // Every card left in the piles stays shared with the forks, so once set the flag is never cleared
+    private boolean sharesPileCards;
     private final List<Integer> playerOrder;
     private final Map<Integer, Integer> playerIndex;
     private final int initialStartingPlayer;
@@ -40,22 +78,47 @@ public final class Game implements TerraFuturaInterface {
     private int turnNumber;
 
     private final SelectReward selectReward;
+    private final ResourceTransferService transferService;
+    private final ProcessAction processAction;
+    private final ProcessActionAssistance processActionAssistance;
 
     private final Set<Integer> pendingActivationPatternPlayers;
     private final Set<Integer> pendingScoringPlayers;
     private boolean finalActivationPhaseStarted;
     private boolean scoringPhaseStarted;
+    // Created by the first makeMove
+    private UndoLog undoLog;
+    // Kept up to date by the grids, their cards and the piles
+    private final ZobristHash zobrist = new ZobristHash();
 
     /**
-     * Creates a new game with given players and starting player.
+     * Creates a new game with given players and starting player, drawing all cards from the first deck.
      *
      * @param players array of player IDs
      * @param grids map of player IDs to their grids
-     * @param pile the card pile
+     * @param pile the card pile of {@link Deck#I}
      * @param startingPlayer ID of starting player
      */
     public Game(final int[] players, final Map<Integer, Grid> grids,
                 final Pile pile, final int startingPlayer) {
+        this(players, grids, MultiDeckPile.of(pile), startingPlayer, new SelectReward());
+    }
+
+    /**
+     * Creates a new game with given players and starting player.
+     *
+     * @param players array of player IDs
+     * @param grids map of player IDs to their grids
+     * @param piles the card piles of both decks
+     * @param startingPlayer ID of starting player
+     */
+    public Game(final int[] players, final Map<Integer, Grid> grids,
+                final MultiDeckPile piles, final int startingPlayer) {
+        this(players, grids, piles, startingPlayer, new SelectReward());
+    }
+
+    private Game(final int[] players, final Map<Integer, Grid> grids,
+                final MultiDeckPile piles, final int startingPlayer, final SelectReward selectReward) {
         if (players == null || players.length == 0) {
             throw new IllegalArgumentException("At least one player is required");
         }
@@ -70,7 +133,7 @@ public final class Game implements TerraFuturaInterface {
             throw new IllegalArgumentException("Starting player must be part of the game");
         }
         this.grids = new HashMap<>(grids);
-        this.pile = pile;
+        this.piles = piles;
         this.initialStartingPlayer = startingPlayer;
 
         this.playerOrder = new ArrayList<>();
@@ -90,11 +153,115 @@ public final class Game implements TerraFuturaInterface {
         this.turnNumber = 1;
         this.state = GameState.TAKE_CARD_NO_CARD_DISCARDED;
 
-        this.selectReward = new SelectReward();
+        this.selectReward = selectReward;
+        this.transferService = new ResourceTransferService();
+        this.processAction = new ProcessAction(transferService);
+        this.processActionAssistance = new ProcessActionAssistance(transferService);
         this.pendingActivationPatternPlayers = new LinkedHashSet<>(playerOrder);
         this.pendingScoringPlayers = new LinkedHashSet<>(playerOrder);
         this.finalActivationPhaseStarted = false;
         this.scoringPhaseStarted = false;
+        attachHash();
+    }
+
+    private Game(final Game source, final Map<Integer, Grid> grids, final MultiDeckPile piles) {
+        this.state = source.state;
+        this.grids = grids;
+        this.piles = piles;
+        this.sharesPileCards = true;
+        this.playerOrder = source.playerOrder;
+        this.playerIndex = source.playerIndex;
+        this.initialStartingPlayer = source.initialStartingPlayer;
+        this.numberOfPlayers = source.numberOfPlayers;
+        this.currentPlayerOnTurn = source.currentPlayerOnTurn;
+        this.turnNumber = source.turnNumber;
+        this.selectReward = source.selectReward.copy();
+        // The services keep scratch state, so a fork running on another thread needs its own
+        this.transferService = new ResourceTransferService();
+        this.processAction = new ProcessAction(transferService);
+        this.processActionAssistance = new ProcessActionAssistance(transferService);
+        this.pendingActivationPatternPlayers = new LinkedHashSet<>(source.pendingActivationPatternPlayers);
+        this.pendingScoringPlayers = new LinkedHashSet<>(source.pendingScoringPlayers);
+        this.finalActivationPhaseStarted = source.finalActivationPhaseStarted;
+        this.scoringPhaseStarted = source.scoringPhaseStarted;
+        attachHash();
+    }
+
+    /**
+     * Makes the grids of the players and the piles maintain the hash of the game.
+     */
+    private void attachHash() {
+        for (Map.Entry<Integer, Grid> entry : grids.entrySet()) {
+            Integer slot = playerIndex.get(entry.getKey());
+            if (slot != null && entry.getValue() instanceof GridImpl) {
+                ((GridImpl) entry.getValue()).setZobristHash(zobrist, slot);
+            }
+        }
+        piles.setZobristHash(zobrist);
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the position.
+     * <p>
+     * The cards on the grids with their resources and activation state, and the piles, update their
+     * part of the hash as they change, so a change costs a few key toggles; the player on turn, the
+     * turn, the state, the started phases, the pending selections and the offered reward are combined
+     * when the hash is read. Equal positions reached by different moves have equal hashes, so the hash
+     * can key a {@link sk.uniba.fmph.dcs.terra_futura.hash.TranspositionTable}. Only {@link GridImpl}s,
+     * {@link sk.uniba.fmph.dcs.terra_futura.pile.PileImpl}s and {@link CardImpl}s contribute their contents;
+     * cards are identified by their catalog ID.
+     *
+     * @return the hash
+     */
+    public long hash() {
+        long hash = zobrist.value() ^ Zobrist.player(playerIndex.get(currentPlayerOnTurn))
+                ^ Zobrist.turn(turnNumber) ^ Zobrist.state(state.ordinal())
+                ^ Zobrist.phase((finalActivationPhaseStarted ? FINAL_ACTIVATION_PHASE : 0)
+                        | (scoringPhaseStarted ? SCORING_PHASE : 0))
+                ^ selectReward.zobristKeys();
+        for (int slot = 0; slot < numberOfPlayers; slot++) {
+            int playerId = playerOrder.get(slot);
+            if (pendingActivationPatternPlayers.contains(playerId)) {
+                hash ^= Zobrist.pending(slot, PENDING_ACTIVATION_PATTERN);
+            }
+            if (pendingScoringPlayers.contains(playerId)) {
+                hash ^= Zobrist.pending(slot, PENDING_SCORING);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Creates an independent game in the same state, for example to play it out on another thread.
+     * <p>
+     * The fork shares everything that does not change during a game: the player order and the
+     * card effects. The piles share their cards and hidden card arrays. The cards on the grids are
+     * copied, each as its resource counts, and the fork gets its own action services, whose
+     * transaction buffer is scratch state of one game, so a fork costs about a kilobyte. Made
+     * moves pending in this game are part of the fork's state but cannot be unmade there.
+     * Forking must not run concurrently with changes to this game.
+     * <p>
+     * Forking changes this game in one respect: the cards still in its piles are shared with the
+     * fork, so from then on this game, like the fork, places a copy of every card it takes on the
+     * grid, and the grid holds a different instance than the pile offered. The position is not
+     * affected.
+     *
+     * @return the fork
+     * @throws IllegalStateException if the grids are not {@link GridImpl}s, the piles not
+     *                               {@link sk.uniba.fmph.dcs.terra_futura.pile.PileImpl}s
+     *                               or a card on a grid not a {@link CardImpl}
+     */
+    public Game fork() {
+        MultiDeckPile forkedPiles = piles.fork();
+        Map<Integer, Grid> forkedGrids = new HashMap<>();
+        for (Map.Entry<Integer, Grid> entry : grids.entrySet()) {
+            if (!(entry.getValue() instanceof GridImpl)) {
+                throw new IllegalStateException("Only GridImpl can be forked");
+            }
+            forkedGrids.put(entry.getKey(), ((GridImpl) entry.getValue()).fork());
+        }
+        sharesPileCards = true;
+        return new Game(this, forkedGrids, forkedPiles);
     }
 
     private boolean isPlayerNotOnTurn(final int playerId) {
@@ -171,29 +338,48 @@ public final class Game implements TerraFuturaInterface {
         if (!grid.canPutCard(destination)) {
             return false;
         }
-        Optional<Card> card = pile.getCard(source.index());
-        pile.takeCard(source.index());
+        Optional<Card> card = piles.getCard(source);
+        piles.takeCard(source);
         if (card.isEmpty()) {
             return false;
         }
+        Card placed = card.get();
+        if (sharesPileCards && placed instanceof CardImpl) {
+            placed = ((CardImpl) placed).copy();
+        }
         try {
-            grid.putCard(destination, card.get());
+            grid.putCard(destination, placed);
         } catch (IllegalArgumentException ex) {
             return false;
         }
+        grid.setActivationPattern(lineOf(destination));
         state = GameState.ACTIVATE_CARD;
         return true;
     }
 
+    /**
+     * Lists the cells activated by placing a card: the cell itself and its row and column.
+     *
+     * @param position position of the placed card
+     * @return the cells of the row and column
+     */
+    private static List<GridPosition> lineOf(final GridPosition position) {
+        List<GridPosition> cells = new ArrayList<>();
+        for (int mask = position.lineMask(); mask != 0; mask &= mask - 1) {
+            cells.add(GridPosition.ofIndex(Integer.numberOfTrailingZeros(mask)));
+        }
+        return cells;
+    }
+
     @Override
     public boolean discardLastCardInDeck(final int playerId, final Deck deck) {
         if (isPlayerNotOnTurn(playerId)) {
             return false;
         }
-        if (state != GameState.TAKE_CARD_NO_CARD_DISCARDED) {
+        if (state != GameState.TAKE_CARD_NO_CARD_DISCARDED || deck == null) {
             return false;
         }
-        pile.removeLastCard();
+        piles.removeLastCard(deck);
         state = GameState.TAKE_CARD_CARD_DISCARDED;
         return true;
     }
@@ -204,28 +390,41 @@ public final class Game implements TerraFuturaInterface {
             final List<Pair<Resource, GridPosition>> outputs,
             final List<GridPosition> pollution, final Optional<Integer> otherPlayer,
                              final Optional<Card> otherCard) {
-        if (state != GameState.ACTIVATE_CARD) {
-            throw new IllegalStateException("activateCard allowed only in ACTIVATE_CARD state");
+        ActionResult result = tryActivateCard(playerId, cardPosition, inputs, outputs, pollution,
+                otherPlayer, otherCard);
+        switch (result) {
+            case OK:
+                return;
+            case WRONG_STATE:
+                throw new IllegalStateException("activateCard allowed only in ACTIVATE_CARD state");
+            case NOT_ON_TURN:
+                throw new IllegalStateException("Only the active player can activate cards");
+            case UNKNOWN_PLAYER:
+                throw new IllegalArgumentException("Player " + playerId + " does not exist");
+            default:
+                throw new IllegalStateException("Card cannot be activated at position " + cardPosition);
         }
-        if (isPlayerNotOnTurn(playerId)) {
-            throw new IllegalStateException("Only the active player can activate cards");
+    }
+
+    @Override
+    public ActionResult tryActivateCard(final int playerId, final GridPosition cardPosition,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution, final Optional<Integer> otherPlayer,
+            final Optional<Card> otherCard) {
+        ActionResult check = checkActivation(playerId, cardPosition);
+        if (check != ActionResult.OK) {
+            return check;
         }
-        ensureGridExists(playerId);
         Grid grid = grids.get(playerId);
-        if (!grid.canBeActivated(cardPosition)) {
-            throw new IllegalStateException("Card cannot be activated at position " + cardPosition);
-        }
-        Optional<Card> maybeCard = grid.getCard(cardPosition);
-        Card card = maybeCard.orElseThrow(() ->
-                new IllegalStateException("No card present at position " + cardPosition));
+        Card card = grid.getCard(cardPosition).get();
 
         boolean activationSuccess;
 
         if (otherCard.isPresent() && otherPlayer.isPresent() && card.hasAssistance() && turnNumber <= LAST_REGULAR_TURN) {
-            ProcessActionAssistance process = new  ProcessActionAssistance();
-            activationSuccess = process.activateCard(card, grid, otherPlayer.get(), otherCard.get(), inputs, outputs, pollution);
+            activationSuccess = processActionAssistance.activateCard(card, grid, otherPlayer.get(), otherCard.get(), inputs, outputs, pollution);
+            // The assistance marks the card and its row and column as activated
             if (activationSuccess) {
-                grid.setActivated(cardPosition);
                 List<Resource> rewards = inputs.stream().map(Pair::getLeft).distinct().toList();
                 if (selectReward.setReward(otherPlayer.get(), otherCard.get(), rewards)) {
                     state = GameState.SELECT_REWARD;
@@ -234,30 +433,118 @@ public final class Game implements TerraFuturaInterface {
                 }
             }
         } else {
-            ProcessAction process = new  ProcessAction();
-            activationSuccess = process.activateCard(card, grid, inputs, outputs, pollution);
+            activationSuccess = processAction.activateCard(card, grid, inputs, outputs, pollution);
+            if (activationSuccess) {
+                grid.setActivated(cardPosition);
+                state = GameState.ACTIVATE_CARD;
+            }
+        }
+
+        return activationSuccess ? ActionResult.OK : ActionResult.TRANSFER_REJECTED;
+    }
+
+    @Override
+    public ActionResult tryActivateCard(final int playerId, final ActivationRequest request) {
+        GridPosition cardPosition = request.getCard();
+        ActionResult check = checkActivation(playerId, cardPosition);
+        if (check != ActionResult.OK) {
+            return check;
+        }
+        Grid grid = grids.get(playerId);
+        Card card = grid.getCard(cardPosition).get();
+
+        boolean activationSuccess;
+
+        if (request.hasAssistance() && card.hasAssistance() && turnNumber <= LAST_REGULAR_TURN) {
+            int otherPlayer = request.getAssistingPlayer();
+            Grid otherGrid = grids.get(otherPlayer);
+            if (otherGrid == null) {
+                return ActionResult.UNKNOWN_PLAYER;
+            }
+            Optional<Card> otherCard = otherGrid.getCard(request.getAssistingCard());
+            if (otherCard.isEmpty()) {
+                return ActionResult.NOT_ACTIVATABLE;
+            }
+            activationSuccess = processActionAssistance.activateCard(card, grid, otherPlayer, otherCard.get(), request);
+            // The assistance marks the card and its row and column as activated
+            if (activationSuccess) {
+                if (selectReward.setReward(otherPlayer, otherCard.get(), inputResources(request))) {
+                    state = GameState.SELECT_REWARD;
+                } else {
+                    state = GameState.ACTIVATE_CARD;
+                }
+            }
+        } else {
+            activationSuccess = processAction.activateCard(card, grid, request);
             if (activationSuccess) {
                 grid.setActivated(cardPosition);
                 state = GameState.ACTIVATE_CARD;
             }
         }
 
-        if (!activationSuccess) {
-            throw new IllegalStateException("Card cannot be activated at position " + cardPosition);
+        return activationSuccess ? ActionResult.OK : ActionResult.TRANSFER_REJECTED;
+    }
+
+    private ActionResult checkActivation(final int playerId, final GridPosition cardPosition) {
+        if (state != GameState.ACTIVATE_CARD) {
+            return ActionResult.WRONG_STATE;
         }
+        if (isPlayerNotOnTurn(playerId)) {
+            return ActionResult.NOT_ON_TURN;
+        }
+        Grid grid = grids.get(playerId);
+        if (grid == null) {
+            return ActionResult.UNKNOWN_PLAYER;
+        }
+        if (!grid.canBeActivated(cardPosition) || grid.getCard(cardPosition).isEmpty()) {
+            return ActionResult.NOT_ACTIVATABLE;
+        }
+        return ActionResult.OK;
+    }
+
+    /**
+     * Lists the distinct input resources of the request in order of first occurrence.
+     *
+     * @param request the activation request
+     * @return the resource kinds offered as reward
+     */
+    private static List<Resource> inputResources(final ActivationRequest request) {
+        List<Resource> resources = new ArrayList<>();
+        int seen = 0;
+        for (int i = 0; i < request.getInputCount(); i++) {
+            Resource resource = ActivationRequest.resourceOf(request.getInput(i));
+            int bit = 1 << resource.ordinal();
+            if ((seen & bit) == 0) {
+                seen |= bit;
+                resources.add(resource);
+            }
+        }
+        return resources;
     }
 
     @Override
     public void selectReward(final int playerId, final Resource resource) {
+        switch (trySelectReward(playerId, resource)) {
+            case OK:
+                return;
+            case WRONG_STATE:
+                throw new IllegalStateException("selectReward allowed only in SELECT_REWARD state");
+            default:
+                throw new IllegalStateException("Select reward can only be selected in SELECT_REWARD");
+        }
+    }
+
+    @Override
+    public ActionResult trySelectReward(final int playerId, final Resource resource) {
         if (state != GameState.SELECT_REWARD) {
-            throw new IllegalStateException("selectReward allowed only in SELECT_REWARD state");
+            return ActionResult.WRONG_STATE;
         }
         if (!selectReward.canSelectReward(resource)) {
-            throw new IllegalStateException("Select reward can only be selected in SELECT_REWARD");
+            return ActionResult.REWARD_NOT_AVAILABLE;
         }
         selectReward.selectReward(resource);
         state = GameState.ACTIVATE_CARD;
-
+        return ActionResult.OK;
     }
 
     @Override
@@ -280,6 +567,15 @@ public final class Game implements TerraFuturaInterface {
             } else {
                 state = GameState.TAKE_CARD_NO_CARD_DISCARDED;
             }
+        } else {
+            // The final activation of this player is over; the next one selects a pattern
+            Integer next = firstPendingPlayer(pendingActivationPatternPlayers);
+            if (next != null) {
+                currentPlayerOnTurn = next;
+                state = GameState.SELECT_ACTIVATION_PATTERN;
+            } else {
+                startScoringPhase();
+            }
         }
         return true;
     }
@@ -295,7 +591,7 @@ public final class Game implements TerraFuturaInterface {
         if (!pendingActivationPatternPlayers.contains(playerId)) {
             return false;
         }
-        pendingActivationPatternPlayers.remove(playerId);
+        removePending(pendingActivationPatternPlayers, UNDO_PENDING_ACTIVATION_PATTERN, playerId);
         state = GameState.ACTIVATE_CARD;
         return true;
     }
@@ -311,7 +607,7 @@ public final class Game implements TerraFuturaInterface {
         if (!pendingScoringPlayers.contains(playerId)) {
             return false;
         }
-        pendingScoringPlayers.remove(playerId);
+        removePending(pendingScoringPlayers, UNDO_PENDING_SCORING, playerId);
         if (pendingScoringPlayers.isEmpty()) {
             state = GameState.FINISH;
         } else {
@@ -323,6 +619,276 @@ public final class Game implements TerraFuturaInterface {
         return true;
     }
 
+    private void removePending(final Set<Integer> pendingPlayers, final int key, final int playerId) {
+        if (undoLog != null) {
+            undoLog.record(this, key, playerId);
+        }
+        pendingPlayers.remove(playerId);
+    }
+
+    /**
+     * Makes a move of the player on turn so that {@link #unmakeMove()} can take it back.
+     * <p>
+     * The first call attaches an undo log to the piles, the grids, their cards and the reward selection;
+     * from then on every change is recorded while a move is being made, so a search can apply a move,
+     * evaluate the position and revert it in place. A rejected move is made as well and must be unmade
+     * like any other. Moves made by the other methods of the game while a made move is pending are
+     * taken back together with it.
+     *
+     * @param move the move, usually one listed by {@link #legalMoves()}
+     * @return outcome of the move
+     * @throws IllegalStateException if the grids, piles or cards do not support undo
+     */
+    public ActionResult makeMove(final Move move) {
+        UndoLog log = undoLog();
+        log.mark();
+        log.record(this, UNDO_SCALARS, (long) currentPlayerOnTurn << Integer.SIZE | turnNumber & INT_MASK);
+        log.record(this, UNDO_PHASE, state.ordinal()
+                | ((finalActivationPhaseStarted ? FINAL_ACTIVATION_PHASE : 0)
+                | (scoringPhaseStarted ? SCORING_PHASE : 0)) << PHASE_SHIFT);
+        return move.applyTo(this, currentPlayerOnTurn);
+    }
+
+    /**
+     * Takes back the newest move made by {@link #makeMove(Move)} that was not taken back yet.
+     *
+     * @throws IllegalStateException if there is no such move
+     */
+    public void unmakeMove() {
+        if (undoLog == null) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        undoLog.undo();
+    }
+
+    private UndoLog undoLog() {
+        if (undoLog == null) {
+            UndoLog log = new UndoLog();
+            piles.setUndoLog(log);
+            for (Grid grid : grids.values()) {
+                if (!(grid instanceof GridImpl)) {
+                    throw new IllegalStateException("Only GridImpl supports undo");
+                }
+                ((GridImpl) grid).setUndoLog(log);
+            }
+            selectReward.setUndoLog(log);
+            undoLog = log;
+        }
+        return undoLog;
+    }
+
+    /**
+     * Restores the turn, the phase or a pending selection recorded by a made move.
+     *
+     * @param key   what changed
+     * @param value previous value, or the player whose pending selection was removed
+     * @param ref   unused
+     */
+    @Override
+    public void undo(final int key, final long value, final Object ref) {
+        switch (key) {
+            case UNDO_SCALARS:
+                currentPlayerOnTurn = (int) (value >> Integer.SIZE);
+                turnNumber = (int) value;
+                break;
+            case UNDO_PHASE:
+                int phases = (int) value >> PHASE_SHIFT;
+                state = STATES[(int) value & ((1 << PHASE_SHIFT) - 1)];
+                finalActivationPhaseStarted = (phases & FINAL_ACTIVATION_PHASE) != 0;
+                scoringPhaseStarted = (phases & SCORING_PHASE) != 0;
+                break;
+            case UNDO_PENDING_ACTIVATION_PATTERN:
+                pendingActivationPatternPlayers.add((int) value);
+                break;
+            default:
+                pendingScoringPlayers.add((int) value);
+                break;
+        }
+    }
+
+    /**
+     * Lists the moves the player on turn can make in the current state, computed lazily.
+     * Cards are taken from every visible position to every free cell. Activations cover the
+     * combinations the cards' effects list (see {@link Card#signatures()}) with every assignment
+     * of source cards and pollution targets the grid accepts; outputs go to the activated card.
+     * The iterator must not be used after the game changed.
+     *
+     * @return iterator over the legal moves, empty when the game is finished
+     */
+    public Iterator<Move> legalMoves() {
+        Grid grid = grids.get(currentPlayerOnTurn);
+        if (grid == null) {
+            return Collections.emptyIterator();
+        }
+        switch (state) {
+            case TAKE_CARD_NO_CARD_DISCARDED:
+                return LegalMoves.concat(LegalMoves.takeCard(piles, grid), LegalMoves.discard(piles));
+            case TAKE_CARD_CARD_DISCARDED:
+                return LegalMoves.takeCard(piles, grid);
+            case ACTIVATE_CARD:
+                return LegalMoves.concat(LegalMoves.activations(grid, transferService), LegalMoves.finishTurn());
+            case SELECT_REWARD:
+                return LegalMoves.rewards(selectReward);
+            case SELECT_ACTIVATION_PATTERN:
+                return pendingActivationPatternPlayers.contains(currentPlayerOnTurn)
+                        ? LegalMoves.activationPatterns() : Collections.emptyIterator();
+            case SELECT_SCORING_METHOD:
+                return pendingScoringPlayers.contains(currentPlayerOnTurn)
+                        ? LegalMoves.scorings() : Collections.emptyIterator();
+            default:
+                return Collections.emptyIterator();
+        }
+    }
+
+    /**
+     * Writes the complete game state into a new versioned binary snapshot.
+     * Grids must be {@link GridImpl}s, the piles {@link sk.uniba.fmph.dcs.terra_futura.pile.PileImpl}s
+     * and all cards created by a {@link CardCatalog}.
+     *
+     * @return the snapshot, ready to be read
+     * @throws IllegalStateException if a part of the game cannot be snapshotted
+     */
+    public ByteBuffer snapshot() {
+        SnapshotWriter out = new SnapshotWriter();
+        out.putInt(SNAPSHOT_MAGIC).putByte(SNAPSHOT_VERSION);
+        writeSnapshot(out);
+        return out.toByteBuffer();
+    }
+
+    /**
+     * Writes the players, turn and phase, then per player the pending selections and the grid,
+     * then the piles of the decks and the reward selection.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if a part of the game cannot be snapshotted
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        out.putVarint(numberOfPlayers);
+        for (int playerId : playerOrder) {
+            out.putSignedVarint(playerId);
+        }
+        out.putVarint(playerIndex.get(initialStartingPlayer));
+        out.putVarint(playerIndex.get(currentPlayerOnTurn));
+        out.putVarint(turnNumber);
+        out.putVarint(state.ordinal());
+        out.putByte((finalActivationPhaseStarted ? FINAL_ACTIVATION_PHASE : 0)
+                | (scoringPhaseStarted ? SCORING_PHASE : 0));
+        for (int playerId : playerOrder) {
+            Grid grid = grids.get(playerId);
+            if (grid != null && !(grid instanceof GridImpl)) {
+                throw new IllegalStateException("Only GridImpl can be snapshotted");
+            }
+            out.putByte((pendingActivationPatternPlayers.contains(playerId) ? PENDING_ACTIVATION_PATTERN : 0)
+                    | (pendingScoringPlayers.contains(playerId) ? PENDING_SCORING : 0)
+                    | (grid != null ? HAS_GRID : 0));
+            if (grid != null) {
+                ((GridImpl) grid).writeSnapshot(out);
+            }
+        }
+        piles.writeSnapshot(out);
+        selectReward.writeSnapshot(out);
+    }
+
+    /**
+     * Restores a game from a snapshot made by {@link #snapshot()}, reading from the position of the buffer.
+     *
+     * @param snapshot the snapshot
+     * @param catalog  catalog the cards of the game were created from
+     * @return the restored game
+     * @throws IllegalArgumentException if the snapshot is malformed or of an unsupported version
+     */
+    public static Game restore(final ByteBuffer snapshot, final CardCatalog catalog) {
+        SnapshotReader in = new SnapshotReader(snapshot);
+        if (in.getInt() != SNAPSHOT_MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        int version = in.getByte();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Unsupported game snapshot version " + version);
+        }
+        return readSnapshot(in, catalog);
+    }
+
+    /**
+     * Restores a game written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in      the snapshot
+     * @param catalog catalog the cards of the game were created from
+     * @return the restored game
+     * @throws IllegalArgumentException if the snapshot is malformed
+     */
+    public static Game readSnapshot(final SnapshotReader in, final CardCatalog catalog) {
+        int[] players = new int[in.getVarint(Integer.MAX_VALUE)];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = in.getSignedVarint();
+        }
+        int startingPlayer = players[in.getVarint(players.length)];
+        int currentPlayer = players[in.getVarint(players.length)];
+        int turn = in.getVarint(Integer.MAX_VALUE);
+        GameState gameState = STATES[in.getVarint(STATES.length)];
+        int phases = in.getByte();
+        int[] playerFlags = new int[players.length];
+        Map<Integer, Grid> grids = new HashMap<>();
+        for (int i = 0; i < players.length; i++) {
+            playerFlags[i] = in.getByte();
+            if ((playerFlags[i] & HAS_GRID) != 0) {
+                grids.put(players[i], GridImpl.readSnapshot(in, catalog));
+            }
+        }
+        MultiDeckPile piles = MultiDeckPile.readSnapshot(in, catalog);
+        Game game = new Game(players, grids, piles, startingPlayer, SelectReward.readSnapshot(in));
+        game.currentPlayerOnTurn = currentPlayer;
+        game.turnNumber = turn;
+        game.state = gameState;
+        game.finalActivationPhaseStarted = (phases & FINAL_ACTIVATION_PHASE) != 0;
+        game.scoringPhaseStarted = (phases & SCORING_PHASE) != 0;
+        game.pendingActivationPatternPlayers.clear();
+        game.pendingScoringPlayers.clear();
+        for (int i = 0; i < players.length; i++) {
+            if ((playerFlags[i] & PENDING_ACTIVATION_PATTERN) != 0) {
+                game.pendingActivationPatternPlayers.add(players[i]);
+            }
+            if ((playerFlags[i] & PENDING_SCORING) != 0) {
+                game.pendingScoringPlayers.add(players[i]);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Sums the points of the resources on the cards of a player's grid (see {@link Resource#getPoints()}).
+     * Scoring method cards are not part of the game, so this is the score of the resources alone.
+     *
+     * @param playerId the player
+     * @return the points, 0 for a player without a grid
+     */
+    public int getScore(final int playerId) {
+        Grid grid = grids.get(playerId);
+        if (grid == null) {
+            return 0;
+        }
+        int score = 0;
+        for (int cell = 0; cell < GridPosition.CELL_COUNT; cell++) {
+            Optional<Card> card = grid.getCard(GridPosition.ofIndex(cell));
+            if (card.isPresent() && card.get() instanceof CardImpl) {
+                for (Resource resource : RESOURCES) {
+                    score += ((CardImpl) card.get()).getResourceCount(resource) * resource.getPoints().value();
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns the IDs of the players in turn order starting from the lowest ID.
+     *
+     * @return unmodifiable list of the player IDs
+     */
+    public List<Integer> getPlayers() {
+        return Collections.unmodifiableList(playerOrder);
+    }
+
     public GameState getState() {
         return state;
     }
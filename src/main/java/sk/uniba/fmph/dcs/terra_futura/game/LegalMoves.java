@@ -0,0 +1,459 @@
+package sk.uniba.fmph.dcs.terra_futura.game;
+
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.actions.ResourceTransferService;
+import sk.uniba.fmph.dcs.terra_futura.actions.SelectReward;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.effect.EffectSignature;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.pile.MultiDeckPile;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Lazy iterators over the moves of {@link Game#legalMoves()}.
+ * Moves are computed one at a time from the live game objects, so an iterator must not be
+ * used after the game changed.
+ */
+final class LegalMoves {
+
+    // Number of activation pattern cards and of scoring method cards a player chooses from
+    private static final int CHOICES = 2;
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final Move FINISH_TURN = new Move.FinishTurn();
+    private static final Deck[] DECKS = Deck.values();
+    // Index of the cells accepting pollution among the groups of candidate cells, after the input kinds
+    private static final int POLLUTION_GROUP = RESOURCES.length;
+
+    private LegalMoves() {
+    }
+
+    /**
+     * Iterator computing its elements on demand.
+     */
+    private abstract static class LazyIterator implements Iterator<Move> {
+        private Move next;
+        private boolean done;
+
+        /**
+         * Computes the next move.
+         *
+         * @return the next move, or null if there is none
+         */
+        protected abstract Move computeNext();
+
+        @Override
+        public final boolean hasNext() {
+            if (next == null && !done) {
+                next = computeNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public final Move next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Move move = next;
+            next = null;
+            return move;
+        }
+    }
+
+    /**
+     * Concatenates iterators.
+     *
+     * @param parts the iterators in order
+     * @return iterator over the moves of all parts
+     */
+    @SafeVarargs
+    static Iterator<Move> concat(final Iterator<Move>... parts) {
+        return new LazyIterator() {
+            private int part;
+
+            @Override
+            protected Move computeNext() {
+                while (part < parts.length) {
+                    if (parts[part].hasNext()) {
+                        return parts[part].next();
+                    }
+                    part++;
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Lists discarding the last card of every deck that has a visible card.
+     *
+     * @param piles the piles of the decks
+     * @return the discard moves
+     */
+    static Iterator<Move> discard(final MultiDeckPile piles) {
+        List<Move> moves = new ArrayList<>();
+        for (Deck deck : DECKS) {
+            if (piles.getDeck(deck).getCard(0).isPresent()) {
+                moves.add(new Move.DiscardLastCard(deck));
+            }
+        }
+        return moves.iterator();
+    }
+
+    static Iterator<Move> finishTurn() {
+        return List.of(FINISH_TURN).iterator();
+    }
+
+    /**
+     * Lists every visible card of every deck combined with every free grid position.
+     *
+     * @param piles the piles of the decks
+     * @param grid  grid of the player
+     * @return the take card moves
+     */
+    static Iterator<Move> takeCard(final MultiDeckPile piles, final Grid grid) {
+        return new LazyIterator() {
+            private int deck;
+            private int index;
+            private int cell = -1;
+
+            @Override
+            protected Move computeNext() {
+                while (deck < DECKS.length) {
+                    while (piles.getDeck(DECKS[deck]).getCard(index).isPresent()) {
+                        while (++cell < GridPosition.CELL_COUNT) {
+                            GridPosition position = GridPosition.ofIndex(cell);
+                            if (grid.canPutCard(position)) {
+                                return new Move.TakeCard(CardSource.of(DECKS[deck], index), position);
+                            }
+                        }
+                        cell = -1;
+                        index++;
+                    }
+                    index = 0;
+                    deck++;
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Lists the resources offered as a reward.
+     *
+     * @param selectReward the pending reward
+     * @return the reward moves
+     */
+    static Iterator<Move> rewards(final SelectReward selectReward) {
+        List<Move> moves = new ArrayList<>();
+        for (Resource resource : RESOURCES) {
+            if (selectReward.canSelectReward(resource)) {
+                moves.add(new Move.SelectReward(resource));
+            }
+        }
+        return moves.iterator();
+    }
+
+    static Iterator<Move> activationPatterns() {
+        List<Move> moves = new ArrayList<>();
+        for (int card = 0; card < CHOICES; card++) {
+            moves.add(new Move.SelectActivationPattern(card));
+        }
+        return moves.iterator();
+    }
+
+    static Iterator<Move> scorings() {
+        List<Move> moves = new ArrayList<>();
+        for (int card = 0; card < CHOICES; card++) {
+            moves.add(new Move.SelectScoring(card));
+        }
+        return moves.iterator();
+    }
+
+    /**
+     * Lists activations of the activatable cards of a grid.
+     *
+     * @param grid      grid of the player
+     * @param transfers service validating the resource movements
+     * @return the activation moves
+     */
+    static Iterator<Move> activations(final Grid grid, final ResourceTransferService transfers) {
+        return new ActivationMoves(grid, transfers);
+    }
+
+    /**
+     * Enumerates activations card by card and signature by signature.
+     * <p>
+     * For every combination accepted by {@link Card#check(ResourceBag, ResourceBag, int)} or
+     * {@link Card#checkLower(ResourceBag, ResourceBag, int)}, each input resource is taken from a card
+     * holding that kind and each unit of pollution goes to a card accepting it, while the outputs are
+     * placed on the activated card. Units of the same kind are assigned to non-decreasing cells, so every
+     * multiset of sources is produced once, and only assignments the grid accepts as a whole are returned.
+     * Open-ended effects and assistance are not enumerated.
+     */
+    private static final class ActivationMoves extends LazyIterator {
+
+        private final Grid grid;
+        private final ResourceTransferService transfers;
+        // Activatable cells not visited yet
+        private int remainingCells;
+
+        private GridPosition cardPosition;
+        private List<EffectSignature> signatures = List.of();
+        private int signature;
+
+        // Combinations of the current card seen so far
+        private final SignatureSet seen = new SignatureSet();
+
+        private ResourceBag output;
+        // Candidate cells per input kind, and as the last group the cells accepting pollution
+        private final GridPosition[][] groupCells = new GridPosition[POLLUTION_GROUP + 1][GridPosition.CELL_COUNT];
+        private final int[] groupSizes = new int[POLLUTION_GROUP + 1];
+        // Per unit: its resource, its group of candidate cells, and whether it continues the group of the
+        // previous unit; the arrays grow when a combination has more units than any before
+        private int unitCount;
+        private Resource[] units = new Resource[0];
+        private int[] unitGroups = new int[0];
+        private boolean[] sameGroup = new boolean[0];
+        private int[] digits = new int[0];
+        private boolean pending;
+
+        ActivationMoves(final Grid grid, final ResourceTransferService transfers) {
+            this.grid = grid;
+            this.transfers = transfers;
+            for (int cell = 0; cell < GridPosition.CELL_COUNT; cell++) {
+                if (grid.canBeActivated(GridPosition.ofIndex(cell))) {
+                    remainingCells |= 1 << cell;
+                }
+            }
+        }
+
+        @Override
+        protected Move computeNext() {
+            while (true) {
+                if (pending) {
+                    ActivationRequest request = buildRequest();
+                    pending = advance();
+                    if (transfers.canExecuteTransaction(grid, request)) {
+                        return new Move.ActivateCard(request);
+                    }
+                } else if (signature < signatures.size()) {
+                    EffectSignature candidate = signatures.get(signature);
+                    // Upper and lower effects may share a combination
+                    if (seen.add(candidate)) {
+                        pending = prepare(candidate);
+                    }
+                    signature++;
+                } else if (remainingCells != 0) {
+                    cardPosition = GridPosition.ofIndex(Integer.numberOfTrailingZeros(remainingCells));
+                    remainingCells &= remainingCells - 1;
+                    Optional<Card> card = grid.getCard(cardPosition);
+                    signatures = card.isPresent() ? card.get().signatures() : List.of();
+                    signature = 0;
+                    seen.clear();
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Sets up the assignment of a combination of the current card.
+         *
+         * @param candidate the combination
+         * @return true if the card accepts it and every unit has a candidate cell
+         */
+        private boolean prepare(final EffectSignature candidate) {
+            Card card = grid.getCard(cardPosition).get();
+            ResourceBag input = candidate.input();
+            int pollution = Math.max(0, candidate.pollution());
+            if (!card.check(input, candidate.output(), pollution)
+                    && !card.checkLower(input, candidate.output(), pollution)) {
+                return false;
+            }
+            output = candidate.output();
+            unitCount = input.size() + pollution;
+            if (unitCount > units.length) {
+                units = new Resource[unitCount];
+                unitGroups = new int[unitCount];
+                sameGroup = new boolean[unitCount];
+                digits = new int[unitCount];
+            }
+            int unit = 0;
+            for (Resource resource : RESOURCES) {
+                int count = input.count(resource);
+                if (count > 0 && findCells(resource.ordinal(), ResourceBag.unit(resource), true) == 0) {
+                    return false;
+                }
+                for (int i = 0; i < count; i++) {
+                    units[unit] = resource;
+                    unitGroups[unit] = resource.ordinal();
+                    sameGroup[unit] = i > 0;
+                    unit++;
+                }
+            }
+            if (pollution > 0 && findCells(POLLUTION_GROUP, ResourceBag.unit(Resource.POLLUTION), false) == 0) {
+                return false;
+            }
+            for (int i = 0; i < pollution; i++) {
+                units[unit] = null;
+                unitGroups[unit] = POLLUTION_GROUP;
+                sameGroup[unit] = i > 0;
+                unit++;
+            }
+            Arrays.fill(digits, 0, unitCount, 0);
+            return true;
+        }
+
+        /**
+         * Collects the cells whose card can give or accept the resources into a group.
+         *
+         * @param group     the group of candidate cells to fill
+         * @param resources the resources
+         * @param give      true to test giving, false to test accepting
+         * @return the number of matching cells, which are stored in cell order
+         */
+        private int findCells(final int group, final ResourceBag resources, final boolean give) {
+            GridPosition[] cells = groupCells[group];
+            int count = 0;
+            for (int cell = 0; cell < GridPosition.CELL_COUNT; cell++) {
+                GridPosition position = GridPosition.ofIndex(cell);
+                Optional<Card> card = grid.getCard(position);
+                if (card.isPresent() && (give ? card.get().canGetResources(resources)
+                        : card.get().canPutResources(resources))) {
+                    cells[count++] = position;
+                }
+            }
+            groupSizes[group] = count;
+            return count;
+        }
+
+        private ActivationRequest buildRequest() {
+            ActivationRequest request = new ActivationRequest().card(cardPosition);
+            for (int unit = 0; unit < unitCount; unit++) {
+                GridPosition cell = groupCells[unitGroups[unit]][digits[unit]];
+                if (units[unit] != null) {
+                    request.input(units[unit], cell);
+                } else {
+                    request.pollution(cell);
+                }
+            }
+            for (Resource resource : RESOURCES) {
+                for (int i = 0; i < output.count(resource); i++) {
+                    request.output(resource, cardPosition);
+                }
+            }
+            return request;
+        }
+
+        /**
+         * Moves to the next assignment like an odometer.
+         *
+         * @return false if all assignments were produced
+         */
+        private boolean advance() {
+            for (int unit = unitCount - 1; unit >= 0; unit--) {
+                if (++digits[unit] < groupSizes[unitGroups[unit]]) {
+                    for (int later = unit + 1; later < unitCount; later++) {
+                        digits[later] = sameGroup[later] ? digits[later - 1] : 0;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Set of effect signatures kept as their packed counts in reusable open-addressing arrays,
+     * so adding a signature neither allocates nor compares it with every signature added before.
+     */
+    private static final class SignatureSet {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+        private static final int HASH_SHIFT = 32;
+
+        private long[] inputs = new long[INITIAL_CAPACITY];
+        private long[] outputs = new long[INITIAL_CAPACITY];
+        private int[] pollutions = new int[INITIAL_CAPACITY];
+        // A slot is used if its stamp is the current one, so clearing the set is a single increment
+        private int[] stamps = new int[INITIAL_CAPACITY];
+        private int stamp = 1;
+        private int size;
+
+        void clear() {
+            stamp++;
+            size = 0;
+        }
+
+        /**
+         * Adds a signature to the set.
+         *
+         * @param signature the signature
+         * @return false if the set already contained it
+         */
+        boolean add(final EffectSignature signature) {
+            long input = signature.input().packed();
+            long output = signature.output().packed();
+            int pollution = signature.pollution();
+            int mask = stamps.length - 1;
+            int slot = slot(input, output, pollution, mask);
+            while (stamps[slot] == stamp) {
+                if (inputs[slot] == input && outputs[slot] == output && pollutions[slot] == pollution) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            inputs[slot] = input;
+            outputs[slot] = output;
+            pollutions[slot] = pollution;
+            stamps[slot] = stamp;
+            // Keep at most half of the slots used
+            if (++size * 2 > stamps.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private static int slot(final long input, final long output, final int pollution, final int mask) {
+            long hash = ((input * HASH_MULTIPLIER ^ output) * HASH_MULTIPLIER ^ pollution) * HASH_MULTIPLIER;
+            return (int) (hash >>> HASH_SHIFT) & mask;
+        }
+
+        private void grow() {
+            long[] oldInputs = inputs;
+            long[] oldOutputs = outputs;
+            int[] oldPollutions = pollutions;
+            int[] oldStamps = stamps;
+            inputs = new long[oldStamps.length * 2];
+            outputs = new long[oldStamps.length * 2];
+            pollutions = new int[oldStamps.length * 2];
+            stamps = new int[oldStamps.length * 2];
+            int mask = stamps.length - 1;
+            for (int old = 0; old < oldStamps.length; old++) {
+                if (oldStamps[old] == stamp) {
+                    int slot = slot(oldInputs[old], oldOutputs[old], oldPollutions[old], mask);
+                    while (stamps[slot] == stamp) {
+                        slot = (slot + 1) & mask;
+                    }
+                    inputs[slot] = oldInputs[old];
+                    outputs[slot] = oldOutputs[old];
+                    pollutions[slot] = oldPollutions[old];
+                    stamps[slot] = stamp;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package sk.uniba.fmph.dcs.terra_futura.game;
+
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+/**
+ * One action a player can take, as listed by {@link Game#legalMoves()}.
+ * Each kind of move corresponds to a method of {@link TerraFuturaInterface}.
+ */
+public sealed interface Move permits Move.TakeCard, Move.DiscardLastCard, Move.ActivateCard,
+        Move.SelectReward, Move.FinishTurn, Move.SelectActivationPattern, Move.SelectScoring {
+
+    /**
+     * Performs the move in a game.
+     *
+     * @param game     the game
+     * @param playerId player making the move
+     * @return outcome of the move, {@link ActionResult#REJECTED} for a refused method returning a boolean
+     */
+    ActionResult applyTo(TerraFuturaInterface game, int playerId);
+
+    private static ActionResult result(final boolean success) {
+        return success ? ActionResult.OK : ActionResult.REJECTED;
+    }
+
+    /**
+     * Takes a visible card and places it on the grid.
+     *
+     * @param source      deck and index of the card
+     * @param destination free grid position
+     */
+    record TakeCard(CardSource source, GridPosition destination) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return result(game.takeCard(playerId, source, destination));
+        }
+    }
+
+    /**
+     * Discards the last card of a deck before taking a card.
+     *
+     * @param deck the deck
+     */
+    record DiscardLastCard(Deck deck) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return result(game.discardLastCardInDeck(playerId, deck));
+        }
+    }
+
+    /**
+     * Activates a card with the given resource movements.
+     * The request must not be modified while the move is in use.
+     *
+     * @param request the activation
+     */
+    record ActivateCard(ActivationRequest request) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return game.tryActivateCard(playerId, request);
+        }
+    }
+
+    /**
+     * Selects a resource offered as a reward for assistance.
+     *
+     * @param resource the resource
+     */
+    record SelectReward(Resource resource) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return game.trySelectReward(playerId, resource);
+        }
+    }
+
+    /**
+     * Ends the turn of the player.
+     */
+    record FinishTurn() implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return result(game.turnFinished(playerId));
+        }
+    }
+
+    /**
+     * Chooses the activation pattern card for the final activation.
+     *
+     * @param card index of the pattern card
+     */
+    record SelectActivationPattern(int card) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return result(game.selectActivationPattern(playerId, card));
+        }
+    }
+
+    /**
+     * Chooses the scoring method card.
+     *
+     * @param card index of the scoring card
+     */
+    record SelectScoring(int card) implements Move {
+        @Override
+        public ActionResult applyTo(final TerraFuturaInterface game, final int playerId) {
+            return result(game.selectScoring(playerId, card));
+        }
+    }
+}
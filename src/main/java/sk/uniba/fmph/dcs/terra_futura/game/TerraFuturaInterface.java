@@ -1,8 +1,10 @@
 package sk.uniba.fmph.dcs.terra_futura.game;
 
 import org.apache.commons.lang3.tuple.Pair;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
 import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
 import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
@@ -56,14 +58,56 @@ public interface TerraFuturaInterface {
                       Optional<Integer> otherPlayerId,
                       Optional<Card> otherCard);
 
+    /**
+     * Activates a card on player's grid like {@link #activateCard}, but reports
+     * an invalid move by the result instead of throwing.
+     *
+     * @param playerId player identifier
+     * @param card grid position of card to activate
+     * @param inputs input resources with positions
+     * @param outputs output resources with positions
+     * @param otherPlayerId optional id of other player
+     * @param otherCard optional position of other card
+     * @param pollution pollution positions
+     * @return {@link ActionResult#OK} if the card was activated, otherwise the reason of rejection
+     */
+    ActionResult tryActivateCard(int playerId, GridPosition card,
+                                 List<Pair<Resource, GridPosition>> inputs,
+                                 List<Pair<Resource, GridPosition>> outputs,
+                                 List<GridPosition> pollution,
+                                 Optional<Integer> otherPlayerId,
+                                 Optional<Card> otherCard);
+
+    /**
+     * Activates the card described by an encoded request like {@link #tryActivateCard(int, GridPosition,
+     * List, List, List, Optional, Optional)}. The assisting card is looked up in the grid of the
+     * assisting player. The request can be reused once the call returns.
+     *
+     * @param playerId player identifier
+     * @param request activated card, moved resources, pollution and optional assistance
+     * @return {@link ActionResult#OK} if the card was activated, otherwise the reason of rejection
+     */
+    ActionResult tryActivateCard(int playerId, ActivationRequest request);
+
     /**
      * Selects reward after card with Assistance was activated.
+     * Throws IllegalStateException if not in SELECT_REWARD state or the resource is not offered.
      *
      * @param playerId player identifier
      * @param resource selected resource as reward
      */
     void selectReward(int playerId, Resource resource);
 
+    /**
+     * Selects reward like {@link #selectReward}, but reports an invalid choice
+     * by the result instead of throwing.
+     *
+     * @param playerId player identifier
+     * @param resource selected resource as reward
+     * @return {@link ActionResult#OK} if the reward was selected, otherwise the reason of rejection
+     */
+    ActionResult trySelectReward(int playerId, Resource resource);
+
     /**
      * Ends current player's turn and moves to next player.
      * Handles transitions to final phases after turn 9.
@@ -9,6 +9,8 @@ import org.json.JSONArray;
 
 public final class ActivationPattern {
     private ArrayList<SimpleEntry<Integer, Integer>> pattern;
+    // The same pattern as a bitmask of cells, computed once
+    private final int cellMask;
     private boolean selected;
     private InterfaceActivateGrid grid;
 
@@ -16,6 +18,11 @@ public final class ActivationPattern {
             final Collection<SimpleEntry<Integer, Integer>> pattern) {
         this.grid = grid;
         this.pattern = new ArrayList<>(pattern); // copy the pattern
+        int mask = 0;
+        for (SimpleEntry<Integer, Integer> entry : this.pattern) {
+            mask |= GridPosition.bit(entry.getKey(), entry.getValue());
+        }
+        this.cellMask = mask;
         this.selected = false;
     }
 
@@ -23,7 +30,7 @@ public final class ActivationPattern {
         if (this.selected) {
             throw new IllegalStateException("Pattern already selected");
         }
-        this.grid.setActivationPattern(this.pattern);
+        this.grid.setActivationPattern(this.cellMask, this.pattern);
         this.selected = true;
     }
 
@@ -31,6 +38,16 @@ public final class ActivationPattern {
         return this.selected;
     }
 
+    /**
+     * Returns the pattern as a bitmask of cells (see {@link GridPosition#bit()}).
+     * Coordinates outside the grid area are not part of the mask.
+     *
+     * @return bitmask of the cells in the pattern
+     */
+    public int getCellMask() {
+        return this.cellMask;
+    }
+
     public String state() {
         JSONArray patternList = new JSONArray();
         for (SimpleEntry<Integer, Integer> entry : pattern) {
@@ -45,4 +62,3 @@ public final class ActivationPattern {
         return result.toString();
     }
 }
-
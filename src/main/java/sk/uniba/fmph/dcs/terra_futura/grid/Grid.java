@@ -19,6 +19,44 @@ public interface Grid {
      */
     Optional<Card> getCard(GridPosition position);
 
+    /**
+     * Finds where the given card instance lies in the grid.
+     * Cards are matched by identity. The default implementation probes every cell
+     * of the grid area; implementations are expected to keep an index instead.
+     *
+     * @param card the card to look for
+     * @return an Optional containing the card's position, or empty if the card is not in the grid
+     */
+    default Optional<GridPosition> findCard(Card card) {
+        for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+            GridPosition position = GridPosition.ofIndex(index);
+            Optional<Card> found = getCard(position);
+            if (found.isPresent() && found.get() == card) {
+                return Optional.of(position);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the occupied positions in the same row or column as the given position,
+     * not including the position itself, as a cell bitmask (see {@link GridPosition#bit()}).
+     * The default implementation probes the cells of the row and column.
+     *
+     * @param position the position whose neighbours are requested
+     * @return bitmask of occupied cells sharing a row or column with the position
+     */
+    default int getLineNeighbours(GridPosition position) {
+        int neighbours = 0;
+        for (int line = position.lineMask() & ~position.bit(); line != 0; line &= line - 1) {
+            int index = Integer.numberOfTrailingZeros(line);
+            if (getCard(GridPosition.ofIndex(index)).isPresent()) {
+                neighbours |= 1 << index;
+            }
+        }
+        return neighbours;
+    }
+
     /**
      * Checks if a card can be placed at the specified grid position.
      *
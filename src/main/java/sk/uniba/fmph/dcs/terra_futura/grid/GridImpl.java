@@ -1,13 +1,20 @@
 package sk.uniba.fmph.dcs.terra_futura.grid;
 
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
+import sk.uniba.fmph.dcs.terra_futura.hash.Zobrist;
+import sk.uniba.fmph.dcs.terra_futura.hash.ZobristHash;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+import sk.uniba.fmph.dcs.terra_futura.undo.Undoable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Collection;
 import java.util.AbstractMap;
@@ -17,17 +24,41 @@ import java.util.AbstractMap;
  * GridImpl is the default implementation of the Grid interface.
  * It represents a grid where cards can be placed and activated
  * according to a defined pattern.
+ * <p>
+ * Cards are stored in a fixed-size row-major array over the bounded grid area
+ * (see {@link GridPosition#index()}); positions outside that area never hold a card.
+ * Occupied cells, the activation pattern and the cells activated this turn are int
+ * bitmasks over the same cells, so activation checks are single bitwise operations.
  */
-public final class GridImpl implements Grid, InterfaceActivateGrid {
+public final class GridImpl implements Grid, InterfaceActivateGrid, Snapshotable, Undoable {
+
+    private static final int ALL_CELLS = (1 << GridPosition.CELL_COUNT) - 1;
+
+    // Keys of changes recorded in the undo log; a placed card is recorded as its cell index
+    private static final int ACTIVATED = -1;
+    private static final int PATTERN = -2;
+
+    // Stores cards by cell index
+    private final Card[] cards = new Card[GridPosition.CELL_COUNT];
+
+    // Reverse index from card instance to the position holding it
+    private final Map<Card, GridPosition> positions = new IdentityHashMap<>();
+
+    // Bitmask of cells holding a card
+    private int occupied;
 
-    // Stores cards on coordinates
-    private final Map<GridPosition, Card> cards = new HashMap<>();
+    // Bitmask of cells that were activated this turn
+    private int activatedThisTurn;
 
-    // Stores which coordinates were activated this turn
-    private final Set<GridPosition> activatedThisTurn = new HashSet<>();
+    // Bitmask of cells in the activation pattern for this turn
+    private int activationPattern;
 
-    // Activation pattern for this turn (List of grid positions)
-    private List<GridPosition> activationPattern = new ArrayList<>();
+    // Log recording changes, or null when changes are not undoable
+    private UndoLog undoLog;
+
+    // Hash of the game the grid belongs to, or null, and the index of the owning player in it
+    private ZobristHash zobrist;
+    private int hashSlot;
 
 
     /**
@@ -38,20 +69,22 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
      *         or an empty optional if no card is present
      */
     public Optional<Card> getCard(final GridPosition coordinate) {
-        return Optional.ofNullable(cards.get(coordinate));
+        int index = coordinate.index();
+        return index < 0 ? Optional.empty() : Optional.ofNullable(cards[index]);
     }
 
 
     /**
      * Checks whether a card can be placed at the given coordinate.
-     * A card can be placed only if there is no other card already stored
-     * at that coordinate.
+     * A card can be placed only if the coordinate lies within the grid area
+     * and there is no other card already stored at that coordinate.
      *
      * @param coordinate the grid coordinate to check
      * @return {@code true} if the coordinate is free, {@code false} otherwise
      */
     public boolean canPutCard(final GridPosition coordinate) {
-        return !cards.containsKey(coordinate);
+        int index = coordinate.index();
+        return index >= 0 && cards[index] == null;
     }
 
 
@@ -64,32 +97,117 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
      * @param coordinate the grid coordinate where the card should be placed
      * @param card       the card to place
      * @throws IllegalStateException if a card is already present at the
-     *                               specified coordinate
+     *                               specified coordinate or the coordinate
+     *                               lies outside the grid
      */
     public void putCard(final GridPosition coordinate, final Card card) {
         if (!canPutCard(coordinate)) {
-            throw new IllegalStateException("Cannot put card at " + coordinate + ": occupied.");
+            throw new IllegalStateException("Cannot put card at " + coordinate + ": occupied or outside the grid.");
+        }
+        GridPosition cell = GridPosition.ofIndex(coordinate.index());
+        if (undoLog != null) {
+            undoLog.record(this, cell.index(), positions.containsKey(card) ? 1 : 0, card);
+            if (card instanceof CardImpl) {
+                ((CardImpl) card).setUndoLog(undoLog);
+            }
+        }
+        cards[cell.index()] = card;
+        occupied |= cell.bit();
+        positions.putIfAbsent(card, cell);
+        if (zobrist != null) {
+            hashCard(cell.index(), zobrist);
+        }
+    }
+
+    /**
+     * Toggles the key of the card at a cell and attaches the card to the hash, or detaches it.
+     *
+     * @param cell index of the cell
+     * @param hash the hash to attach to, or null to detach
+     */
+    private void hashCard(final int cell, final ZobristHash hash) {
+        Card card = cards[cell];
+        boolean impl = card instanceof CardImpl;
+        zobrist.toggle(Zobrist.card(hashSlot, cell, impl ? ((CardImpl) card).getCatalogId() : CardImpl.NO_CATALOG_ID));
+        if (impl) {
+            ((CardImpl) card).setZobristHash(hash, hashSlot, cell);
+        }
+    }
+
+    private long maskKeys(final int changed, final boolean pattern) {
+        long keys = 0;
+        for (int mask = changed; mask != 0; mask &= mask - 1) {
+            int cell = Integer.numberOfTrailingZeros(mask);
+            keys ^= pattern ? Zobrist.pattern(hashSlot, cell) : Zobrist.activated(hashSlot, cell);
+        }
+        return keys;
+    }
+
+    /**
+     * Makes the cards, their resources and the activation masks of this grid part of a game hash,
+     * removing them from the hash the grid was part of before.
+     * Cards that are not {@link CardImpl}s are hashed by their position only.
+     *
+     * @param hash the hash, or null to leave it
+     * @param slot index of the player owning the grid
+     */
+    public void setZobristHash(final ZobristHash hash, final int slot) {
+        if (zobrist != null) {
+            toggleAll(null);
         }
-        cards.put(coordinate, card);
+        zobrist = hash;
+        hashSlot = slot;
+        if (hash != null) {
+            toggleAll(hash);
+        }
+    }
+
+    private void toggleAll(final ZobristHash cardHash) {
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            hashCard(Integer.numberOfTrailingZeros(mask), cardHash);
+        }
+        zobrist.toggle(maskKeys(activatedThisTurn, false) ^ maskKeys(activationPattern, true));
+    }
+
+
+    /**
+     * Finds the position of the given card instance using the reverse index.
+     * If the same instance was placed more than once, its first position is returned.
+     *
+     * @param card the card to look for
+     * @return an {@link Optional} with the card's position, or empty if it is not in the grid
+     */
+    @Override
+    public Optional<GridPosition> findCard(final Card card) {
+        return Optional.ofNullable(positions.get(card));
+    }
+
+
+    /**
+     * Returns the occupied cells in the row and column of the given position,
+     * computed from the occupancy bitmask without probing cells.
+     *
+     * @param position the position whose neighbours are requested
+     * @return bitmask of occupied cells sharing a row or column with the position
+     */
+    @Override
+    public int getLineNeighbours(final GridPosition position) {
+        return occupied & position.lineMask() & ~position.bit();
     }
 
 
     /**
      * Determines whether the card at the given coordinate can be activated.
-     * A card can be activated only if it exists at the coordinate and the
-     * coordinate is included in the current activation pattern.
+     * A card can be activated only if it exists at the coordinate, the
+     * coordinate is included in the current activation pattern and the card
+     * was not activated yet this turn.
      *
      * @param coordinate the coordinate of the card to check
      * @return {@code true} if the card can be activated, {@code false} otherwise
      */
     public boolean canBeActivated(final GridPosition coordinate) {
-        // Check if card exists at position
-        if (getCard(coordinate).isEmpty()) {
-            return false;
-        }
-
-        // Check if position is in the activation pattern
-        return activationPattern != null && activationPattern.contains(coordinate);
+        // Card must exist at the position, in the activation pattern, and be activated at most once a turn
+        return (occupied & activationPattern & ~activatedThisTurn & coordinate.bit()) != 0;
     }
 
 
@@ -105,7 +223,35 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
         if (!canBeActivated(coordinate)) {
             throw new IllegalStateException("Card cannot be activated at " + coordinate);
         }
-        activatedThisTurn.add(coordinate);
+        setActivatedMask(activatedThisTurn | coordinate.bit());
+    }
+
+    private void setActivatedMask(final int mask) {
+        if (undoLog != null) {
+            undoLog.record(this, ACTIVATED, activatedThisTurn);
+        }
+        restoreActivatedMask(mask);
+    }
+
+    private void setPatternMask(final int mask) {
+        if (undoLog != null) {
+            undoLog.record(this, PATTERN, activationPattern);
+        }
+        restorePatternMask(mask);
+    }
+
+    private void restoreActivatedMask(final int mask) {
+        if (zobrist != null) {
+            zobrist.toggle(maskKeys(activatedThisTurn ^ mask, false));
+        }
+        activatedThisTurn = mask;
+    }
+
+    private void restorePatternMask(final int mask) {
+        if (zobrist != null) {
+            zobrist.toggle(maskKeys(activationPattern ^ mask, true));
+        }
+        activationPattern = mask;
     }
 
 
@@ -117,7 +263,11 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
      * @param pattern list of grid positions that define the activation pattern
      */
     public void setActivationPattern(final List<GridPosition> pattern) {
-        this.activationPattern = new ArrayList<>(pattern);
+        int mask = 0;
+        for (GridPosition position : pattern) {
+            mask |= position.bit();
+        }
+        setPatternMask(mask);
     }
 
 
@@ -126,8 +276,8 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
      * Clears the set of activated positions and the activation pattern.
      */
     public void endTurn() {
-        activatedThisTurn.clear();
-        activationPattern.clear();
+        setActivatedMask(0);
+        setPatternMask(0);
     }
 
 
@@ -143,32 +293,169 @@ public final class GridImpl implements Grid, InterfaceActivateGrid {
         StringBuilder sb = new StringBuilder();
         sb.append("Grid{cards=\n");
 
-        for (Map.Entry<GridPosition, Card> entry : cards.entrySet()) {
-            sb.append("  ").append(entry.getKey())
-                    .append(" -> ").append(entry.getValue().state())
-                    .append("\n");
+        for (int index = 0; index < cards.length; index++) {
+            if (cards[index] != null) {
+                sb.append("  ").append(GridPosition.ofIndex(index))
+                        .append(" -> ").append(cards[index].state())
+                        .append("\n");
+            }
         }
 
-        sb.append("activatedThisTurn=").append(activatedThisTurn).append("\n");
-        sb.append("activationPattern=").append(activationPattern).append("\n");
+        sb.append("activatedThisTurn=").append(positions(activatedThisTurn)).append("\n");
+        sb.append("activationPattern=").append(positions(activationPattern)).append("\n");
         sb.append("}");
         return sb.toString();
     }
 
+    private static List<GridPosition> positions(final int cellMask) {
+        List<GridPosition> positions = new ArrayList<>();
+        for (int mask = cellMask; mask != 0; mask &= mask - 1) {
+            positions.add(GridPosition.ofIndex(Integer.numberOfTrailingZeros(mask)));
+        }
+        return positions;
+    }
+
     /**
      * Sets the activation pattern based on integer coordinate pairs.
      * This is an adapter method used by the activation interface to convert
-     * raw integer coordinates into {@link GridPosition} instances.
+     * raw integer coordinates into a cell bitmask.
      *
      * @param pattern a collection of (x, y) coordinate pairs defining the
      *                activation pattern
      */
     @Override
     public void setActivationPattern(final Collection<AbstractMap.SimpleEntry<Integer, Integer>> pattern) {
-        List<GridPosition> logicalPattern = new ArrayList<>();
+        int mask = 0;
         for (AbstractMap.SimpleEntry<Integer, Integer> entry : pattern) {
-            logicalPattern.add(new GridPosition(entry.getKey(), entry.getValue()));
+            mask |= GridPosition.bit(entry.getKey(), entry.getValue());
+        }
+        setPatternMask(mask);
+    }
+
+    /**
+     * Sets the activation pattern directly from a cell bitmask,
+     * ignoring the equivalent coordinate pairs.
+     *
+     * @param cellMask bitmask of the cells in the pattern
+     * @param pattern  the same pattern as (x, y) coordinate pairs
+     */
+    @Override
+    public void setActivationPattern(final int cellMask,
+            final Collection<AbstractMap.SimpleEntry<Integer, Integer>> pattern) {
+        setPatternMask(cellMask & ALL_CELLS);
+    }
+
+    /**
+     * Creates an independent grid in the same state. Every card is copied, sharing its effects
+     * with the original, and the copy is not attached to an undo log.
+     *
+     * @return the copy
+     * @throws IllegalStateException if a card in the grid is not a {@link CardImpl}
+     */
+    public GridImpl fork() {
+        GridImpl copy = new GridImpl();
+        Map<Card, Card> copies = new IdentityHashMap<>();
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            int index = Integer.numberOfTrailingZeros(mask);
+            Card card = cards[index];
+            if (!(card instanceof CardImpl)) {
+                throw new IllegalStateException("Card " + card.state() + " cannot be copied");
+            }
+            copy.cards[index] = copies.computeIfAbsent(card, original -> ((CardImpl) original).copy());
+        }
+        for (Map.Entry<Card, GridPosition> entry : positions.entrySet()) {
+            copy.positions.put(copies.get(entry.getKey()), entry.getValue());
+        }
+        copy.occupied = occupied;
+        copy.activatedThisTurn = activatedThisTurn;
+        copy.activationPattern = activationPattern;
+        return copy;
+    }
+
+    /**
+     * Records changes of this grid and of its cards in the log from now on.
+     * Cards placed later are attached to the log when they are placed.
+     *
+     * @param log the log, or null to stop recording
+     * @throws IllegalStateException if a card in the grid is not a {@link CardImpl}
+     */
+    public void setUndoLog(final UndoLog log) {
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            Card card = cards[Integer.numberOfTrailingZeros(mask)];
+            if (!(card instanceof CardImpl)) {
+                throw new IllegalStateException("Card " + card.state() + " cannot be undone");
+            }
+            ((CardImpl) card).setUndoLog(log);
+        }
+        this.undoLog = log;
+    }
+
+    /**
+     * Reverts a recorded change: removes a placed card or restores a cell mask.
+     *
+     * @param key   cell index of a placed card, or the mask that changed
+     * @param value previous mask, or 1 if the placed card was already indexed at another cell
+     * @param ref   the placed card
+     */
+    @Override
+    public void undo(final int key, final long value, final Object ref) {
+        switch (key) {
+            case ACTIVATED:
+                restoreActivatedMask((int) value);
+                break;
+            case PATTERN:
+                restorePatternMask((int) value);
+                break;
+            default:
+                if (zobrist != null) {
+                    hashCard(key, null);
+                }
+                cards[key] = null;
+                occupied &= ~(1 << key);
+                if (value == 0) {
+                    positions.remove(ref);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Writes the occupied cell mask, the cards in cell order, and the activated and pattern masks.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if a card cannot be snapshotted
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        out.putVarint(occupied);
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            Card card = cards[Integer.numberOfTrailingZeros(mask)];
+            if (!(card instanceof Snapshotable)) {
+                throw new IllegalStateException("Card " + card.state() + " cannot be snapshotted");
+            }
+            ((Snapshotable) card).writeSnapshot(out);
+        }
+        out.putVarint(activatedThisTurn);
+        out.putVarint(activationPattern);
+    }
+
+    /**
+     * Restores a grid written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in      the snapshot
+     * @param catalog catalog of the cards in the grid
+     * @return the restored grid
+     * @throws IllegalArgumentException if the snapshot is malformed
+     */
+    public static GridImpl readSnapshot(final SnapshotReader in, final CardCatalog catalog) {
+        GridImpl grid = new GridImpl();
+        int cells = in.getVarint(ALL_CELLS + 1);
+        for (int mask = cells; mask != 0; mask &= mask - 1) {
+            grid.putCard(GridPosition.ofIndex(Integer.numberOfTrailingZeros(mask)),
+                    CardImpl.readSnapshot(in, catalog));
         }
-        setActivationPattern(logicalPattern);
+        grid.activatedThisTurn = in.getVarint(ALL_CELLS + 1);
+        grid.activationPattern = in.getVarint(ALL_CELLS + 1);
+        return grid;
     }
 }
@@ -1,4 +1,114 @@
 package sk.uniba.fmph.dcs.terra_futura.grid;
 
+/**
+ * Position of a card in a player's grid.
+ * <p>
+ * Cards are placed relative to the starting card at (0, 0) and the finished grid is 3x3,
+ * so every card lies within {@link #MIN_COORDINATE}..{@link #MAX_COORDINATE} on both axes.
+ * Positions inside this area are numbered row-major by {@link #index()}, which lets grids
+ * store cells in plain arrays and sets of cells in int bitmasks (bit i stands for cell i, see {@link #bit()}).
+ *
+ * @param x column of the position
+ * @param y row of the position
+ */
 public record GridPosition(int x, int y) {
+
+    public static final int MIN_COORDINATE = -2;
+    public static final int MAX_COORDINATE = 2;
+    public static final int SIDE = MAX_COORDINATE - MIN_COORDINATE + 1;
+    public static final int CELL_COUNT = SIDE * SIDE;
+
+    private static final GridPosition[] CELLS = new GridPosition[CELL_COUNT];
+    // Cells sharing a row or a column with the cell, including the cell itself
+    private static final int[] LINE_MASKS = new int[CELL_COUNT];
+
+    static {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            CELLS[i] = new GridPosition(i % SIDE + MIN_COORDINATE, i / SIDE + MIN_COORDINATE);
+        }
+        for (int i = 0; i < CELL_COUNT; i++) {
+            for (int j = 0; j < CELL_COUNT; j++) {
+                if (CELLS[i].x() == CELLS[j].x() || CELLS[i].y() == CELLS[j].y()) {
+                    LINE_MASKS[i] |= 1 << j;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cell index of the given coordinates.
+     *
+     * @param x column
+     * @param y row
+     * @return row-major index in 0..{@link #CELL_COUNT}-1, or -1 if the coordinates lie outside the grid area
+     */
+    public static int index(final int x, final int y) {
+        if (x < MIN_COORDINATE || x > MAX_COORDINATE || y < MIN_COORDINATE || y > MAX_COORDINATE) {
+            return -1;
+        }
+        return (y - MIN_COORDINATE) * SIDE + (x - MIN_COORDINATE);
+    }
+
+    /**
+     * Returns the cell index of this position.
+     *
+     * @return row-major index in 0..{@link #CELL_COUNT}-1, or -1 if the position lies outside the grid area
+     */
+    public int index() {
+        return index(x, y);
+    }
+
+    /**
+     * Returns the bit of the given coordinates in a cell bitmask.
+     *
+     * @param x column
+     * @param y row
+     * @return {@code 1 << index(x, y)}, or 0 if the coordinates lie outside the grid area
+     */
+    public static int bit(final int x, final int y) {
+        int index = index(x, y);
+        return index < 0 ? 0 : 1 << index;
+    }
+
+    /**
+     * Returns the bit of this position in a cell bitmask.
+     *
+     * @return {@code 1 << index()}, or 0 if the position lies outside the grid area
+     */
+    public int bit() {
+        return bit(x, y);
+    }
+
+    /**
+     * Returns the cells in the same row or column as this position, including the position itself.
+     *
+     * @return cell bitmask of the row and column, or 0 if the position lies outside the grid area
+     */
+    public int lineMask() {
+        int index = index();
+        return index < 0 ? 0 : LINE_MASKS[index];
+    }
+
+    /**
+     * Returns the shared position instance of a cell index.
+     *
+     * @param index cell index as returned by {@link #index()}
+     * @return the position of the cell
+     * @throws IndexOutOfBoundsException if the index is not a valid cell index
+     */
+    public static GridPosition ofIndex(final int index) {
+        return CELLS[index];
+    }
+
+    /**
+     * Returns the position of the given coordinates, the shared instance if it lies inside the grid area.
+     *
+     * @param x column
+     * @param y row
+     * @return the position
+     */
+    public static GridPosition of(final int x, final int y) {
+        int index = index(x, y);
+        return index >= 0 ? CELLS[index] : new GridPosition(x, y);
+    }
 }
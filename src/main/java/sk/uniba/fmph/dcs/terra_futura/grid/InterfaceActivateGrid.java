@@ -4,4 +4,16 @@ import java.util.Collection;
 import java.util.AbstractMap.SimpleEntry;
 public interface InterfaceActivateGrid {
     void setActivationPattern(Collection<SimpleEntry<Integer, Integer>> pattern);
+
+    /**
+     * Sets the activation pattern given as a bitmask of cells (see {@link GridPosition#bit()}).
+     * The coordinate pairs describe the same pattern; grids that do not work with bitmasks
+     * receive them through {@link #setActivationPattern(Collection)}, which is the default.
+     *
+     * @param cellMask bitmask of the cells in the pattern
+     * @param pattern  the same pattern as (x, y) coordinate pairs
+     */
+    default void setActivationPattern(int cellMask, Collection<SimpleEntry<Integer, Integer>> pattern) {
+        setActivationPattern(pattern);
+    }
 }
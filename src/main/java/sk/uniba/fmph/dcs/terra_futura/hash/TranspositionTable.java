@@ -0,0 +1,85 @@
+package sk.uniba.fmph.dcs.terra_futura.hash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded table of 64-bit values keyed by position hashes, shared by search threads without locks.
+ * <p>
+ * Every entry is two longs: the value and the hash XOR the value. A reader accepts an entry only if
+ * the two words XOR to the hash it looks for, so an entry torn by concurrent writers, or one holding
+ * another position, reads as a miss instead of returning a wrong value. Words are accessed atomically
+ * but without ordering, which is all the check needs. The table has a power-of-two number of entries
+ * indexed by the low bits of the hash, and a store always replaces the entry it maps to.
+ */
+public final class TranspositionTable {
+
+    /**
+     * Value returned for positions not in the table; it cannot be stored.
+     */
+    public static final long NOT_FOUND = Long.MIN_VALUE;
+
+    // Largest power of two whose entries fit in one array of words
+    private static final int MAX_CAPACITY = 0x20000000;
+
+    private final AtomicLongArray words;
+    private final int mask;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param capacity minimal number of entries, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or above 2<sup>29</sup>
+     */
+    public TranspositionTable(final int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        int entries = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.words = new AtomicLongArray(2 * entries);
+        this.mask = entries - 1;
+        clear();
+    }
+
+    /**
+     * Stores a value for a position, replacing whatever the entry held.
+     *
+     * @param hash  hash of the position
+     * @param value the value
+     * @throws IllegalArgumentException if the value is {@link #NOT_FOUND}
+     */
+    public void put(final long hash, final long value) {
+        if (value == NOT_FOUND) {
+            throw new IllegalArgumentException("NOT_FOUND cannot be stored");
+        }
+        int entry = 2 * ((int) hash & mask);
+        words.setOpaque(entry, hash ^ value);
+        words.setOpaque(entry + 1, value);
+    }
+
+    /**
+     * Looks up the value of a position.
+     *
+     * @param hash hash of the position
+     * @return the stored value, or {@link #NOT_FOUND}
+     */
+    public long get(final long hash) {
+        int entry = 2 * ((int) hash & mask);
+        long check = words.getOpaque(entry);
+        long value = words.getOpaque(entry + 1);
+        return (check ^ value) == hash ? value : NOT_FOUND;
+    }
+
+    /**
+     * Empties the table. Concurrent stores may survive.
+     */
+    public void clear() {
+        // An entry holding NOT_FOUND reads as a miss whatever its check word is
+        for (int entry = 0; entry <= mask; entry++) {
+            words.setOpaque(2 * entry + 1, NOT_FOUND);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,187 @@
+package sk.uniba.fmph.dcs.terra_futura.hash;
+
+/**
+ * Zobrist keys of the features of a game position.
+ * <p>
+ * Instead of tables of random numbers, the key of a feature is its packed coordinates passed
+ * through the SplitMix64 finalizer. The finalizer is a bijection with good avalanche, so distinct
+ * features get distinct, effectively random keys, and no table has to be sized for the number of
+ * cards or players. The hash of a position is the XOR of the keys of its features, so a change
+ * toggles the keys of the features that appeared and disappeared.
+ */
+public final class Zobrist {
+
+    // Kinds of features, kept in the top byte of the packed coordinates
+    private static final int CARD = 1;
+    private static final int COUNT = 2;
+    private static final int ACTIVATED = 3;
+    private static final int PATTERN = 4;
+    private static final int VISIBLE = 5;
+    private static final int HIDDEN = 6;
+    private static final int TURN = 7;
+    private static final int STATE = 8;
+    private static final int PLAYER = 9;
+    private static final int PHASE = 10;
+    private static final int PENDING = 11;
+    private static final int REWARD = 12;
+
+    private static final int KIND_SHIFT = 56;
+    private static final int SLOT_SHIFT = 48;
+    private static final int CELL_SHIFT = 32;
+    private static final int RESOURCE_SHIFT = 24;
+    private static final long SLOT_MASK = 0xFFL;
+    private static final long CELL_MASK = 0xFFFFL;
+    private static final long VALUE_MASK = 0xFFFFFFFFL;
+    private static final long COUNT_MASK = 0xFFFFFFL;
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MIX1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX2 = 0x94D049BB133111EBL;
+    private static final int SHIFT1 = 30;
+    private static final int SHIFT2 = 27;
+    private static final int SHIFT3 = 31;
+
+    private Zobrist() {
+    }
+
+    private static long key(final int kind, final int slot, final int cell, final long value) {
+        long z = SEED + ((long) kind << KIND_SHIFT ^ (slot & SLOT_MASK) << SLOT_SHIFT
+                ^ (cell & CELL_MASK) << CELL_SHIFT ^ value & VALUE_MASK);
+        z = (z ^ z >>> SHIFT1) * MIX1;
+        z = (z ^ z >>> SHIFT2) * MIX2;
+        return z ^ z >>> SHIFT3;
+    }
+
+    /**
+     * Key of a card lying on a grid cell.
+     *
+     * @param slot      index of the player owning the grid
+     * @param cell      cell index
+     * @param catalogId catalog ID of the card
+     * @return the key
+     */
+    public static long card(final int slot, final int cell, final int catalogId) {
+        return key(CARD, slot, cell, catalogId);
+    }
+
+    /**
+     * Key of the number of resources of one kind on a card lying on a grid cell.
+     * Absent resources have no key, so a card only contributes the kinds it holds.
+     *
+     * @param slot  index of the player owning the grid
+     * @param cell  cell index
+     * @param kind  ordinal of the resource
+     * @param count number of resources, below 2<sup>24</sup>
+     * @return the key, or 0 for no resources
+     */
+    public static long count(final int slot, final int cell, final int kind, final int count) {
+        return count == 0 ? 0 : key(COUNT, slot, cell, (long) kind << RESOURCE_SHIFT | count & COUNT_MASK);
+    }
+
+    /**
+     * Key of a cell activated this turn.
+     *
+     * @param slot index of the player owning the grid
+     * @param cell cell index
+     * @return the key
+     */
+    public static long activated(final int slot, final int cell) {
+        return key(ACTIVATED, slot, cell, 0);
+    }
+
+    /**
+     * Key of a cell in the activation pattern.
+     *
+     * @param slot index of the player owning the grid
+     * @param cell cell index
+     * @return the key
+     */
+    public static long pattern(final int slot, final int cell) {
+        return key(PATTERN, slot, cell, 0);
+    }
+
+    /**
+     * Key of a card at a position of the visible row of a deck.
+     *
+     * @param deck ordinal of the deck
+     * @param position index in the visible row
+     * @param catalogId catalog ID of the card
+     * @return the key
+     */
+    public static long visible(final int deck, final int position, final int catalogId) {
+        return key(VISIBLE, deck, position, catalogId);
+    }
+
+    /**
+     * Key of the number of hidden cards in a deck.
+     *
+     * @param deck ordinal of the deck
+     * @param size number of hidden cards
+     * @return the key
+     */
+    public static long hidden(final int deck, final int size) {
+        return key(HIDDEN, deck, 0, size);
+    }
+
+    /**
+     * Key of the turn number.
+     *
+     * @param turn the turn number
+     * @return the key
+     */
+    public static long turn(final int turn) {
+        return key(TURN, 0, 0, turn);
+    }
+
+    /**
+     * Key of the state of the game.
+     *
+     * @param state ordinal of the state
+     * @return the key
+     */
+    public static long state(final int state) {
+        return key(STATE, 0, 0, state);
+    }
+
+    /**
+     * Key of the player on turn.
+     *
+     * @param slot index of the player
+     * @return the key
+     */
+    public static long player(final int slot) {
+        return key(PLAYER, slot, 0, 0);
+    }
+
+    /**
+     * Key of the phases of the game that have started.
+     *
+     * @param phases flags of the started phases
+     * @return the key
+     */
+    public static long phase(final int phases) {
+        return key(PHASE, 0, 0, phases);
+    }
+
+    /**
+     * Key of a selection a player still has to make.
+     *
+     * @param slot      index of the player
+     * @param selection which selection is pending
+     * @return the key
+     */
+    public static long pending(final int slot, final int selection) {
+        return key(PENDING, slot, 0, selection);
+    }
+
+    /**
+     * Key of a resource offered as a reward to a player.
+     *
+     * @param player ID of the player
+     * @param kind   ordinal of the resource
+     * @return the key
+     */
+    public static long reward(final int player, final int kind) {
+        return key(REWARD, 0, kind, player);
+    }
+}
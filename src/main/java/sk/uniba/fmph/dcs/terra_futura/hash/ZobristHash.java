@@ -0,0 +1,25 @@
+package sk.uniba.fmph.dcs.terra_futura.hash;
+
+/**
+ * Running Zobrist hash shared by the parts of one game.
+ * Grids, cards and the pile attached to it toggle the {@link Zobrist} keys of the features they
+ * change, so the hash follows the position in constant time per change. It is not thread-safe,
+ * like the game it belongs to.
+ */
+public final class ZobristHash {
+
+    private long value;
+
+    /**
+     * Adds a feature that was absent, or removes one that was present.
+     *
+     * @param key the key of the feature, or the XOR of several keys
+     */
+    public void toggle(final long key) {
+        value ^= key;
+    }
+
+    public long value() {
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+
+/**
+ * Receives the outcome of every command processed by a {@link CommandPipeline}.
+ */
+@FunctionalInterface
+public interface CommandListener {
+
+    /**
+     * Called on the worker thread before a command is applied to a hosted game, for example to
+     * record it ahead of the change. A refused command is not applied and is reported to
+     * {@link #onResult(GameCommand, ActionResult)} as {@link ActionResult#NOT_RECORDED}.
+     *
+     * @param command the command about to be applied
+     * @return true to apply the command, false to refuse it
+     */
+    default boolean beforeApply(final GameCommand command) {
+        return true;
+    }
+
+    /**
+     * Called on the worker thread right after the command was applied to its game.
+     * The command slot is reused once the call returns, so anything needed later must be copied.
+     *
+     * @param command the processed command
+     * @param result  outcome of the command
+     */
+    void onResult(GameCommand command, ActionResult result);
+}
@@ -0,0 +1,312 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated ring of {@link GameCommand} slots between threads decoding player commands
+ * and worker threads applying them to games.
+ * <p>
+ * Producers claim a sequence with {@link #next()} or {@link #tryNext()}, fill the slot returned by
+ * {@link #get(long)} and make it visible with {@link #publish(long)}. Claiming is a single atomic
+ * increment and a slot is reused only after every worker has passed it, so publishing neither
+ * locks nor allocates. Every worker reads the whole ring in batches of all published commands and
+ * applies those of the games in its partition ({@code gameId mod workers}), so each game is
+ * only ever touched by one thread. The {@link CommandListener} sees every command of a hosted
+ * game before it is applied and receives every result. A command or listener call that throws is
+ * counted by {@link #getFailureCount()} and the worker goes on with the next command.
+ */
+public final class CommandPipeline implements AutoCloseable {
+
+    private static final int SPINS_BEFORE_PARKING = 1000;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // Worker sequences are this many longs apart, one cache line, so workers do not contend on a line
+    private static final int SEQUENCE_STRIDE = 8;
+
+    private final GameCommand[] slots;
+    private final int mask;
+    private final int shift;
+    // Round of the sequence last published into each slot
+    private final AtomicIntegerArray published;
+    // Highest claimed sequence
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final Worker[] workers;
+    // Highest sequence processed by each worker, at index worker * SEQUENCE_STRIDE
+    private final AtomicLongArray workerSequences;
+    private final Map<Integer, TerraFuturaInterface> games = new ConcurrentHashMap<>();
+    private final CommandListener listener;
+    // Commands and listener calls that threw
+    private final AtomicLong failures = new AtomicLong();
+    // Lower bound of the slowest worker's sequence, refreshed when producers catch up with it
+    private volatile long gatingSequence = -1;
+    private volatile boolean running;
+
+    /**
+     * Creates a pipeline; workers are started by {@link #start()}.
+     *
+     * @param capacity    number of slots, a power of two
+     * @param workerCount number of worker threads
+     * @param listener    receiver of command results
+     * @throws IllegalArgumentException if the capacity is not a power of two or there is no worker
+     */
+    public CommandPipeline(final int capacity, final int workerCount, final CommandListener listener) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.slots = new GameCommand[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new GameCommand();
+        }
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.workerSequences = new AtomicLongArray(workerCount * SEQUENCE_STRIDE);
+        for (int i = 0; i < workerCount; i++) {
+            workerSequences.set(i * SEQUENCE_STRIDE, -1);
+        }
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Registers a game whose commands the pipeline should apply.
+     *
+     * @param gameId ID of the game
+     * @param game   the game
+     * @throws IllegalArgumentException if a game with the same ID is already registered
+     */
+    public void addGame(final int gameId, final TerraFuturaInterface game) {
+        if (games.putIfAbsent(gameId, game) != null) {
+            throw new IllegalArgumentException("Game " + gameId + " is already hosted");
+        }
+    }
+
+    /**
+     * Unregisters a game; its later commands are answered with {@link ActionResult#UNKNOWN_GAME}.
+     *
+     * @param gameId ID of the game
+     * @return true if the game was registered
+     */
+    public boolean removeGame(final int gameId) {
+        return games.remove(gameId) != null;
+    }
+
+    /**
+     * Starts the worker threads.
+     *
+     * @throws IllegalStateException if the pipeline was already started
+     */
+    public synchronized void start() {
+        if (running || workers[0].thread.getState() != Thread.State.NEW) {
+            throw new IllegalStateException("Pipeline was already started");
+        }
+        running = true;
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full.
+     *
+     * @return sequence of the claimed slot
+     */
+    public long next() {
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        while (wrapPoint > gatingSequence) {
+            long slowest = slowestWorker();
+            gatingSequence = slowest;
+            if (wrapPoint > slowest) {
+                Thread.onSpinWait();
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Claims the next slot if the ring is not full.
+     *
+     * @return sequence of the claimed slot, or -1 if the ring is full
+     */
+    public long tryNext() {
+        while (true) {
+            long current = cursor.get();
+            long sequence = current + 1;
+            if (sequence - slots.length > gatingSequence) {
+                long slowest = slowestWorker();
+                gatingSequence = slowest;
+                if (sequence - slots.length > slowest) {
+                    return -1;
+                }
+            }
+            if (cursor.compareAndSet(current, sequence)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of a claimed sequence to be filled before publishing.
+     *
+     * @param sequence sequence returned by {@link #next()} or {@link #tryNext()}
+     * @return the command slot
+     */
+    public GameCommand get(final long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a filled slot visible to the workers.
+     *
+     * @param sequence sequence of the filled slot
+     */
+    public void publish(final long sequence) {
+        published.set((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    private boolean isPublished(final long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    private long slowestWorker() {
+        long slowest = Long.MAX_VALUE;
+        for (int i = 0; i < workers.length; i++) {
+            slowest = Math.min(slowest, workerSequences.get(i * SEQUENCE_STRIDE));
+        }
+        return slowest;
+    }
+
+    /**
+     * Applies a command to its game.
+     *
+     * @param command the command
+     * @return outcome of the command
+     */
+    private ActionResult execute(final GameCommand command) {
+        TerraFuturaInterface game = games.get(command.getGameId());
+        if (game == null) {
+            return ActionResult.UNKNOWN_GAME;
+        }
+        if (!listener.beforeApply(command)) {
+            return ActionResult.NOT_RECORDED;
+        }
+        return command.applyTo(game);
+    }
+
+    /**
+     * Returns how many commands and listener calls threw since the pipeline was created.
+     * A command that threw is reported to the listener as {@link ActionResult#REJECTED}.
+     *
+     * @return number of failures
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Stops the workers after they process every command published so far.
+     * Like {@link GameHost#close()}, it keeps waiting when interrupted and then restores the
+     * interrupt status of the calling thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+            while (worker.thread.isAlive()) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Consumer of one partition of the games.
+     */
+    private final class Worker implements Runnable {
+        private final int index;
+        private final Thread thread;
+
+        Worker(final int index) {
+            this.index = index;
+            this.thread = new Thread(this, "command-worker-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = workerSequences.get(index * SEQUENCE_STRIDE) + 1;
+            int idle = 0;
+            while (true) {
+                long available = next - 1;
+                while (isPublished(available + 1)) {
+                    available++;
+                }
+                if (available >= next) {
+                    for (long s = next; s <= available; s++) {
+                        GameCommand command = get(s);
+                        if (Math.floorMod(command.getGameId(), workers.length) == index) {
+                            process(command);
+                        }
+                    }
+                    workerSequences.set(index * SEQUENCE_STRIDE, available);
+                    next = available + 1;
+                    idle = 0;
+                } else if (!running && next > cursor.get()) {
+                    return;
+                } else if (idle++ < SPINS_BEFORE_PARKING) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+        }
+
+        /**
+         * Applies a command and reports its result. Anything thrown is counted rather than
+         * propagated, because a worker that stopped would never release its slots and every
+         * producer would wait for it.
+         *
+         * @param command the command
+         */
+        private void process(final GameCommand command) {
+            ActionResult result;
+            try {
+                result = execute(command);
+            } catch (Throwable e) {
+                failures.incrementAndGet();
+                result = ActionResult.REJECTED;
+            }
+            try {
+                listener.onResult(command, result);
+            } catch (Throwable e) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Single writer of one hosted game.
+ * Commands are queued in a mailbox and run one after another by at most one task
+ * on the executor at a time, so the game itself needs no synchronization.
+ * A drain task is scheduled only when the mailbox goes from idle to busy.
+ */
+final class GameActor {
+
+    private final TerraFuturaInterface game;
+    private final Executor executor;
+    private final Queue<Command<?>> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    GameActor(final TerraFuturaInterface game, final Executor executor) {
+        this.game = game;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a command for the game.
+     *
+     * @param command the command to run against the game
+     * @param <T>     type of the command result
+     * @return future completed with the result of the command, or exceptionally with whatever it threw
+     */
+    <T> CompletableFuture<T> submit(final Function<TerraFuturaInterface, T> command) {
+        Command<T> queued = new Command<>(command);
+        mailbox.add(queued);
+        schedule();
+        return queued.result;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The host is closed, nothing will run the queued commands
+                Command<?> command;
+                while ((command = mailbox.poll()) != null) {
+                    command.result.completeExceptionally(e);
+                }
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Command<?> command;
+            while ((command = mailbox.poll()) != null) {
+                command.run(game);
+            }
+        } finally {
+            scheduled.set(false);
+            // A command queued after the last poll but before the flag was cleared found the actor scheduled
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Queued command together with the future of its result.
+     *
+     * @param <T> type of the command result
+     */
+    private static final class Command<T> {
+        private final Function<TerraFuturaInterface, T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Command(final Function<TerraFuturaInterface, T> action) {
+            this.action = action;
+        }
+
+        void run(final TerraFuturaInterface game) {
+            try {
+                result.complete(action.apply(game));
+            } catch (Throwable e) {
+                // Errors too, so the future completes and the actor keeps draining
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+/**
+ * Mutable slot of the {@link CommandPipeline} ring holding one decoded player command.
+ * Slots are allocated once with the ring and overwritten by every command published into them,
+ * including the {@link ActivationRequest} of activations, so publishing does not allocate.
+ * Only the fields used by the command's {@link Type} are meaningful.
+ */
+public final class GameCommand {
+
+    /**
+     * Kind of a command, one per method of {@link TerraFuturaInterface}.
+     */
+    public enum Type {
+        TAKE_CARD,
+        DISCARD_LAST_CARD,
+        ACTIVATE_CARD,
+        SELECT_REWARD,
+        TURN_FINISHED,
+        SELECT_ACTIVATION_PATTERN,
+        SELECT_SCORING
+    }
+
+    private Type type;
+    private int gameId;
+    private int playerId;
+    private Deck deck;
+    private int index;
+    private GridPosition position;
+    private Resource resource;
+    private final ActivationRequest activation = new ActivationRequest();
+
+    private GameCommand set(final Type newType, final int newGameId, final int newPlayerId) {
+        this.type = newType;
+        this.gameId = newGameId;
+        this.playerId = newPlayerId;
+        return this;
+    }
+
+    /**
+     * Makes this a take card command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @param newDeck     deck of the card
+     * @param cardIndex   index of the card in the deck
+     * @param destination grid position to place card
+     * @return this command
+     */
+    public GameCommand takeCard(final int newGameId, final int newPlayerId, final Deck newDeck,
+            final int cardIndex, final GridPosition destination) {
+        this.deck = newDeck;
+        this.index = cardIndex;
+        this.position = destination;
+        return set(Type.TAKE_CARD, newGameId, newPlayerId);
+    }
+
+    /**
+     * Makes this a discard command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @param newDeck     deck to discard from
+     * @return this command
+     */
+    public GameCommand discardLastCard(final int newGameId, final int newPlayerId, final Deck newDeck) {
+        this.deck = newDeck;
+        return set(Type.DISCARD_LAST_CARD, newGameId, newPlayerId);
+    }
+
+    /**
+     * Makes this an activation command and returns its cleared request to be filled by the caller.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @return the activation request of this slot
+     */
+    public ActivationRequest activateCard(final int newGameId, final int newPlayerId) {
+        set(Type.ACTIVATE_CARD, newGameId, newPlayerId);
+        return activation.clear();
+    }
+
+    /**
+     * Makes this a reward selection command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @param reward      selected resource
+     * @return this command
+     */
+    public GameCommand selectReward(final int newGameId, final int newPlayerId, final Resource reward) {
+        this.resource = reward;
+        return set(Type.SELECT_REWARD, newGameId, newPlayerId);
+    }
+
+    /**
+     * Makes this a turn finished command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @return this command
+     */
+    public GameCommand turnFinished(final int newGameId, final int newPlayerId) {
+        return set(Type.TURN_FINISHED, newGameId, newPlayerId);
+    }
+
+    /**
+     * Makes this an activation pattern selection command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @param card        card index for pattern
+     * @return this command
+     */
+    public GameCommand selectActivationPattern(final int newGameId, final int newPlayerId, final int card) {
+        this.index = card;
+        return set(Type.SELECT_ACTIVATION_PATTERN, newGameId, newPlayerId);
+    }
+
+    /**
+     * Makes this a scoring selection command.
+     *
+     * @param newGameId   ID of the game
+     * @param newPlayerId player identifier
+     * @param card        card index for scoring
+     * @return this command
+     */
+    public GameCommand selectScoring(final int newGameId, final int newPlayerId, final int card) {
+        this.index = card;
+        return set(Type.SELECT_SCORING, newGameId, newPlayerId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getGameId() {
+        return gameId;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * Returns the card index of take card and selection commands.
+     *
+     * @return index of the card
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public GridPosition getPosition() {
+        return position;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public ActivationRequest getActivation() {
+        return activation;
+    }
+
+    /**
+     * Applies the command to a game using the non-throwing variants of its methods.
+     * Methods returning a boolean report failure as {@link ActionResult#REJECTED}.
+     * A method that throws is not a rejection but a broken game, so the exception propagates.
+     *
+     * @param game the game of the command
+     * @return outcome of the command
+     */
+    public ActionResult applyTo(final TerraFuturaInterface game) {
+        switch (type) {
+            case TAKE_CARD:
+                return result(game.takeCard(playerId, CardSource.of(deck, index), position));
+            case DISCARD_LAST_CARD:
+                return result(game.discardLastCardInDeck(playerId, deck));
+            case ACTIVATE_CARD:
+                return game.tryActivateCard(playerId, activation);
+            case SELECT_REWARD:
+                return game.trySelectReward(playerId, resource);
+            case TURN_FINISHED:
+                return result(game.turnFinished(playerId));
+            case SELECT_ACTIVATION_PATTERN:
+                return result(game.selectActivationPattern(playerId, index));
+            case SELECT_SCORING:
+                return result(game.selectScoring(playerId, index));
+            default:
+                return ActionResult.REJECTED;
+        }
+    }
+
+    /**
+     * Applies the command the way {@link CommandPipeline} applied it when it was journaled:
+     * a method that throws is reported as {@link ActionResult#REJECTED}, so replaying the
+     * commands of a game reaches the state the live game reached.
+     *
+     * @param game the game of the command
+     * @return outcome of the command
+     */
+    public ActionResult replayOn(final TerraFuturaInterface game) {
+        try {
+            return applyTo(game);
+        } catch (RuntimeException e) {
+            return ActionResult.REJECTED;
+        }
+    }
+
+    private static ActionResult result(final boolean success) {
+        return success ? ActionResult.OK : ActionResult.REJECTED;
+    }
+}
@@ -0,0 +1,205 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Hosts many games, each addressed by its game ID.
+ * <p>
+ * Every game is owned by an actor with its own mailbox: commands for one game run strictly
+ * one after another in submission order, while different games run in parallel on virtual threads.
+ * Games are therefore never accessed concurrently and need no locking.
+ * Every method of {@link TerraFuturaInterface} is available asynchronously; the returned future
+ * completes with the method's result or exceptionally with the exception it threw.
+ * Arguments must not be modified until the future completes.
+ * Activations are submitted as {@link ActivationRequest}s; the list-based activation methods
+ * can be run through {@link #submit(int, Function)}.
+ */
+public final class GameHost implements AutoCloseable {
+
+    private final Map<Integer, GameActor> games = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * Creates a host running games on virtual threads.
+     */
+    public GameHost() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Creates a host running games on the given executor.
+     *
+     * @param executor executor running the game actors; closed together with the host
+     */
+    public GameHost(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts hosting a game.
+     *
+     * @param gameId ID of the game
+     * @param game   the game
+     * @throws IllegalArgumentException if a game with the same ID is already hosted
+     */
+    public void addGame(final int gameId, final TerraFuturaInterface game) {
+        if (games.putIfAbsent(gameId, new GameActor(game, executor)) != null) {
+            throw new IllegalArgumentException("Game " + gameId + " is already hosted");
+        }
+    }
+
+    /**
+     * Stops hosting a game. Commands already submitted are still executed.
+     *
+     * @param gameId ID of the game
+     * @return true if the game was hosted
+     */
+    public boolean removeGame(final int gameId) {
+        return games.remove(gameId) != null;
+    }
+
+    public boolean hasGame(final int gameId) {
+        return games.containsKey(gameId);
+    }
+
+    /**
+     * Runs a command against a hosted game in its actor.
+     *
+     * @param gameId  ID of the game
+     * @param command the command
+     * @param <T>     type of the command result
+     * @return future with the result; fails with IllegalArgumentException if the game is not hosted
+     */
+    public <T> CompletableFuture<T> submit(final int gameId, final Function<TerraFuturaInterface, T> command) {
+        GameActor actor = games.get(gameId);
+        if (actor == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Game " + gameId + " is not hosted"));
+        }
+        return actor.submit(command);
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#takeCard(int, CardSource, GridPosition)}.
+     *
+     * @param gameId      ID of the game
+     * @param playerId    player identifier
+     * @param source      card source (deck and index)
+     * @param destination grid position to place card
+     * @return future with the result of the call
+     */
+    public CompletableFuture<Boolean> takeCard(final int gameId, final int playerId, final CardSource source,
+            final GridPosition destination) {
+        return submit(gameId, game -> game.takeCard(playerId, source, destination));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#discardLastCardInDeck(int, Deck)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param deck     deck to discard from
+     * @return future with the result of the call
+     */
+    public CompletableFuture<Boolean> discardLastCardInDeck(final int gameId, final int playerId, final Deck deck) {
+        return submit(gameId, game -> game.discardLastCardInDeck(playerId, deck));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#tryActivateCard(int, ActivationRequest)}.
+     * The request can be reused once the future completes.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param request  the encoded activation
+     * @return future with the result of the call
+     */
+    public CompletableFuture<ActionResult> tryActivateCard(final int gameId, final int playerId,
+            final ActivationRequest request) {
+        return submit(gameId, game -> game.tryActivateCard(playerId, request));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#selectReward(int, Resource)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param resource selected resource as reward
+     * @return future completed when the reward is selected
+     */
+    public CompletableFuture<Void> selectReward(final int gameId, final int playerId, final Resource resource) {
+        return submit(gameId, game -> {
+            game.selectReward(playerId, resource);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#trySelectReward(int, Resource)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param resource selected resource as reward
+     * @return future with the result of the call
+     */
+    public CompletableFuture<ActionResult> trySelectReward(final int gameId, final int playerId,
+            final Resource resource) {
+        return submit(gameId, game -> game.trySelectReward(playerId, resource));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#turnFinished(int)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @return future with the result of the call
+     */
+    public CompletableFuture<Boolean> turnFinished(final int gameId, final int playerId) {
+        return submit(gameId, game -> game.turnFinished(playerId));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#selectActivationPattern(int, int)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param card     card index for pattern
+     * @return future with the result of the call
+     */
+    public CompletableFuture<Boolean> selectActivationPattern(final int gameId, final int playerId, final int card) {
+        return submit(gameId, game -> game.selectActivationPattern(playerId, card));
+    }
+
+    /**
+     * Asynchronous {@link TerraFuturaInterface#selectScoring(int, int)}.
+     *
+     * @param gameId   ID of the game
+     * @param playerId player identifier
+     * @param card     card index for scoring
+     * @return future with the result of the call
+     */
+    public CompletableFuture<Boolean> selectScoring(final int gameId, final int playerId, final int card) {
+        return submit(gameId, game -> game.selectScoring(playerId, card));
+    }
+
+    /**
+     * Stops accepting work and waits for queued commands to finish.
+     */
+    @Override
+    public void close() {
+        games.clear();
+        executor.close();
+    }
+}
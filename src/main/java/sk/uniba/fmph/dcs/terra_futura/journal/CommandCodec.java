@@ -0,0 +1,181 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary form of a {@link GameCommand}.
+ * <p>
+ * Every command starts with its type, game ID and player ID. Enums are stored as ordinal bytes and
+ * cells of an activation as single bytes: an encoded movement of {@link ActivationRequest} is below 256.
+ */
+final class CommandCodec {
+
+    private static final GameCommand.Type[] TYPES = GameCommand.Type.values();
+    private static final Deck[] DECKS = Deck.values();
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int HEADER_BYTES = Byte.BYTES + 2 * Integer.BYTES;
+    // Deck, card index and both coordinates of the destination
+    private static final int TAKE_CARD_BYTES = Byte.BYTES + 3 * Integer.BYTES;
+    // Card cell, three movement counts and the assisting player
+    private static final int ACTIVATION_BYTES = 4 * Byte.BYTES + Integer.BYTES;
+    private static final int UNSIGNED_BYTE = 0xFF;
+    private static final int MAX_MOVEMENTS = UNSIGNED_BYTE;
+    private static final byte NO_CARD = -1;
+
+    private CommandCodec() {
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode(GameCommand, ByteBuffer)} writes.
+     *
+     * @param command the command
+     * @return encoded size in bytes
+     * @throws IllegalArgumentException if an activation has more than 255 inputs, outputs or pollution
+     */
+    static int size(final GameCommand command) {
+        switch (command.getType()) {
+            case TAKE_CARD:
+                return HEADER_BYTES + TAKE_CARD_BYTES;
+            case DISCARD_LAST_CARD:
+            case SELECT_REWARD:
+                return HEADER_BYTES + Byte.BYTES;
+            case ACTIVATE_CARD:
+                ActivationRequest request = command.getActivation();
+                if (request.getInputCount() > MAX_MOVEMENTS || request.getOutputCount() > MAX_MOVEMENTS
+                        || request.getPollutionCount() > MAX_MOVEMENTS) {
+                    throw new IllegalArgumentException("Activation is too large to be journaled");
+                }
+                int size = HEADER_BYTES + ACTIVATION_BYTES + request.getInputCount() + request.getOutputCount()
+                        + request.getPollutionCount();
+                return request.hasAssistance() ? size + Byte.BYTES : size;
+            case SELECT_ACTIVATION_PATTERN:
+            case SELECT_SCORING:
+                return HEADER_BYTES + Integer.BYTES;
+            default:
+                return HEADER_BYTES;
+        }
+    }
+
+    /**
+     * Writes the command at the position of the buffer.
+     *
+     * @param command the command
+     * @param buffer  target with at least {@link #size(GameCommand)} bytes remaining
+     */
+    static void encode(final GameCommand command, final ByteBuffer buffer) {
+        buffer.put((byte) command.getType().ordinal());
+        buffer.putInt(command.getGameId());
+        buffer.putInt(command.getPlayerId());
+        switch (command.getType()) {
+            case TAKE_CARD:
+                buffer.put((byte) command.getDeck().ordinal());
+                buffer.putInt(command.getIndex());
+                buffer.putInt(command.getPosition().x());
+                buffer.putInt(command.getPosition().y());
+                break;
+            case DISCARD_LAST_CARD:
+                buffer.put((byte) command.getDeck().ordinal());
+                break;
+            case ACTIVATE_CARD:
+                encodeActivation(command.getActivation(), buffer);
+                break;
+            case SELECT_REWARD:
+                buffer.put((byte) command.getResource().ordinal());
+                break;
+            case SELECT_ACTIVATION_PATTERN:
+            case SELECT_SCORING:
+                buffer.putInt(command.getIndex());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void encodeActivation(final ActivationRequest request, final ByteBuffer buffer) {
+        buffer.put(request.hasCard() ? (byte) request.getCard().index() : NO_CARD);
+        buffer.put((byte) request.getInputCount());
+        for (int i = 0; i < request.getInputCount(); i++) {
+            buffer.put((byte) request.getInput(i));
+        }
+        buffer.put((byte) request.getOutputCount());
+        for (int i = 0; i < request.getOutputCount(); i++) {
+            buffer.put((byte) request.getOutput(i));
+        }
+        buffer.put((byte) request.getPollutionCount());
+        for (int i = 0; i < request.getPollutionCount(); i++) {
+            buffer.put((byte) request.getPollution(i).index());
+        }
+        buffer.putInt(request.getAssistingPlayer());
+        if (request.hasAssistance()) {
+            buffer.put((byte) request.getAssistingCard().index());
+        }
+    }
+
+    /**
+     * Reads a command written by {@link #encode(GameCommand, ByteBuffer)} into a reusable command.
+     *
+     * @param buffer  source positioned at the command
+     * @param command command to overwrite
+     */
+    static void decode(final ByteBuffer buffer, final GameCommand command) {
+        GameCommand.Type type = TYPES[buffer.get()];
+        int gameId = buffer.getInt();
+        int playerId = buffer.getInt();
+        switch (type) {
+            case TAKE_CARD:
+                Deck deck = DECKS[buffer.get()];
+                int index = buffer.getInt();
+                int x = buffer.getInt();
+                command.takeCard(gameId, playerId, deck, index, GridPosition.of(x, buffer.getInt()));
+                break;
+            case DISCARD_LAST_CARD:
+                command.discardLastCard(gameId, playerId, DECKS[buffer.get()]);
+                break;
+            case ACTIVATE_CARD:
+                decodeActivation(buffer, command.activateCard(gameId, playerId));
+                break;
+            case SELECT_REWARD:
+                command.selectReward(gameId, playerId, RESOURCES[buffer.get()]);
+                break;
+            case TURN_FINISHED:
+                command.turnFinished(gameId, playerId);
+                break;
+            case SELECT_ACTIVATION_PATTERN:
+                command.selectActivationPattern(gameId, playerId, buffer.getInt());
+                break;
+            case SELECT_SCORING:
+                command.selectScoring(gameId, playerId, buffer.getInt());
+                break;
+            default:
+                throw new IllegalStateException("Unknown command type " + type);
+        }
+    }
+
+    private static void decodeActivation(final ByteBuffer buffer, final ActivationRequest request) {
+        byte card = buffer.get();
+        if (card != NO_CARD) {
+            request.card(GridPosition.ofIndex(card));
+        }
+        for (int i = buffer.get() & UNSIGNED_BYTE; i > 0; i--) {
+            int input = buffer.get() & UNSIGNED_BYTE;
+            request.input(ActivationRequest.resourceOf(input), ActivationRequest.positionOf(input));
+        }
+        for (int i = buffer.get() & UNSIGNED_BYTE; i > 0; i--) {
+            int output = buffer.get() & UNSIGNED_BYTE;
+            request.output(ActivationRequest.resourceOf(output), ActivationRequest.positionOf(output));
+        }
+        for (int i = buffer.get() & UNSIGNED_BYTE; i > 0; i--) {
+            request.pollution(GridPosition.ofIndex(buffer.get()));
+        }
+        int assistingPlayer = buffer.getInt();
+        if (assistingPlayer != ActivationRequest.NO_PLAYER) {
+            request.assistance(assistingPlayer, GridPosition.ofIndex(buffer.get()));
+        }
+    }
+}
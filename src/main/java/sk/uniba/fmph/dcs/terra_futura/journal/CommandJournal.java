@@ -0,0 +1,304 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of game commands in one file, written through memory-mapped segments.
+ * <p>
+ * The file starts with a header (magic, version, segment size) followed by records
+ * {@code [int length][command][int CRC32C of command]}. The length is written last, so a record
+ * becomes visible only when complete; a zero length ends the journal and {@code -1} marks the
+ * rest of a segment as unused because the next record did not fit.
+ * <p>
+ * Appending only copies the record into the mapped segment. Durability is decoupled:
+ * {@link #sync()} forces everything appended since the previous call at once, so one force
+ * commits the commands of all games written to the journal in the meantime (group commit).
+ * It is usually called periodically by a {@link GroupCommitter}; callers that must not
+ * acknowledge a command before it is durable wait with {@link #awaitDurable(long)}.
+ */
+public final class CommandJournal implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAGIC = 0x54464A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    // File offset of the current segment
+    private long segmentStart;
+    // File offset just after the last appended record
+    private long position;
+    // File offset up to which all records were forced to the storage
+    private long durable;
+
+    private CommandJournal(final FileChannel channel, final int segmentSize, final long position)
+            throws IOException {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.segmentStart = position - position % segmentSize;
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+        this.position = position;
+        this.durable = position;
+    }
+
+    /**
+     * Opens a journal with the default segment size, creating the file if needed.
+     *
+     * @param file journal file
+     * @return the journal positioned after its last valid record
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    public static CommandJournal open(final Path file) throws IOException {
+        return open(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a journal, creating the file if needed.
+     * An existing journal keeps the segment size it was created with. Anything after the last
+     * valid record, such as a record torn by a crash, is erased.
+     *
+     * @param file        journal file
+     * @param segmentSize size of the mapped segments of a new journal in bytes
+     * @return the journal positioned after its last valid record
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    public static CommandJournal open(final Path file, final int segmentSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+                header.putInt(MAGIC).putInt(VERSION).putInt(segmentSize);
+                header.force();
+                return new CommandJournal(channel, segmentSize, HEADER_SIZE);
+            }
+            int existingSegmentSize = readSegmentSize(channel);
+            long end = scan(channel, existingSegmentSize, command -> { });
+            CommandJournal journal = new CommandJournal(channel, existingSegmentSize, end);
+            journal.eraseTail();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int readSegmentSize(final FileChannel channel) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a command journal of version " + VERSION);
+        }
+        return header.getInt();
+    }
+
+    private void eraseTail() {
+        for (int offset = (int) (position - segmentStart); offset < segmentSize; offset++) {
+            segment.put(offset, (byte) 0);
+        }
+        segment.force();
+    }
+
+    /**
+     * Reads all valid records of a journal in order.
+     *
+     * @param file     journal file
+     * @param consumer receives every command; the instance is reused for the next record
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    public static void read(final Path file, final Consumer<GameCommand> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(channel, readSegmentSize(channel), consumer);
+        }
+    }
+
+    /**
+     * Rebuilds games by applying the commands of a journal to them.
+     * Games missing from the map are created by the factory when their first command is read,
+     * so the factory must recreate the game exactly as it was created originally.
+     *
+     * @param file        journal file
+     * @param games       games by ID, completed and updated in place
+     * @param gameFactory creates the initial state of a game from its ID
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    public static void recover(final Path file, final Map<Integer, TerraFuturaInterface> games,
+            final IntFunction<TerraFuturaInterface> gameFactory) throws IOException {
+        read(file, command -> command.replayOn(games.computeIfAbsent(command.getGameId(), gameFactory::apply)));
+    }
+
+    /**
+     * Walks the records of a journal.
+     *
+     * @param channel     the journal file
+     * @param segmentSize segment size from the header
+     * @param consumer    receives every valid command
+     * @return file offset just after the last valid record
+     */
+    private static long scan(final FileChannel channel, final int segmentSize,
+            final Consumer<GameCommand> consumer) throws IOException {
+        GameCommand command = new GameCommand();
+        CRC32C checksum = new CRC32C();
+        long size = channel.size();
+        long start = 0;
+        int offset = HEADER_SIZE;
+        while (start < size) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(segmentSize, size - start));
+            while (true) {
+                if (offset + Integer.BYTES > buffer.limit()) {
+                    return start + offset;
+                }
+                int length = buffer.getInt(offset);
+                if (length == END_OF_SEGMENT) {
+                    break;
+                }
+                int end = offset + Integer.BYTES + length;
+                if (length <= 0 || end + Integer.BYTES > buffer.limit()) {
+                    return start + offset;
+                }
+                checksum.reset();
+                checksum.update(buffer.limit(end).position(offset + Integer.BYTES));
+                buffer.limit(buffer.capacity());
+                if ((int) checksum.getValue() != buffer.getInt(end)) {
+                    return start + offset;
+                }
+                CommandCodec.decode(buffer.position(offset + Integer.BYTES), command);
+                consumer.accept(command);
+                offset = end + Integer.BYTES;
+            }
+            start += segmentSize;
+            offset = 0;
+        }
+        return start + offset;
+    }
+
+    /**
+     * Appends a command. The record is durable once {@link #sync()} has run after this call.
+     *
+     * @param command the command
+     * @return file offset just after the record, to be passed to {@link #awaitDurable(long)}
+     * @throws IllegalArgumentException if the command does not fit into a segment
+     * @throws UncheckedIOException     if the next segment cannot be mapped
+     */
+    public synchronized long append(final GameCommand command) {
+        int length = CommandCodec.size(command);
+        int recordSize = length + RECORD_OVERHEAD;
+        if (HEADER_SIZE + recordSize + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Command of " + length + " bytes does not fit into a segment");
+        }
+        int offset = (int) (position - segmentStart);
+        // Keep room for the end of segment marker
+        if (offset + recordSize + Integer.BYTES > segmentSize) {
+            nextSegment(offset);
+            offset = 0;
+        }
+        int end = offset + Integer.BYTES + length;
+        CommandCodec.encode(command, segment.position(offset + Integer.BYTES));
+        crc.reset();
+        crc.update(segment.limit(end).position(offset + Integer.BYTES));
+        segment.limit(segmentSize);
+        segment.putInt(end, (int) crc.getValue());
+        segment.putInt(offset, length);
+        position = segmentStart + end + Integer.BYTES;
+        return position;
+    }
+
+    /**
+     * Continues in a new segment. The current segment is ended only once the new one is mapped,
+     * so a failure leaves the journal as it was and a later append can try again.
+     *
+     * @param end offset in the current segment where the unused rest starts
+     */
+    private void nextSegment(final int end) {
+        MappedByteBuffer next;
+        try {
+            next = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart + segmentSize, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MappedByteBuffer previous = segment;
+        previous.putInt(end, END_OF_SEGMENT);
+        previous.force();
+        segment = next;
+        segmentStart += segmentSize;
+        position = segmentStart;
+        durable = segmentStart;
+        notifyAll();
+    }
+
+    /**
+     * Forces all records appended so far to the storage with a single force of the dirty range.
+     * Appends may continue meanwhile; they are committed by the next call.
+     */
+    public void sync() {
+        MappedByteBuffer target;
+        long start;
+        long end;
+        long from;
+        synchronized (this) {
+            end = position;
+            if (end <= durable) {
+                return;
+            }
+            target = segment;
+            start = segmentStart;
+            from = Math.max(durable, start);
+        }
+        target.force((int) (from - start), (int) (end - from));
+        synchronized (this) {
+            if (end > durable) {
+                durable = end;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the records up to the given offset are durable.
+     *
+     * @param offset offset returned by {@link #append(GameCommand)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitDurable(final long offset) throws InterruptedException {
+        while (durable < offset) {
+            wait();
+        }
+    }
+
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    public synchronized long getDurablePosition() {
+        return durable;
+    }
+
+    /**
+     * Forces the remaining records and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Recorded history of one game that can rebuild the game as it was after any command.
+ * <p>
+ * Commands are kept in their compact journal encoding and applied to a head game as they are
+ * appended. A snapshot of the head is stored as a checkpoint whenever the turn number changes and
+ * after every {@code interval} commands without one, so rebuilding a point in the history restores
+ * the nearest earlier checkpoint and applies fewer than {@code interval} commands.
+ * A replay is not thread-safe.
+ */
+public final class GameReplay {
+
+    /**
+     * Default maximal number of commands between two checkpoints.
+     */
+    public static final int DEFAULT_INTERVAL = 32;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_LOG_BYTES = 1024;
+
+    private final CardCatalog catalog;
+    private final int interval;
+    private final Game head;
+    private final GameCommand scratch = new GameCommand();
+
+    // Encoded commands; command i occupies offsets[i] until offsets[i + 1]
+    private byte[] log = new byte[INITIAL_LOG_BYTES];
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    private int commands;
+
+    // Checkpoint i is the game after checkpointCommands[i] commands, in turn checkpointTurns[i]
+    private ByteBuffer[] checkpoints = new ByteBuffer[INITIAL_CAPACITY];
+    private int[] checkpointCommands = new int[INITIAL_CAPACITY];
+    private int[] checkpointTurns = new int[INITIAL_CAPACITY];
+    private int checkpointCount;
+
+    /**
+     * Starts a history with the default checkpoint interval.
+     *
+     * @param initial game before the first command; it is not modified
+     * @param catalog catalog the cards of the game were created from
+     * @throws IllegalStateException if the game cannot be snapshotted
+     */
+    public GameReplay(final Game initial, final CardCatalog catalog) {
+        this(initial, catalog, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts a history.
+     *
+     * @param initial  game before the first command; it is not modified
+     * @param catalog  catalog the cards of the game were created from
+     * @param interval maximal number of commands between two checkpoints
+     * @throws IllegalArgumentException if the interval is not positive
+     * @throws IllegalStateException    if the game cannot be snapshotted
+     */
+    public GameReplay(final Game initial, final CardCatalog catalog, final int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.catalog = catalog;
+        this.interval = interval;
+        ByteBuffer start = initial.snapshot();
+        this.head = Game.restore(start.duplicate(), catalog);
+        addCheckpoint(start);
+    }
+
+    /**
+     * Reads the history of one game from a journal.
+     *
+     * @param file    journal file
+     * @param gameId  ID of the game
+     * @param initial game before its first command; it is not modified
+     * @param catalog catalog the cards of the game were created from
+     * @return the history of the game
+     * @throws IOException if the journal cannot be read
+     */
+    public static GameReplay fromJournal(final Path file, final int gameId, final Game initial,
+            final CardCatalog catalog) throws IOException {
+        GameReplay replay = new GameReplay(initial, catalog);
+        CommandJournal.read(file, command -> {
+            if (command.getGameId() == gameId) {
+                replay.append(command);
+            }
+        });
+        return replay;
+    }
+
+    /**
+     * Records a command and applies it to the latest state.
+     *
+     * @param command the command, which is copied
+     * @return outcome of the command
+     * @throws IllegalArgumentException if the command cannot be encoded
+     */
+    public ActionResult append(final GameCommand command) {
+        int size = CommandCodec.size(command);
+        int offset = offsets[commands];
+        if (offset + size > log.length) {
+            log = Arrays.copyOf(log, Math.max(log.length * 2, offset + size));
+        }
+        CommandCodec.encode(command, ByteBuffer.wrap(log, offset, size));
+        if (commands + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++commands] = offset + size;
+
+        int turn = head.getTurnNumber();
+        ActionResult result = command.replayOn(head);
+        if (head.getTurnNumber() != turn || commands - checkpointCommands[checkpointCount - 1] >= interval) {
+            addCheckpoint(head.snapshot());
+        }
+        return result;
+    }
+
+    private void addCheckpoint(final ByteBuffer snapshot) {
+        if (checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+            checkpointCommands = Arrays.copyOf(checkpointCommands, checkpointCount * 2);
+            checkpointTurns = Arrays.copyOf(checkpointTurns, checkpointCount * 2);
+        }
+        checkpoints[checkpointCount] = snapshot;
+        checkpointCommands[checkpointCount] = commands;
+        checkpointTurns[checkpointCount] = head.getTurnNumber();
+        checkpointCount++;
+    }
+
+    /**
+     * Rebuilds the game as it was after the given number of commands.
+     *
+     * @param count number of commands applied, between 0 and {@link #size()}
+     * @return a new game in that state
+     * @throws IllegalArgumentException if the count is out of range
+     */
+    public Game stateAfter(final int count) {
+        if (count < 0 || count > commands) {
+            throw new IllegalArgumentException("History has " + commands + " commands, not " + count);
+        }
+        int checkpoint = Arrays.binarySearch(checkpointCommands, 0, checkpointCount, count);
+        if (checkpoint < 0) {
+            checkpoint = -checkpoint - 2;
+        }
+        return replayFrom(checkpoint, count);
+    }
+
+    /**
+     * Rebuilds the game as it was when the given turn started.
+     *
+     * @param turn turn number
+     * @return a new game in that state
+     * @throws IllegalArgumentException if the game did not reach the turn
+     */
+    public Game stateAtTurn(final int turn) {
+        int checkpoint = Arrays.binarySearch(checkpointTurns, 0, checkpointCount, turn);
+        if (checkpoint < 0) {
+            throw new IllegalArgumentException("Turn " + turn + " was not reached");
+        }
+        // Several checkpoints may belong to one turn; the first one is where it started
+        while (checkpoint > 0 && checkpointTurns[checkpoint - 1] == turn) {
+            checkpoint--;
+        }
+        return replayFrom(checkpoint, checkpointCommands[checkpoint]);
+    }
+
+    private Game replayFrom(final int checkpoint, final int count) {
+        Game game = Game.restore(checkpoints[checkpoint].duplicate(), catalog);
+        for (int i = checkpointCommands[checkpoint]; i < count; i++) {
+            CommandCodec.decode(ByteBuffer.wrap(log, offsets[i], offsets[i + 1] - offsets[i]), scratch);
+            scratch.replayOn(game);
+        }
+        return game;
+    }
+
+    /**
+     * Returns the number of recorded commands.
+     *
+     * @return number of commands
+     */
+    public int size() {
+        return commands;
+    }
+
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+}
@@ -0,0 +1,76 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread committing journals at a fixed interval.
+ * Every round forces each journal once, covering all commands appended to it since the
+ * previous round, so the cost of a force is shared by all games writing to the journal.
+ */
+public final class GroupCommitter implements AutoCloseable {
+
+    private final List<CommandJournal> journals = new CopyOnWriteArrayList<>();
+    private final long intervalNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts the committer.
+     *
+     * @param interval time between commit rounds
+     * @param unit     unit of the interval
+     */
+    public GroupCommitter(final long interval, final TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        this.thread = new Thread(this::run, "journal-committer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void addJournal(final CommandJournal journal) {
+        journals.add(journal);
+    }
+
+    public void removeJournal(final CommandJournal journal) {
+        journals.remove(journal);
+    }
+
+    private void run() {
+        while (running) {
+            commit();
+            LockSupport.parkNanos(intervalNanos);
+        }
+        commit();
+    }
+
+    private void commit() {
+        for (CommandJournal journal : journals) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Stops the thread after a final commit round.
+     * It keeps waiting for the round when interrupted and then restores the interrupt status
+     * of the calling thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.host.CommandListener;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * {@link CommandListener} recording every command of a hosted game before it is applied, so the
+ * journal is never behind the game.
+ * <p>
+ * Games are spread over the journal shards by {@code gameId mod shards}; with as many shards as
+ * pipeline workers every shard has a single writer. Commands are recorded whether the game accepts
+ * them or not, because some rejected commands still change the game, and replaying them reproduces
+ * the same rejection. A command that cannot be recorded, because it is too large to be encoded or
+ * the journal cannot be written, is refused and reported as {@link ActionResult#NOT_RECORDED}.
+ * Commands for unknown games are not recorded.
+ */
+public final class JournalingListener implements CommandListener {
+
+    private final CommandJournal[] shards;
+    private final CommandListener delegate;
+
+    /**
+     * Creates the listener.
+     *
+     * @param shards   journals to write to, at least one
+     * @param delegate listener receiving the results
+     * @throws IllegalArgumentException if there is no journal
+     */
+    public JournalingListener(final List<CommandJournal> shards, final CommandListener delegate) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one journal is required");
+        }
+        this.shards = shards.toArray(new CommandJournal[0]);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Returns the journal of a game.
+     *
+     * @param gameId ID of the game
+     * @return the shard recording the game
+     */
+    public CommandJournal journalOf(final int gameId) {
+        return shards[Math.floorMod(gameId, shards.length)];
+    }
+
+    @Override
+    public boolean beforeApply(final GameCommand command) {
+        try {
+            journalOf(command.getGameId()).append(command);
+            return true;
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void onResult(final GameCommand command, final ActionResult result) {
+        delegate.onResult(command, result);
+    }
+}
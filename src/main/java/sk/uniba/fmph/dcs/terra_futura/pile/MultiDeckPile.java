@@ -0,0 +1,190 @@
+package sk.uniba.fmph.dcs.terra_futura.pile;
+
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.deck.Pile;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.hash.ZobristHash;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * The piles of all decks of a game, each with its own hidden cards and visible row.
+ * Cards are addressed by {@link CardSource}; the pile of a deck is found by the deck's ordinal in an
+ * array, so a lookup or draw costs what it costs in that deck's pile.
+ * Copying, undo, hashing and snapshots need every deck to be a {@link PileImpl}.
+ */
+public final class MultiDeckPile implements Snapshotable {
+
+    private static final Deck[] DECKS = Deck.values();
+
+    private final Pile[] decks;
+
+    /**
+     * Creates the piles of a game.
+     *
+     * @param deckI  pile of the first deck
+     * @param deckII pile of the second deck
+     */
+    public MultiDeckPile(final Pile deckI, final Pile deckII) {
+        this(new Pile[]{deckI, deckII});
+    }
+
+    private MultiDeckPile(final Pile[] decks) {
+        this.decks = decks;
+    }
+
+    /**
+     * Creates the piles of a game drawing all cards from one deck; the second deck is empty.
+     *
+     * @param deckI pile of the first deck
+     * @return the piles
+     */
+    public static MultiDeckPile of(final Pile deckI) {
+        return new MultiDeckPile(deckI, new PileImpl(List.of()));
+    }
+
+    /**
+     * Returns the pile of a deck.
+     *
+     * @param deck the deck
+     * @return its pile
+     */
+    public Pile getDeck(final Deck deck) {
+        return decks[deck.ordinal()];
+    }
+
+    /**
+     * Retrieves a visible card without removing it.
+     *
+     * @param source deck and index of the card
+     * @return the card, or Optional.empty() if there is no card at the index or no deck is given
+     */
+    public Optional<Card> getCard(final CardSource source) {
+        if (source.deck() == null) {
+            return Optional.empty();
+        }
+        return getDeck(source.deck()).getCard(source.index());
+    }
+
+    /**
+     * Removes a visible card, revealing a hidden card of the same deck in its place.
+     *
+     * @param source deck and index of the card
+     */
+    public void takeCard(final CardSource source) {
+        if (source.deck() != null) {
+            getDeck(source.deck()).takeCard(source.index());
+        }
+    }
+
+    /**
+     * Removes the last visible card of a deck.
+     *
+     * @param deck the deck
+     */
+    public void removeLastCard(final Deck deck) {
+        getDeck(deck).removeLastCard();
+    }
+
+    /**
+     * Creates piles in the same state; see {@link PileImpl#fork()}.
+     *
+     * @return the fork
+     * @throws IllegalStateException if a deck is not a {@link PileImpl}
+     */
+    public MultiDeckPile fork() {
+        Pile[] forked = new Pile[decks.length];
+        for (int deck = 0; deck < decks.length; deck++) {
+            forked[deck] = pileImpl(deck, "can be forked").fork();
+        }
+        return new MultiDeckPile(forked);
+    }
+
+    private PileImpl pileImpl(final int deck, final String operation) {
+        if (!(decks[deck] instanceof PileImpl)) {
+            throw new IllegalStateException("Only PileImpl " + operation);
+        }
+        return (PileImpl) decks[deck];
+    }
+
+    /**
+     * Makes every {@link PileImpl} deck part of a game hash under its deck ordinal.
+     *
+     * @param hash the hash, or null to leave it
+     */
+    public void setZobristHash(final ZobristHash hash) {
+        for (int deck = 0; deck < decks.length; deck++) {
+            if (decks[deck] instanceof PileImpl) {
+                ((PileImpl) decks[deck]).setZobristHash(hash, deck);
+            }
+        }
+    }
+
+    /**
+     * Records changes of every deck in the log from now on.
+     *
+     * @param log the log, or null to stop recording
+     * @throws IllegalStateException if a deck is not a {@link PileImpl} or holds a card that cannot be undone
+     */
+    public void setUndoLog(final UndoLog log) {
+        for (int deck = 0; deck < decks.length; deck++) {
+            pileImpl(deck, "supports undo");
+        }
+        for (Pile deck : decks) {
+            ((PileImpl) deck).setUndoLog(log);
+        }
+    }
+
+    /**
+     * Returns a string representation of the visible rows of all decks.
+     *
+     * @return a descriptive string of the piles
+     */
+    public String state() {
+        StringJoiner state = new StringJoiner(", ", "MultiDeckPile{", "}");
+        for (int deck = 0; deck < decks.length; deck++) {
+            state.add(DECKS[deck] + "=" + decks[deck].state());
+        }
+        return state.toString();
+    }
+
+    /**
+     * Writes the pile of every deck in deck order.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if a deck or a card cannot be snapshotted
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        for (int deck = 0; deck < decks.length; deck++) {
+            pileImpl(deck, "can be snapshotted");
+        }
+        for (Pile deck : decks) {
+            ((PileImpl) deck).writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Restores piles written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in      the snapshot
+     * @param catalog catalog of the cards in the piles
+     * @return the restored piles
+     * @throws IllegalArgumentException if the snapshot is malformed
+     */
+    public static MultiDeckPile readSnapshot(final SnapshotReader in, final CardCatalog catalog) {
+        Pile[] decks = new Pile[DECKS.length];
+        for (int deck = 0; deck < decks.length; deck++) {
+            decks[deck] = PileImpl.readSnapshot(in, catalog);
+        }
+        return new MultiDeckPile(decks);
+    }
+}
@@ -1,31 +1,155 @@
 package sk.uniba.fmph.dcs.terra_futura.pile;
 
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
+import sk.uniba.fmph.dcs.terra_futura.hash.Zobrist;
+import sk.uniba.fmph.dcs.terra_futura.hash.ZobristHash;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotReader;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.SnapshotWriter;
+import sk.uniba.fmph.dcs.terra_futura.snapshot.Snapshotable;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
+import sk.uniba.fmph.dcs.terra_futura.undo.Undoable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
 
-public class PileImpl implements Pile {
+/**
+ * Pile of cards with a row of visible cards that can be taken, refilled from the hidden cards.
+ * It serves both the {@link Pile} and the {@link sk.uniba.fmph.dcs.terra_futura.deck.Pile}
+ * views of a pile, which declare the same operations.
+ * <p>
+ * Hidden cards are an array drawn from the top by decrementing a counter, so the array itself never
+ * changes and forks share it. The visible row is a small ring buffer whose head moves when a card is
+ * revealed in front of it, so taking a card shifts at most the few cards before it and removing the
+ * last one is a single store. Neither allocates.
+ */
+public class PileImpl implements Pile, sk.uniba.fmph.dcs.terra_futura.deck.Pile, Snapshotable, Undoable {
 
-    private final List<Card> hiddenCards;
-    private final List<Card> visibleCards;
-    private final int standartVisibleCards = 4;
+    // Keys of changes recorded in the undo log
+    private static final int TAKE = 0;
+    private static final int REMOVE_LAST = 1;
+    // Flag in the recorded value telling that a hidden card was revealed
+    private static final long REVEALED = 1L << Integer.SIZE;
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
 
-    public PileImpl(final List<Card> cards) {
+    private static final int STANDARD_VISIBLE_CARDS = 4;
 
-        this.hiddenCards = cards;
-        this.visibleCards = new ArrayList<>();
+    // Hidden cards bottom to top; only the first hiddenCount are still in the pile
+    private final Card[] hiddenCards;
+    private int hiddenCount;
+    // Visible card i is in visibleCards[(visibleHead + i) % visibleCards.length]
+    private final Card[] visibleCards;
+    private int visibleHead;
+    private int visibleCount;
+    // Log recording changes, or null when changes are not undoable
+    private UndoLog undoLog;
+    // Hash of the game the pile belongs to, or null, and the deck it is in that game
+    private ZobristHash zobrist;
+    private int zobristDeck;
 
-        if (hiddenCards.size() > standartVisibleCards) {
-            for (int i = 0; i < standartVisibleCards; i++) {
-                visibleCards.add(hiddenCards.removeLast());
+    /**
+     * Creates a pile from the cards bottom to top; the top four are turned visible,
+     * the topmost first. A pile of four or fewer cards shows them all in list order.
+     *
+     * @param cards the cards; the list is not modified
+     */
+    public PileImpl(final List<Card> cards) {
+        Card[] all = cards.toArray(new Card[0]);
+        int hidden = all.length > STANDARD_VISIBLE_CARDS ? all.length - STANDARD_VISIBLE_CARDS : 0;
+        this.hiddenCards = all;
+        this.hiddenCount = hidden;
+        this.visibleCards = new Card[STANDARD_VISIBLE_CARDS];
+        if (hidden > 0) {
+            for (int i = 0; i < STANDARD_VISIBLE_CARDS; i++) {
+                visibleCards[i] = all[all.length - 1 - i];
             }
         } else {
-            visibleCards.addAll(hiddenCards);
-            hiddenCards.clear();
+            System.arraycopy(all, 0, visibleCards, 0, all.length);
         }
+        this.visibleCount = all.length - hidden;
+    }
+
+    /**
+     * Creates a pile of the cards in an order given by a seed, so that the pile of a game can be
+     * reproduced from the seed alone.
+     *
+     * @param cards the cards; the list is not modified
+     * @param seed  seed of the order
+     * @return the pile
+     */
+    public static PileImpl shuffled(final List<Card> cards, final long seed) {
+        return shuffled(cards, new SplittableRandom(seed));
+    }
+
+    /**
+     * Creates a pile of the cards in an order drawn from a generator by a Fisher-Yates shuffle.
+     * Parallel workers pass generators split from a common one, which gives each an independent
+     * and reproducible stream without contention on a shared generator.
+     *
+     * @param cards  the cards; the list is not modified
+     * @param random the generator
+     * @return the pile
+     */
+    public static PileImpl shuffled(final List<Card> cards, final SplittableRandom random) {
+        List<Card> order = new ArrayList<>(cards);
+        for (int i = order.size() - 1; i > 0; i--) {
+            Collections.swap(order, i, random.nextInt(i + 1));
+        }
+        return new PileImpl(order);
+    }
+
+    private PileImpl(final Card[] hiddenCards, final int hiddenCount, final Card[] visibleCards,
+            final int visibleHead, final int visibleCount) {
+        this.hiddenCards = hiddenCards;
+        this.hiddenCount = hiddenCount;
+        this.visibleCards = visibleCards;
+        this.visibleHead = visibleHead;
+        this.visibleCount = visibleCount;
+    }
+
+    private int slot(final int index) {
+        return (visibleHead + index) % visibleCards.length;
+    }
+
+    private Card visible(final int index) {
+        return visibleCards[slot(index)];
+    }
+
+    /**
+     * Removes a visible card, moving the cards before it one position back.
+     *
+     * @param index position of the card
+     * @return the removed card
+     */
+    private Card removeVisible(final int index) {
+        Card removed = visible(index);
+        for (int i = index; i > 0; i--) {
+            visibleCards[slot(i)] = visible(i - 1);
+        }
+        visibleCards[visibleHead] = null;
+        visibleHead = slot(1);
+        visibleCount--;
+        return removed;
+    }
+
+    /**
+     * Inserts a visible card, moving the cards before its position one position forward.
+     *
+     * @param index position of the card
+     * @param card  the card
+     */
+    private void insertVisible(final int index, final Card card) {
+        visibleHead = slot(visibleCards.length - 1);
+        visibleCount++;
+        for (int i = 0; i < index; i++) {
+            visibleCards[slot(i)] = visible(i + 1);
+        }
+        visibleCards[slot(index)] = card;
     }
 
     /**
@@ -36,10 +160,10 @@ public class PileImpl implements Pile {
      */
 
     public Optional<Card> getCard(final int index) {
-        if (index < 0 || index >= visibleCards.size()) {
+        if (index < 0 || index >= visibleCount) {
             return Optional.empty();
         }
-        return Optional.of(visibleCards.get(index));
+        return Optional.of(visible(index));
     }
 
     /**
@@ -50,21 +174,23 @@ public class PileImpl implements Pile {
      */
 
     public void takeCard(final int index) {
-        if (index >= 0 && index < visibleCards.size()) {
-            if (hiddenCards.isEmpty()) {
-                visibleCards.remove(index);
-                return;
-            }
-            ArrayList<Card> willRemain = new ArrayList<>();
-            for (int i = 0; i < visibleCards.size(); i++) {
-                if (i == index) {
-                    continue;
+        if (index >= 0 && index < visibleCount) {
+            long before = keys();
+            boolean reveal = hiddenCount > 0;
+            Card taken = visible(index);
+            if (reveal) {
+                // The revealed card takes the first position, the cards before the taken one move back
+                for (int i = index; i > 0; i--) {
+                    visibleCards[slot(i)] = visible(i - 1);
                 }
-            willRemain.add(visibleCards.get(i));
+                visibleCards[visibleHead] = hiddenCards[--hiddenCount];
+            } else {
+                removeVisible(index);
+            }
+            if (undoLog != null) {
+                undoLog.record(this, TAKE, (reveal ? REVEALED : 0) | index, taken);
             }
-            visibleCards.clear();
-            visibleCards.add(hiddenCards.removeLast());
-            visibleCards.addAll(willRemain);
+            rehash(before);
         }
 
     }
@@ -75,19 +201,122 @@ public class PileImpl implements Pile {
      */
 
     public void removeLastCard() {
-        if (!visibleCards.isEmpty()) {
+        if (visibleCount > 0) {
+            long before = keys();
+            boolean reveal = hiddenCount > 0;
+            Card removed;
+            if (reveal && visibleCount == visibleCards.length) {
+                // The slot before the head holds the last card, which the revealed card replaces
+                visibleHead = slot(visibleCards.length - 1);
+                removed = visibleCards[visibleHead];
+                visibleCards[visibleHead] = hiddenCards[--hiddenCount];
+            } else {
+                removed = visible(visibleCount - 1);
+                visibleCards[slot(visibleCount - 1)] = null;
+                visibleCount--;
+                if (reveal) {
+                    insertVisible(0, hiddenCards[--hiddenCount]);
+                }
+            }
+            if (undoLog != null) {
+                undoLog.record(this, REMOVE_LAST, reveal ? REVEALED : 0, removed);
+            }
+            rehash(before);
+        }
+    }
+
+    /**
+     * Creates a pile in the same state that shares the cards and the array of hidden cards, which
+     * never changes; only the few visible positions are copied. Cards in a pile do not change; a card
+     * taken from a forked pile must be copied before it changes, as the other pile may hold it too.
+     *
+     * @return the fork
+     */
+    public PileImpl fork() {
+        return new PileImpl(hiddenCards, hiddenCount, visibleCards.clone(), visibleHead, visibleCount);
+    }
 
-            if (hiddenCards.isEmpty()) {
-                visibleCards.removeLast();
-                return;
+    /**
+     * Makes the visible row and the number of hidden cards part of a game hash, removing them from
+     * the hash the pile was part of before. Hidden cards are only drawn from the top, so their number
+     * determines them. Cards are hashed by catalog ID, so equal cards are interchangeable.
+     *
+     * @param hash the hash, or null to leave it
+     * @param deck ordinal of the deck the pile is in the game
+     */
+    public void setZobristHash(final ZobristHash hash, final int deck) {
+        if (zobrist != null) {
+            zobrist.toggle(keys());
+        }
+        zobrist = hash;
+        zobristDeck = deck;
+        if (hash != null) {
+            hash.toggle(keys());
+        }
+    }
+
+    /**
+     * Combines the keys of the visible row and of the number of hidden cards.
+     *
+     * @return the keys, or 0 if the pile is not hashed
+     */
+    private long keys() {
+        if (zobrist == null) {
+            return 0;
+        }
+        long keys = Zobrist.hidden(zobristDeck, hiddenCount);
+        for (int i = 0; i < visibleCount; i++) {
+            Card card = visible(i);
+            keys ^= Zobrist.visible(zobristDeck, i, card instanceof CardImpl
+                    ? ((CardImpl) card).getCatalogId() : CardImpl.NO_CATALOG_ID);
+        }
+        return keys;
+    }
+
+    private void rehash(final long before) {
+        if (zobrist != null) {
+            zobrist.toggle(before ^ keys());
+        }
+    }
+
+    /**
+     * Records changes of this pile in the log from now on.
+     * Cards do not change while in the pile; a grid attaches a card to its log when the card is placed.
+     *
+     * @param log the log, or null to stop recording
+     * @throws IllegalStateException if a card in the pile is not a {@link CardImpl}
+     */
+    public void setUndoLog(final UndoLog log) {
+        for (int i = 0; i < hiddenCount + visibleCount; i++) {
+            Card card = i < hiddenCount ? hiddenCards[i] : visible(i - hiddenCount);
+            if (!(card instanceof CardImpl)) {
+                throw new IllegalStateException("Card " + card.state() + " cannot be undone");
             }
-            ArrayList<Card> willRemain = new ArrayList<>();
-            willRemain.addAll(visibleCards);
-            willRemain.removeLast();
-            visibleCards.clear();
-            visibleCards.add(hiddenCards.removeLast());
-            visibleCards.addAll(willRemain);
         }
+        this.undoLog = log;
+    }
+
+    /**
+     * Puts back a taken or removed card, hiding the card revealed in its place.
+     * The revealed card is the one above the remaining hidden cards, so hiding it only moves the counter.
+     *
+     * @param key   whether a card was taken or the last one removed
+     * @param value index of a taken card, with a flag telling whether a hidden card was revealed
+     * @param ref   the taken or removed card
+     */
+    @Override
+    public void undo(final int key, final long value, final Object ref) {
+        long before = keys();
+        if ((value & REVEALED) != 0) {
+            removeVisible(0);
+            hiddenCount++;
+        }
+        if (key == TAKE) {
+            insertVisible((int) (value & INDEX_MASK), (Card) ref);
+        } else {
+            visibleCards[slot(visibleCount++)] = (Card) ref;
+        }
+        rehash(before);
     }
 
     /**
@@ -97,9 +326,71 @@ public class PileImpl implements Pile {
      */
 
     public String state() {
-        String cardsState = visibleCards.stream()
-                .map(Card::state)
-                .collect(Collectors.joining(", "));
+        StringJoiner cardsState = new StringJoiner(", ");
+        for (int i = 0; i < visibleCount; i++) {
+            cardsState.add(visible(i).state());
+        }
         return String.format("PileImpl{cards=[%s]}", cardsState);
     }
+
+    /**
+     * Writes the hidden cards bottom to top and then the visible cards in order,
+     * each list preceded by its size.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if a card cannot be snapshotted
+     */
+    @Override
+    public void writeSnapshot(final SnapshotWriter out) {
+        out.putVarint(hiddenCount);
+        for (int i = 0; i < hiddenCount; i++) {
+            writeCard(hiddenCards[i], out);
+        }
+        out.putVarint(visibleCount);
+        for (int i = 0; i < visibleCount; i++) {
+            writeCard(visible(i), out);
+        }
+    }
+
+    private static void writeCard(final Card card, final SnapshotWriter out) {
+        if (!(card instanceof Snapshotable)) {
+            throw new IllegalStateException("Card " + card.state() + " cannot be snapshotted");
+        }
+        ((Snapshotable) card).writeSnapshot(out);
+    }
+
+    /**
+     * Restores a pile written by {@link #writeSnapshot(SnapshotWriter)}.
+     *
+     * @param in      the snapshot
+     * @param catalog catalog of the cards in the pile
+     * @return the restored pile
+     * @throws IllegalArgumentException if the snapshot is malformed
+     */
+    public static PileImpl readSnapshot(final SnapshotReader in, final CardCatalog catalog) {
+        Card[] hidden = readCards(in, catalog, 0);
+        Card[] visible = readCards(in, catalog, STANDARD_VISIBLE_CARDS);
+        int visibleCount = 0;
+        while (visibleCount < visible.length && visible[visibleCount] != null) {
+            visibleCount++;
+        }
+        return new PileImpl(hidden, hidden.length, visible, 0, visibleCount);
+    }
+
+    /**
+     * Reads a size-prefixed list of cards into an array.
+     *
+     * @param in          the snapshot
+     * @param catalog     catalog of the cards
+     * @param minCapacity minimal length of the array
+     * @return the cards followed by nulls up to the capacity
+     */
+    private static Card[] readCards(final SnapshotReader in, final CardCatalog catalog, final int minCapacity) {
+        int size = in.getVarint(Integer.MAX_VALUE);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            cards.add(CardImpl.readSnapshot(in, catalog));
+        }
+        return cards.toArray(new Card[Math.max(size, minCapacity)]);
+    }
 }
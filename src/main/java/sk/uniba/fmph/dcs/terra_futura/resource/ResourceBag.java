@@ -0,0 +1,235 @@
+package sk.uniba.fmph.dcs.terra_futura.resource;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable multiset of resources.
+ * The count of every {@link Resource} kind is packed into one byte of a single long
+ * (byte i holds the count of the resource with ordinal i), so comparing, adding and
+ * subtracting bags are a few arithmetic operations regardless of their size.
+ * The highest bit of every byte is kept clear, which limits each count to {@link #MAX_COUNT}.
+ */
+public final class ResourceBag {
+
+    /**
+     * Maximal number of resources of a single kind a bag can hold.
+     */
+    public static final int MAX_COUNT = 127;
+
+    /**
+     * Bag containing no resources.
+     */
+    public static final ResourceBag EMPTY = new ResourceBag(0L);
+
+    private static final Resource[] RESOURCE_KINDS = Resource.values();
+    private static final int BITS_PER_KIND = 8;
+    private static final long COUNT_MASK = 0x7FL;
+    private static final long GUARD_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long SUM_LANES = 0x0001000100010001L;
+    private static final int SUM_SHIFT = 48;
+
+    private static final ResourceBag[] UNITS = new ResourceBag[RESOURCE_KINDS.length];
+
+    static {
+        for (Resource resource : RESOURCE_KINDS) {
+            UNITS[resource.ordinal()] = new ResourceBag(1L << shift(resource));
+        }
+    }
+
+    private final long packed;
+
+    private ResourceBag(final long packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Checks whether the value is a valid packed bag, i.e. no count exceeds {@link #MAX_COUNT}.
+     * Sums of valid packed bags are valid exactly when no count overflowed.
+     *
+     * @param packed packed per-kind counts
+     * @return true if {@link #fromPacked(long)} accepts the value
+     */
+    public static boolean isValidPacked(final long packed) {
+        return (packed & GUARD_BITS) == 0;
+    }
+
+    /**
+     * Returns the shared bag holding exactly one resource of the given kind.
+     *
+     * @param resource resource kind
+     * @return bag with a single resource
+     */
+    public static ResourceBag unit(final Resource resource) {
+        return UNITS[resource.ordinal()];
+    }
+
+    /**
+     * Creates a bag from its packed representation as returned by {@link #packed()}.
+     *
+     * @param packed packed per-kind counts
+     * @return the bag
+     * @throws IllegalArgumentException if the value is not a valid packed bag
+     */
+    public static ResourceBag fromPacked(final long packed) {
+        if (!isValidPacked(packed)) {
+            throw new IllegalArgumentException("Invalid packed resource bag: " + Long.toHexString(packed));
+        }
+        return packed == 0 ? EMPTY : new ResourceBag(packed);
+    }
+
+    /**
+     * Creates a bag holding the given resources.
+     *
+     * @param resources resources to put in the bag
+     * @return the bag
+     * @throws IllegalArgumentException if some kind occurs more than {@link #MAX_COUNT} times
+     */
+    public static ResourceBag of(final Resource... resources) {
+        return of(List.of(resources));
+    }
+
+    /**
+     * Creates a bag holding the given resources; their order does not matter.
+     *
+     * @param resources resources to put in the bag
+     * @return the bag
+     * @throws IllegalArgumentException if some kind occurs more than {@link #MAX_COUNT} times
+     */
+    public static ResourceBag of(final List<Resource> resources) {
+        long packed = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            packed += 1L << shift(resources.get(i));
+            if ((packed & GUARD_BITS) != 0) {
+                throw new IllegalArgumentException("Too many resources of kind " + resources.get(i));
+            }
+        }
+        return fromPacked(packed);
+    }
+
+    private static int shift(final Resource resource) {
+        return resource.ordinal() * BITS_PER_KIND;
+    }
+
+    /**
+     * Returns the packed per-kind counts of this bag.
+     *
+     * @return packed representation, see {@link #fromPacked(long)}
+     */
+    public long packed() {
+        return packed;
+    }
+
+    /**
+     * Returns how many resources of the given kind the bag holds.
+     *
+     * @param resource resource kind
+     * @return count of the resource
+     */
+    public int count(final Resource resource) {
+        return (int) ((packed >>> shift(resource)) & COUNT_MASK);
+    }
+
+    /**
+     * Returns the total number of resources in the bag.
+     *
+     * @return sum of all counts
+     */
+    public int size() {
+        long pairs = (packed & EVEN_BYTES) + ((packed >>> BITS_PER_KIND) & EVEN_BYTES);
+        return (int) ((pairs * SUM_LANES) >>> SUM_SHIFT);
+    }
+
+    /**
+     * Returns the number of distinct resource kinds in the bag.
+     *
+     * @return number of kinds with non-zero count
+     */
+    public int kinds() {
+        return Long.bitCount((packed + LOW_BITS) & GUARD_BITS);
+    }
+
+    public boolean isEmpty() {
+        return packed == 0;
+    }
+
+    /**
+     * Checks whether this bag holds at least as many resources of every kind as the other one.
+     *
+     * @param other the bag to compare with
+     * @return true if {@code other} is a sub-multiset of this bag
+     */
+    public boolean containsAll(final ResourceBag other) {
+        return (((packed | GUARD_BITS) - other.packed) & GUARD_BITS) == GUARD_BITS;
+    }
+
+    /**
+     * Returns a bag holding the resources of both bags.
+     *
+     * @param other resources to add
+     * @return the union (sum) of the bags
+     * @throws IllegalArgumentException if some count would exceed {@link #MAX_COUNT}
+     */
+    public ResourceBag add(final ResourceBag other) {
+        return fromPacked(packed + other.packed);
+    }
+
+    /**
+     * Returns a bag with one more resource of the given kind.
+     *
+     * @param resource resource to add
+     * @return the extended bag
+     * @throws IllegalArgumentException if the count would exceed {@link #MAX_COUNT}
+     */
+    public ResourceBag add(final Resource resource) {
+        return fromPacked(packed + (1L << shift(resource)));
+    }
+
+    /**
+     * Returns a bag with the resources of the other bag removed.
+     *
+     * @param other resources to remove
+     * @return the difference of the bags
+     * @throws IllegalArgumentException if this bag does not contain all resources of {@code other}
+     */
+    public ResourceBag subtract(final ResourceBag other) {
+        if (!containsAll(other)) {
+            throw new IllegalArgumentException("Cannot subtract " + other + " from " + this);
+        }
+        return fromPacked(packed - other.packed);
+    }
+
+    /**
+     * Lists the resources of the bag grouped by kind in {@link Resource} declaration order.
+     *
+     * @return a new mutable list of the resources
+     */
+    public List<Resource> toList() {
+        List<Resource> resources = new ArrayList<>(size());
+        for (Resource resource : RESOURCE_KINDS) {
+            for (int i = count(resource); i > 0; i--) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof ResourceBag bag && bag.packed == packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(packed);
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
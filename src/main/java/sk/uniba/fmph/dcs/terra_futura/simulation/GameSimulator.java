@@ -0,0 +1,142 @@
+package sk.uniba.fmph.dcs.terra_futura.simulation;
+
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.GameState;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Plays complete games with the given policies on all cores.
+ * <p>
+ * A batch is split in halves by a {@link ForkJoinPool} until a task holds a few dozen games; every
+ * split also splits the {@link SplittableRandom} of the task, so each worker has its own generator,
+ * and the generator of every game depends only on the seed and the batch size. The same seed
+ * therefore reproduces the same games on any number of threads. Moves are chosen among
+ * {@link Game#legalMoves()} until the game finishes, runs out of moves or reaches the ply limit.
+ */
+public final class GameSimulator {
+
+    /**
+     * Default maximal number of moves of one game.
+     */
+    public static final int DEFAULT_MAX_PLIES = 10_000;
+
+    private static final int GAMES_PER_TASK = 32;
+
+    private final Function<SplittableRandom, Game> games;
+    private final IntFunction<Policy> policies;
+    private final ForkJoinPool pool;
+    private final int maxPlies;
+
+    /**
+     * Creates a simulator running on the common pool.
+     *
+     * @param games    creates a new game, using the generator for anything random such as the pile
+     * @param policies policy of each player ID
+     */
+    public GameSimulator(final Function<SplittableRandom, Game> games, final IntFunction<Policy> policies) {
+        this(games, policies, ForkJoinPool.commonPool(), DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * Creates a simulator.
+     *
+     * @param games    creates a new game, using the generator for anything random such as the pile
+     * @param policies policy of each player ID
+     * @param pool     pool running the games
+     * @param maxPlies maximal number of moves of one game
+     * @throws IllegalArgumentException if the ply limit is not positive
+     */
+    public GameSimulator(final Function<SplittableRandom, Game> games, final IntFunction<Policy> policies,
+            final ForkJoinPool pool, final int maxPlies) {
+        if (maxPlies <= 0) {
+            throw new IllegalArgumentException("Ply limit must be positive");
+        }
+        this.games = games;
+        this.policies = policies;
+        this.pool = pool;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Simulates a batch of games and waits for all of them.
+     *
+     * @param count number of games
+     * @param seed  seed of the random numbers of the whole batch
+     * @return the report, including the wall-clock time
+     */
+    public SimulationReport run(final long count, final long seed) {
+        long start = System.nanoTime();
+        SimulationReport report = pool.invoke(new Batch(0, count, new SplittableRandom(seed)));
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Games from one index up to another, split until small enough.
+     * Tasks are never serialized; ForkJoinTask is Serializable only by inheritance.
+     */
+    @SuppressWarnings("serial")
+    private final class Batch extends RecursiveTask<SimulationReport> {
+        private final long from;
+        private final long to;
+        private final SplittableRandom random;
+
+        Batch(final long from, final long to, final SplittableRandom random) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected SimulationReport compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                SimulationReport report = new SimulationReport();
+                List<Move> moves = new ArrayList<>();
+                for (long i = from; i < to; i++) {
+                    play(games.apply(random), random, moves, report);
+                }
+                return report;
+            }
+            long middle = (from + to) >>> 1;
+            Batch left = new Batch(from, middle, random.split());
+            Batch right = new Batch(middle, to, random);
+            left.fork();
+            SimulationReport report = right.compute();
+            return report.merge(left.join());
+        }
+    }
+
+    private void play(final Game game, final SplittableRandom random, final List<Move> moves,
+            final SimulationReport report) {
+        int plies = 0;
+        while (plies < maxPlies) {
+            moves.clear();
+            game.legalMoves().forEachRemaining(moves::add);
+            if (moves.isEmpty()) {
+                break;
+            }
+            int player = game.getCurrentPlayerOnTurn();
+            Move move = policies.apply(player).choose(game, moves, random);
+            plies++;
+            if (move.applyTo(game, player) != ActionResult.OK) {
+                break;
+            }
+        }
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int player : game.getPlayers()) {
+            scores.put(player, game.getScore(player));
+        }
+        report.addGame(plies, game.getState() == GameState.FINISH, scores);
+    }
+}
@@ -0,0 +1,61 @@
+package sk.uniba.fmph.dcs.terra_futura.simulation;
+
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Basic policies for simulations.
+ */
+public final class Policies {
+
+    private static final Policy RANDOM = (game, moves, random) -> moves.get(random.nextInt(moves.size()));
+
+    private static final Policy GREEDY = Policies::greedy;
+
+    private Policies() {
+    }
+
+    /**
+     * Returns the policy choosing uniformly among the legal moves.
+     *
+     * @return the random policy
+     */
+    public static Policy random() {
+        return RANDOM;
+    }
+
+    /**
+     * Returns the policy choosing the move that raises the score of the player the most
+     * (see {@link Game#getScore(int)}), breaking ties uniformly at random.
+     * Moves are tried with {@link Game#makeMove(Move)} and taken back, so the game must support undo.
+     *
+     * @return the greedy policy
+     */
+    public static Policy greedy() {
+        return GREEDY;
+    }
+
+    private static Move greedy(final Game game, final List<Move> moves, final SplittableRandom random) {
+        int player = game.getCurrentPlayerOnTurn();
+        Move best = null;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (Move move : moves) {
+            game.makeMove(move);
+            int score = game.getScore(player);
+            game.unmakeMove();
+            if (score > bestScore) {
+                best = move;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                // Reservoir sampling keeps every tied move with equal probability
+                best = move;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,27 @@
+package sk.uniba.fmph.dcs.terra_futura.simulation;
+
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Strategy choosing the moves of a simulated player.
+ * A policy is called by one thread at a time per game but may be shared by games running in
+ * parallel, so implementations keep no state between calls.
+ */
+@FunctionalInterface
+public interface Policy {
+
+    /**
+     * Chooses the next move of the player on turn.
+     *
+     * @param game   the game; it may be changed during the call if it is restored afterwards,
+     *               for example with {@link Game#makeMove(Move)} and {@link Game#unmakeMove()}
+     * @param moves  the legal moves, never empty
+     * @param random random numbers of the worker playing the game
+     * @return one of the moves
+     */
+    Move choose(Game game, List<Move> moves, SplittableRandom random);
+}
@@ -0,0 +1,136 @@
+package sk.uniba.fmph.dcs.terra_futura.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a batch of simulated games.
+ * Scores and wins count finished games only; a game is unfinished when it ran out of legal
+ * moves, for example because the pile was empty, or reached the ply limit of the simulator.
+ */
+public final class SimulationReport {
+
+    private long games;
+    private long finishedGames;
+    private long plies;
+    private long draws;
+    // Per player ID: total score and number of wins
+    private final Map<Integer, long[]> players = new HashMap<>();
+    private long elapsedNanos;
+
+    SimulationReport() {
+    }
+
+    /**
+     * Records one game.
+     *
+     * @param gamePlies number of moves made
+     * @param finished  whether the game reached its end
+     * @param scores    final score per player ID
+     */
+    void addGame(final int gamePlies, final boolean finished, final Map<Integer, Integer> scores) {
+        games++;
+        plies += gamePlies;
+        if (!finished) {
+            return;
+        }
+        finishedGames++;
+        int best = Integer.MIN_VALUE;
+        Integer winner = null;
+        for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+            players.computeIfAbsent(score.getKey(), id -> new long[2])[0] += score.getValue();
+            if (score.getValue() > best) {
+                best = score.getValue();
+                winner = score.getKey();
+            } else if (score.getValue() == best) {
+                winner = null;
+            }
+        }
+        if (winner != null) {
+            players.get(winner)[1]++;
+        } else {
+            draws++;
+        }
+    }
+
+    /**
+     * Adds the games of another report to this one.
+     *
+     * @param other the other report
+     * @return this report
+     */
+    SimulationReport merge(final SimulationReport other) {
+        games += other.games;
+        finishedGames += other.finishedGames;
+        plies += other.plies;
+        draws += other.draws;
+        for (Map.Entry<Integer, long[]> player : other.players.entrySet()) {
+            long[] totals = players.computeIfAbsent(player.getKey(), id -> new long[2]);
+            totals[0] += player.getValue()[0];
+            totals[1] += player.getValue()[1];
+        }
+        return this;
+    }
+
+    void setElapsedNanos(final long nanos) {
+        this.elapsedNanos = nanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getFinishedGames() {
+        return finishedGames;
+    }
+
+    public long getPlies() {
+        return plies;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Returns the number of finished games a player won alone.
+     *
+     * @param playerId the player
+     * @return number of wins
+     */
+    public long getWins(final int playerId) {
+        long[] totals = players.get(playerId);
+        return totals == null ? 0 : totals[1];
+    }
+
+    /**
+     * Returns the mean final score of a player over the finished games.
+     *
+     * @param playerId the player
+     * @return the mean score, 0 if no game finished
+     */
+    public double getAverageScore(final int playerId) {
+        long[] totals = players.get(playerId);
+        return totals == null ? 0 : (double) totals[0] / finishedGames;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the simulation.
+     *
+     * @return simulated games per second of wall-clock time
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games (%d finished, %d draws), %d plies, %.0f games/s",
+                games, finishedGames, draws, plies, getGamesPerSecond());
+    }
+}
@@ -0,0 +1,97 @@
+package sk.uniba.fmph.dcs.terra_futura.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values written by {@link SnapshotWriter} from a buffer, starting at its position.
+ * A truncated or malformed snapshot is reported as {@link IllegalArgumentException}.
+ */
+public final class SnapshotReader {
+
+    private static final int PAYLOAD_BITS = 7;
+    private static final int PAYLOAD_MASK = 0x7F;
+    private static final int CONTINUATION = 0x80;
+    private static final int UNSIGNED_BYTE = 0xFF;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a reader consuming the buffer from its position.
+     *
+     * @param buffer the snapshot
+     */
+    public SnapshotReader(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads an unsigned byte.
+     *
+     * @return value between 0 and 255
+     * @throws IllegalArgumentException if the snapshot ended
+     */
+    public int getByte() {
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Truncated snapshot");
+        }
+        return buffer.get() & UNSIGNED_BYTE;
+    }
+
+    /**
+     * Reads a fixed-width big-endian int.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the snapshot ended
+     */
+    public int getInt() {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << Byte.SIZE) | getByte();
+        }
+        return value;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the snapshot ended or the varint is longer than an int
+     */
+    public int getVarint() {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += PAYLOAD_BITS) {
+            int next = getByte();
+            value |= (next & PAYLOAD_MASK) << shift;
+            if ((next & CONTINUATION) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot");
+    }
+
+    /**
+     * Reads a zigzag encoded varint.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the snapshot ended or the varint is longer than an int
+     */
+    public int getSignedVarint() {
+        int value = getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a varint that must lie in {@code [0, bound)}, such as an enum ordinal or a count.
+     *
+     * @param bound exclusive upper bound
+     * @return the value
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public int getVarint(final int bound) {
+        int value = getVarint();
+        if (value < 0 || value >= bound) {
+            throw new IllegalArgumentException("Value " + value + " out of range in snapshot");
+        }
+        return value;
+    }
+}
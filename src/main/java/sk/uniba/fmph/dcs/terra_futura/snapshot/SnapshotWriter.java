@@ -0,0 +1,117 @@
+package sk.uniba.fmph.dcs.terra_futura.snapshot;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte sink for binary snapshots.
+ * Small non-negative numbers such as resource counts and cell masks are written as varints
+ * (7 bits per byte, lowest group first, high bit set on all but the last byte), so most of
+ * them take a single byte. Signed values such as player IDs are zigzag encoded first.
+ */
+public final class SnapshotWriter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int PAYLOAD_BITS = 7;
+    private static final int PAYLOAD_MASK = 0x7F;
+    private static final int CONTINUATION = 0x80;
+
+    private byte[] bytes;
+    private int size;
+
+    /**
+     * Creates an empty writer.
+     */
+    public SnapshotWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty writer.
+     *
+     * @param initialCapacity expected snapshot size in bytes
+     */
+    public SnapshotWriter(final int initialCapacity) {
+        this.bytes = new byte[Math.max(1, initialCapacity)];
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Writes the low 8 bits of the value.
+     *
+     * @param value the byte
+     * @return this writer
+     */
+    public SnapshotWriter putByte(final int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes a fixed-width big-endian int.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public SnapshotWriter putInt(final int value) {
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            putByte(value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value as an unsigned varint; negative values take five bytes.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public SnapshotWriter putVarint(final int value) {
+        ensureCapacity(Integer.BYTES + 1);
+        int rest = value;
+        while ((rest & ~PAYLOAD_MASK) != 0) {
+            bytes[size++] = (byte) ((rest & PAYLOAD_MASK) | CONTINUATION);
+            rest >>>= PAYLOAD_BITS;
+        }
+        bytes[size++] = (byte) rest;
+        return this;
+    }
+
+    /**
+     * Writes a signed value as a zigzag varint, so values close to zero are short.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public SnapshotWriter putSignedVarint(final int value) {
+        return putVarint((value << 1) ^ (value >> (Integer.SIZE - 1)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the written bytes as a buffer ready to be read.
+     *
+     * @return a buffer with a copy of the snapshot
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(Arrays.copyOf(bytes, size));
+    }
+
+    /**
+     * Copies the written bytes to the position of the target.
+     *
+     * @param target buffer with at least {@link #size()} bytes remaining
+     */
+    public void writeTo(final ByteBuffer target) {
+        target.put(bytes, 0, size);
+    }
+}
@@ -0,0 +1,17 @@
+package sk.uniba.fmph.dcs.terra_futura.snapshot;
+
+/**
+ * Object whose state can be written into a compact binary snapshot.
+ * Implementations provide a static {@code readSnapshot} factory restoring an equal object
+ * from what {@link #writeSnapshot(SnapshotWriter)} wrote.
+ */
+public interface Snapshotable {
+
+    /**
+     * Appends the state of this object to the snapshot.
+     *
+     * @param out the snapshot
+     * @throws IllegalStateException if the object holds state that cannot be snapshotted
+     */
+    void writeSnapshot(SnapshotWriter out);
+}
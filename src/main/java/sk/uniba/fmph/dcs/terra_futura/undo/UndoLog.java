@@ -0,0 +1,102 @@
+package sk.uniba.fmph.dcs.terra_futura.undo;
+
+import java.util.Arrays;
+
+/**
+ * Trail of changes that can be reverted back to a mark.
+ * <p>
+ * Objects attached to a log record every change they are about to make as a target, a key and
+ * the previous value. {@link #mark()} starts a new level and {@link #undo()} reverts the changes
+ * of the newest level in reverse order, so a search can apply a move, evaluate it and take it back
+ * in time proportional to what the move changed. Entries are kept in parallel arrays that only grow,
+ * so recording does not allocate once the log has reached its working size.
+ * Changes made while no mark is set are not recorded.
+ */
+public final class UndoLog {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_MARKS = 16;
+
+    private Undoable[] targets = new Undoable[INITIAL_CAPACITY];
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private Object[] refs = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    private int[] marks = new int[INITIAL_MARKS];
+    private int depth;
+
+    /**
+     * Records a change without an object.
+     *
+     * @param target object that will revert the change
+     * @param key    what changes
+     * @param value  primitive data needed to revert the change
+     */
+    public void record(final Undoable target, final int key, final long value) {
+        record(target, key, value, null);
+    }
+
+    /**
+     * Records a change.
+     *
+     * @param target object that will revert the change
+     * @param key    what changes
+     * @param value  primitive data needed to revert the change
+     * @param ref    object needed to revert the change
+     */
+    public void record(final Undoable target, final int key, final long value, final Object ref) {
+        if (depth == 0) {
+            return;
+        }
+        if (size == targets.length) {
+            int capacity = size * 2;
+            targets = Arrays.copyOf(targets, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            refs = Arrays.copyOf(refs, capacity);
+        }
+        targets[size] = target;
+        keys[size] = key;
+        values[size] = value;
+        refs[size] = ref;
+        size++;
+    }
+
+    /**
+     * Starts a new level; changes from now on are reverted by the matching {@link #undo()}.
+     */
+    public void mark() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+        }
+        marks[depth++] = size;
+    }
+
+    /**
+     * Reverts all changes since the newest mark and removes the mark.
+     *
+     * @throws IllegalStateException if no mark is set
+     */
+    public void undo() {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        int mark = marks[--depth];
+        while (size > mark) {
+            size--;
+            targets[size].undo(keys[size], values[size], refs[size]);
+            targets[size] = null;
+            refs[size] = null;
+        }
+    }
+
+    /**
+     * Returns the number of marks set.
+     *
+     * @return number of levels that can be undone
+     */
+    public int depth() {
+        return depth;
+    }
+}
@@ -0,0 +1,16 @@
+package sk.uniba.fmph.dcs.terra_futura.undo;
+
+/**
+ * Object whose changes can be recorded in an {@link UndoLog} and reverted later.
+ */
+public interface Undoable {
+
+    /**
+     * Reverts one change recorded by this object. Called by the log only, newest change first.
+     *
+     * @param key   what changed, as chosen by the object when recording
+     * @param value primitive data recorded with the change, usually the previous value
+     * @param ref   object recorded with the change, or null
+     */
+    void undo(int key, long value, Object ref);
+}
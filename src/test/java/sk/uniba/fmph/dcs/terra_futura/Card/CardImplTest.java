@@ -6,6 +6,7 @@ import org.junit.Before;
 import org.junit.Test;
 import sk.uniba.fmph.dcs.terra_futura.effect.Effect;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -142,6 +143,55 @@ public class CardImplTest {
         card.getResources(toGet);
     }
 
+    @Test
+    public void testGetResources_CleaningPollutionUnblocksCard() {
+        card.putResources(Arrays.asList(Resource.GREEN, Resource.POLLUTION));
+        card.putResources(Arrays.asList(Resource.POLLUTION, Resource.POLLUTION));
+
+        Assert.assertFalse(card.canGetResources(Collections.singletonList(Resource.GREEN)));
+        Assert.assertFalse(card.canGetResources(Arrays.asList(Resource.POLLUTION, Resource.POLLUTION,
+                Resource.POLLUTION, Resource.POLLUTION)));
+
+        card.getResources(Arrays.asList(Resource.POLLUTION, Resource.POLLUTION));
+
+        Assert.assertTrue(card.canPutResources(Collections.singletonList(Resource.RED)));
+        Assert.assertTrue(card.canGetResources(Arrays.asList(Resource.GREEN, Resource.POLLUTION)));
+        Assert.assertFalse(card.canGetResources(Arrays.asList(Resource.GREEN, Resource.GREEN)));
+    }
+
+    @Test
+    public void testInitialResourcesAreCounted() {
+        CardImpl preloaded = new CardImpl(new ArrayList<>(Arrays.asList(Resource.CAR, Resource.CAR, Resource.POLLUTION)),
+                POLLUTION_MAX, upperEffectStub, lowerEffectStub);
+
+        Assert.assertTrue(preloaded.canGetResources(Arrays.asList(Resource.CAR, Resource.CAR)));
+        Assert.assertFalse(preloaded.canGetResources(Arrays.asList(Resource.CAR, Resource.CAR, Resource.CAR)));
+
+        upperEffectStub.checkResult = true;
+        preloaded.check(Collections.emptyList(), Collections.emptyList(), 0);
+        Assert.assertEquals(2, upperEffectStub.lastPollutionPassed);
+    }
+
+    @Test
+    public void testResourceBagOverloadsMatchListBehavior() {
+        card.putResources(ResourceBag.of(Resource.GEAR, Resource.GEAR, Resource.POLLUTION));
+
+        Assert.assertTrue(card.canGetResources(ResourceBag.of(Resource.GEAR, Resource.GEAR)));
+        Assert.assertFalse(card.canGetResources(ResourceBag.EMPTY));
+        Assert.assertFalse(card.canGetResources(ResourceBag.of(Resource.GEAR, Resource.GEAR, Resource.GEAR)));
+
+        card.getResources(ResourceBag.of(Resource.GEAR));
+        Assert.assertFalse(card.canGetResources(Arrays.asList(Resource.GEAR, Resource.GEAR)));
+
+        card.putResources(ResourceBag.of(Resource.POLLUTION, Resource.POLLUTION));
+        Assert.assertFalse(card.canPutResources(ResourceBag.of(Resource.GREEN)));
+        Assert.assertTrue(card.canGetResources(ResourceBag.of(Resource.POLLUTION, Resource.POLLUTION)));
+
+        upperEffectStub.checkResult = true;
+        Assert.assertTrue(card.check(ResourceBag.EMPTY, ResourceBag.EMPTY, 0));
+        Assert.assertEquals(0, upperEffectStub.lastPollutionPassed);
+    }
+
     @Test
     public void testCheck_UpperEffectDelegation() {
 
@@ -5,10 +5,12 @@ import sk.uniba.fmph.dcs.terra_futura.effect.Effect;
 import sk.uniba.fmph.dcs.terra_futura.effect.EffectOr;
 import sk.uniba.fmph.dcs.terra_futura.effect.TransformationFixed;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.resource.ResourceBag;
 
 import java.util.List;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -57,6 +59,38 @@ public class EffectTest {
         assertFalse(effect.check(input, output, pollution));
     }
 
+    @Test
+    public void transformationFixed_resourceOrder_doesNotMatter() {
+        Effect effect = new TransformationFixed(Arrays.asList(Resource.GREEN, Resource.RED, Resource.GREEN),
+                Arrays.asList(Resource.BULB, Resource.CAR), 0);
+
+        assertTrue(effect.check(Arrays.asList(Resource.RED, Resource.GREEN, Resource.GREEN),
+                Arrays.asList(Resource.CAR, Resource.BULB), 0));
+        assertFalse(effect.check(Arrays.asList(Resource.RED, Resource.RED, Resource.GREEN),
+                Arrays.asList(Resource.CAR, Resource.BULB), 0));
+        assertFalse(effect.check(Arrays.asList(Resource.RED, Resource.GREEN),
+                Arrays.asList(Resource.CAR, Resource.BULB), 0));
+    }
+
+    @Test
+    public void transformationFixed_resourceBag_matchesListCheck() {
+        Effect effect = new TransformationFixed(Arrays.asList(Resource.YELLOW), Arrays.asList(Resource.GEAR), 1);
+
+        assertTrue(effect.check(ResourceBag.of(Resource.YELLOW), ResourceBag.of(Resource.GEAR), 1));
+        assertFalse(effect.check(ResourceBag.of(Resource.YELLOW), ResourceBag.of(Resource.GEAR), 0));
+        assertFalse(effect.check(ResourceBag.EMPTY, ResourceBag.of(Resource.GEAR), 1));
+    }
+
+    @Test
+    public void transformationFixed_tooManyOfOneKind_shouldReturnFalse() {
+        List<Resource> from = new ArrayList<>(Collections.nCopies(64, Resource.GREEN));
+        from.addAll(Collections.nCopies(64, Resource.RED));
+        Effect effect = new TransformationFixed(from, Arrays.asList(Resource.BULB), 0);
+
+        assertTrue(effect.check(from, Arrays.asList(Resource.BULB), 0));
+        assertFalse(effect.check(Collections.nCopies(128, Resource.GREEN), Arrays.asList(Resource.BULB), 0));
+    }
+
     //ArbitraryBasic
 
     @Test
@@ -96,6 +130,25 @@ public class EffectTest {
         assertFalse(effect.check(input, output, pollution));
     }
 
+    @Test
+    public void arbitraryBasic_resourceOrder_doesNotMatter() {
+        Effect effect = new ArbitraryBasic(Arrays.asList(Resource.GREEN, Resource.MONEY));
+
+        assertTrue(effect.check(new ArrayList<>(), Arrays.asList(Resource.MONEY, Resource.GREEN), 0));
+        assertTrue(effect.check(ResourceBag.EMPTY, ResourceBag.of(Resource.MONEY, Resource.GREEN), 0));
+        assertFalse(effect.check(ResourceBag.of(Resource.RED), ResourceBag.of(Resource.MONEY, Resource.GREEN), 0));
+    }
+
+    @Test
+    public void arbitraryBasic_tooManyOfOneKind_shouldReturnFalse() {
+        List<Resource> to = new ArrayList<>(Collections.nCopies(100, Resource.GREEN));
+        to.addAll(Collections.nCopies(100, Resource.MONEY));
+        Effect effect = new ArbitraryBasic(to);
+
+        assertTrue(effect.check(new ArrayList<>(), to, 0));
+        assertFalse(effect.check(new ArrayList<>(), Collections.nCopies(200, Resource.GREEN), 0));
+    }
+
     //EffectOr
 
     @Test
@@ -152,6 +205,51 @@ public class EffectTest {
         assertTrue(orEffect.hasAssistance());
     }
 
+    @Test
+    public void effectOr_manyAlternatives_usesLowestPollutionRequirement() {
+        List<Effect> alternatives = new ArrayList<>();
+        for (Resource resource : Resource.values()) {
+            alternatives.add(new TransformationFixed(Arrays.asList(resource), Arrays.asList(Resource.CAR), 3));
+        }
+        alternatives.add(new TransformationFixed(Arrays.asList(Resource.GREEN), Arrays.asList(Resource.CAR), 1));
+        Effect orEffect = new EffectOr(alternatives);
+
+        assertTrue(orEffect.check(Arrays.asList(Resource.GREEN), Arrays.asList(Resource.CAR), 1));
+        assertFalse(orEffect.check(Arrays.asList(Resource.RED), Arrays.asList(Resource.CAR), 1));
+        assertTrue(orEffect.check(ResourceBag.of(Resource.RED), ResourceBag.of(Resource.CAR), 3));
+        assertFalse(orEffect.check(ResourceBag.of(Resource.RED), ResourceBag.of(Resource.GEAR), 3));
+        assertEquals(alternatives.size(), orEffect.signatures().size());
+    }
+
+    @Test
+    public void effectOr_openEndedSubEffect_isStillChecked() {
+        Effect openEnded = new Effect() {
+            @Override
+            public boolean check(List<Resource> input, List<Resource> output, int pollution) {
+                return input.size() == output.size();
+            }
+            @Override
+            public boolean hasAssistance() {
+                return false;
+            }
+            @Override
+            public String state() {
+                return "SameSizeEffect";
+            }
+        };
+        Effect inner = new EffectOr(Arrays.asList(new ArbitraryBasic(Arrays.asList(Resource.MONEY)), openEnded));
+        Effect orEffect = new EffectOr(Arrays.asList(
+                new TransformationFixed(Arrays.asList(Resource.GREEN, Resource.RED), Arrays.asList(Resource.BULB), 0),
+                inner));
+
+        assertTrue(orEffect.check(Arrays.asList(Resource.RED, Resource.GREEN), Arrays.asList(Resource.BULB), 0));
+        assertTrue(orEffect.check(new ArrayList<>(), Arrays.asList(Resource.MONEY), 0));
+        assertTrue(orEffect.check(ResourceBag.of(Resource.YELLOW), ResourceBag.of(Resource.GEAR), 0));
+        assertFalse(orEffect.check(ResourceBag.of(Resource.YELLOW), ResourceBag.EMPTY, 0));
+        assertTrue(inner.signatures().isEmpty());
+        assertTrue(orEffect.signatures().isEmpty());
+    }
+
     // state
 
     @Test
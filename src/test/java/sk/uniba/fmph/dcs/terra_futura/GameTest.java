@@ -0,0 +1,486 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Before;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.deck.Pile;
+import sk.uniba.fmph.dcs.terra_futura.effect.TransformationFixed;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.GameState;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.pile.MultiDeckPile;
+import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class GameTest {
+
+    private static final GridPosition CENTER = new GridPosition(0, 0);
+
+    private Game game;
+
+    @Before
+    public void setUp() {
+        Map<Integer, Grid> grids = Map.of(1, new GridImpl(), 2, new GridImpl());
+        game = new Game(new int[]{1, 2}, grids, new FakePile(), 1);
+    }
+
+    private ActionResult tryActivate(final int playerId) {
+        return game.tryActivateCard(playerId, CENTER, List.of(), List.of(), List.of(),
+                Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    public void testTryActivateCardInWrongState() {
+        assertEquals(ActionResult.WRONG_STATE, tryActivate(1));
+        assertEquals(GameState.TAKE_CARD_NO_CARD_DISCARDED, game.getState());
+    }
+
+    @Test
+    public void testTryActivateCardReportsRejections() {
+        assertTrue(game.takeCard(1, new CardSource(Deck.I, 0), CENTER));
+
+        assertEquals(ActionResult.NOT_ON_TURN, tryActivate(2));
+        assertEquals(ActionResult.NOT_ACTIVATABLE, game.tryActivateCard(1, new GridPosition(1, 0),
+                List.of(), List.of(), List.of(), Optional.empty(), Optional.empty()));
+        assertEquals(GameState.ACTIVATE_CARD, game.getState());
+    }
+
+    @Test
+    public void testTryActivateCardWithRequest() {
+        ActivationRequest request = new ActivationRequest().card(CENTER);
+        assertEquals(ActionResult.WRONG_STATE, game.tryActivateCard(1, request));
+
+        assertTrue(game.takeCard(1, new CardSource(Deck.I, 0), CENTER));
+
+        assertEquals(ActionResult.NOT_ON_TURN, game.tryActivateCard(2, request));
+        assertEquals(ActionResult.NOT_ACTIVATABLE, game.tryActivateCard(1, request.clear().card(new GridPosition(0, 1))));
+    }
+
+    @Test
+    public void testTrySelectRewardInWrongState() {
+        assertEquals(ActionResult.WRONG_STATE, game.trySelectReward(1, Resource.GREEN));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testActivateCardStillThrows() {
+        game.activateCard(1, CENTER, List.of(), List.of(), List.of(), Optional.empty(), Optional.empty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSelectRewardStillThrows() {
+        game.selectReward(1, Resource.GREEN);
+    }
+
+    @Test
+    public void testSnapshotRestoresGame() {
+        CardCatalog catalog = new CardCatalog();
+        int id = catalog.register(List.of(Resource.GREEN, Resource.GREEN), 1, null, null);
+        Game original = new Game(new int[]{7, -4, 2}, TestGames.gridsOf(7, -4, 2),
+                new PileImpl(TestGames.cardsOf(catalog, 6, id)), 2);
+        assertTrue(original.takeCard(2, new CardSource(Deck.I, 1), CENTER));
+        assertTrue(original.turnFinished(2));
+        assertTrue(original.discardLastCardInDeck(7, Deck.I));
+
+        ByteBuffer snapshot = original.snapshot();
+        Game restored = Game.restore(snapshot, catalog);
+
+        assertEquals(original.getState(), restored.getState());
+        assertEquals(original.getCurrentPlayerOnTurn(), restored.getCurrentPlayerOnTurn());
+        assertEquals(original.getTurnNumber(), restored.getTurnNumber());
+        assertEquals(original.getStartingPlayer(), restored.getStartingPlayer());
+        assertEquals(original.snapshot(), restored.snapshot());
+
+        assertTrue(restored.takeCard(7, new CardSource(Deck.I, 0), CENTER));
+        assertFalse(restored.takeCard(2, new CardSource(Deck.I, 0), new GridPosition(0, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRestoreRejectsOtherData() {
+        Game.restore(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 1}), new CardCatalog());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotNeedsSnapshotablePile() {
+        game.snapshot();
+    }
+
+    /**
+     * Single player game with cards placed in one turn each, the last one in the activation phase.
+     */
+    private static Game gameWithCardsAt(final GridPosition... positions) {
+        CardCatalog catalog = new CardCatalog();
+        int id = catalog.register(List.of(), 1, null, null);
+        Game solo = TestGames.newGame(TestGames.cardsOf(catalog, positions.length + 4, id), 1);
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0) {
+                assertTrue(solo.turnFinished(1));
+            }
+            assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), positions[i]));
+        }
+        return solo;
+    }
+
+    @Test
+    public void testPlacedCardActivatesItsRowAndColumn() {
+        GridPosition inRow = new GridPosition(1, 0);
+        GridPosition inColumn = new GridPosition(0, -1);
+        GridPosition elsewhere = new GridPosition(1, 1);
+        Game solo = gameWithCardsAt(inRow, inColumn, elsewhere, CENTER);
+        ActivationRequest request = new ActivationRequest();
+
+        assertEquals(ActionResult.NOT_ACTIVATABLE, solo.tryActivateCard(1, request.clear().card(elsewhere)));
+        assertEquals(ActionResult.OK, solo.tryActivateCard(1, request.clear().card(inRow)));
+        assertEquals(ActionResult.OK, solo.tryActivateCard(1, request.clear().card(inColumn)));
+        assertEquals(ActionResult.OK, solo.tryActivateCard(1, request.clear().card(CENTER)));
+    }
+
+    @Test
+    public void testCardIsActivatedOncePerTurn() {
+        GridPosition inRow = new GridPosition(1, 0);
+        Game solo = gameWithCardsAt(inRow, CENTER);
+        ActivationRequest request = new ActivationRequest().card(inRow);
+
+        assertEquals(ActionResult.OK, solo.tryActivateCard(1, request));
+        assertEquals(ActionResult.NOT_ACTIVATABLE, solo.tryActivateCard(1, request));
+        assertEquals(GameState.ACTIVATE_CARD, solo.getState());
+
+        // The next placement in the same column activates the card again
+        assertTrue(solo.turnFinished(1));
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(1, 1)));
+        assertEquals(ActionResult.OK, solo.tryActivateCard(1, request));
+    }
+
+    private static Game gameWithAssistedCard(final GridImpl assistingGrid) {
+        Card assisted = new CardImpl(new ArrayList<>(), 1, null, null) {
+            @Override
+            public boolean hasAssistance() {
+                return true;
+            }
+        };
+        assistingGrid.putCard(CENTER, new CardImpl(new ArrayList<>(), 1, null, null));
+        Game duo = new Game(new int[]{1, 2}, Map.of(1, new GridImpl(), 2, assistingGrid),
+                new PileImpl(new ArrayList<>(List.of(assisted))), 1);
+        assertTrue(duo.takeCard(1, new CardSource(Deck.I, 0), CENTER));
+        return duo;
+    }
+
+    @Test
+    public void testAssistedActivationMarksCardOnce() {
+        Game duo = gameWithAssistedCard(new GridImpl());
+        ActivationRequest request = new ActivationRequest().card(CENTER).assistance(2, CENTER);
+
+        assertEquals(ActionResult.OK, duo.tryActivateCard(1, request));
+        assertEquals(GameState.ACTIVATE_CARD, duo.getState());
+        assertEquals(ActionResult.NOT_ACTIVATABLE, duo.tryActivateCard(1, request));
+    }
+
+    @Test
+    public void testAssistedActivationWithListsMarksCardOnce() {
+        GridImpl assistingGrid = new GridImpl();
+        Game duo = gameWithAssistedCard(assistingGrid);
+        Optional<Card> assisting = assistingGrid.getCard(CENTER);
+
+        assertEquals(ActionResult.OK, duo.tryActivateCard(1, CENTER, List.of(), List.of(), List.of(),
+                Optional.of(2), assisting));
+        assertEquals(ActionResult.NOT_ACTIVATABLE, duo.tryActivateCard(1, CENTER, List.of(), List.of(),
+                List.of(), Optional.of(2), assisting));
+    }
+
+    private static List<Move> toList(final Iterator<Move> moves) {
+        List<Move> list = new ArrayList<>();
+        moves.forEachRemaining(list::add);
+        return list;
+    }
+
+    /**
+     * Single player game with two cards producing a bulb from a green resource and one pollution,
+     * both placed in the column of the center, in the activation phase of the second turn.
+     */
+    private static Game gameWithTwoCards(final CardCatalog catalog) {
+        int id = catalog.register(List.of(Resource.GREEN), 1,
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1), null);
+        Game solo = TestGames.newGame(TestGames.cardsOf(catalog, 6, id), 1);
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(0, 1)));
+        assertTrue(solo.turnFinished(1));
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), CENTER));
+        return solo;
+    }
+
+    @Test
+    public void testLegalMovesWhenTakingCard() {
+        CardCatalog catalog = new CardCatalog();
+        int id = catalog.register(List.of(), 1, null, null);
+        Game fresh = TestGames.newGame(TestGames.cardsOf(catalog, 6, id), 1, 2);
+
+        List<Move> moves = toList(fresh.legalMoves());
+        assertEquals(4 * GridPosition.CELL_COUNT + 1, moves.size());
+        assertTrue(moves.contains(new Move.TakeCard(new CardSource(Deck.I, 3), new GridPosition(2, -2))));
+        assertTrue(moves.contains(new Move.DiscardLastCard(Deck.I)));
+
+        assertEquals(ActionResult.OK, new Move.DiscardLastCard(Deck.I).applyTo(fresh, 1));
+        assertEquals(4 * GridPosition.CELL_COUNT, toList(fresh.legalMoves()).size());
+    }
+
+    @Test
+    public void testLegalActivationsAllSucceed() {
+        CardCatalog catalog = new CardCatalog();
+        Game solo = gameWithTwoCards(catalog);
+
+        List<Move> moves = toList(solo.legalMoves());
+        // Per card: the green comes from either card and the pollution goes to either card
+        assertEquals(2 * 4 + 1, moves.size());
+        assertTrue(moves.contains(new Move.FinishTurn()));
+        ByteBuffer snapshot = solo.snapshot();
+        for (Move move : moves) {
+            Game copy = Game.restore(snapshot.duplicate(), catalog);
+            assertEquals(move.toString(), ActionResult.OK, move.applyTo(copy, 1));
+        }
+    }
+
+    @Test
+    public void testActivatedCardIsNotListedAgain() {
+        Game solo = gameWithTwoCards(new CardCatalog());
+        Move first = solo.legalMoves().next();
+        assertEquals(ActionResult.OK, first.applyTo(solo, 1));
+
+        GridPosition activated = ((Move.ActivateCard) first).request().getCard();
+        for (Move move : toList(solo.legalMoves())) {
+            if (move instanceof Move.ActivateCard activation) {
+                assertNotEquals(activated, activation.request().getCard());
+            }
+        }
+        assertEquals(ActionResult.NOT_ACTIVATABLE, first.applyTo(solo, 1));
+    }
+
+    @Test
+    public void testUnmakeMoveRestoresEveryLegalMove() {
+        CardCatalog catalog = new CardCatalog();
+        Game solo = gameWithTwoCards(catalog);
+        ByteBuffer before = solo.snapshot();
+        for (Move move : toList(solo.legalMoves())) {
+            assertEquals(move.toString(), ActionResult.OK, solo.makeMove(move));
+            // One level deeper
+            for (Move reply : toList(solo.legalMoves())) {
+                solo.makeMove(reply);
+                solo.unmakeMove();
+            }
+            solo.unmakeMove();
+            assertEquals(move.toString(), before, solo.snapshot());
+        }
+        assertEquals(GameState.ACTIVATE_CARD, solo.getState());
+    }
+
+    @Test
+    public void testUnmakeMovesOfWholeLine() {
+        CardCatalog catalog = new CardCatalog();
+        int id = catalog.register(List.of(Resource.GREEN), 2,
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1), null);
+        Game duo = TestGames.newGame(TestGames.cardsOf(catalog, 8, id), 1, 2);
+        List<ByteBuffer> line = new ArrayList<>();
+        line.add(duo.snapshot());
+        for (int ply = 0; ply < 12 && duo.legalMoves().hasNext(); ply++) {
+            // The last move is finishing the turn or discarding, the first one takes or activates a card
+            List<Move> moves = toList(duo.legalMoves());
+            Move move = moves.get(ply % 3 == 2 ? moves.size() - 1 : 0);
+            assertEquals(move.toString(), ActionResult.OK, duo.makeMove(move));
+            line.add(duo.snapshot());
+        }
+        assertTrue(duo.getTurnNumber() > 1);
+        for (int ply = line.size() - 1; ply > 0; ply--) {
+            assertEquals(line.get(ply), duo.snapshot());
+            duo.unmakeMove();
+        }
+        assertEquals(line.get(0), duo.snapshot());
+    }
+
+    @Test
+    public void testRejectedMoveIsUnmade() {
+        Game solo = gameWithTwoCards(new CardCatalog());
+        ByteBuffer before = solo.snapshot();
+        assertEquals(ActionResult.WRONG_STATE, solo.makeMove(new Move.SelectReward(Resource.GREEN)));
+        solo.unmakeMove();
+        assertEquals(before, solo.snapshot());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnmakeWithoutMove() {
+        gameWithTwoCards(new CardCatalog()).unmakeMove();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMakeMoveNeedsUndoablePile() {
+        game.makeMove(new Move.FinishTurn());
+    }
+
+    @Test
+    public void testForkIsIndependent() {
+        CardCatalog catalog = new CardCatalog();
+        Game solo = gameWithTwoCards(catalog);
+        ByteBuffer before = solo.snapshot();
+        Game fork = solo.fork();
+        assertEquals(before, fork.snapshot());
+
+        // Activate, then take the same pile card as the original will and activate it again
+        assertEquals(ActionResult.OK, fork.makeMove(fork.legalMoves().next()));
+        assertTrue(fork.turnFinished(1));
+        assertTrue(fork.discardLastCardInDeck(1, Deck.I));
+        assertTrue(fork.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(0, -1)));
+        assertEquals(ActionResult.OK, fork.makeMove(fork.legalMoves().next()));
+        assertEquals(before, solo.snapshot());
+
+        ByteBuffer forked = fork.snapshot();
+        assertTrue(solo.turnFinished(1));
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(0, -1)));
+        assertEquals(ActionResult.OK, solo.makeMove(solo.legalMoves().next()));
+        assertEquals(forked, fork.snapshot());
+
+        solo.unmakeMove();
+        assertEquals(forked, fork.snapshot());
+    }
+
+    @Test
+    public void testForkedGameCopiesTakenCards() {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            cards.add(new CardImpl(new ArrayList<>(), 1, null, null));
+        }
+        GridImpl grid = new GridImpl();
+        Game solo = new Game(new int[]{1}, Map.of(1, grid), new PileImpl(new ArrayList<>(cards)), 1);
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), CENTER));
+        assertSame(cards.get(5), grid.getCard(CENTER).get());
+        assertTrue(solo.turnFinished(1));
+
+        solo.fork();
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(0, 1)));
+        Card placed = grid.getCard(new GridPosition(0, 1)).get();
+        assertNotSame(cards.get(1), placed);
+        assertFalse(cards.contains(placed));
+    }
+
+    @Test
+    public void testDecksAreDrawnSeparately() {
+        CardCatalog catalog = new CardCatalog();
+        int first = catalog.register(List.of(Resource.GREEN), 1, null, null);
+        int second = catalog.register(List.of(Resource.RED), 1, null, null);
+        GridImpl grid = new GridImpl();
+        Game duo = new Game(new int[]{1, 2}, Map.of(1, grid, 2, new GridImpl()),
+                new MultiDeckPile(new PileImpl(TestGames.cardsOf(catalog, 6, first)),
+                        new PileImpl(TestGames.cardsOf(catalog, 5, second))), 1);
+
+        List<Move> moves = toList(duo.legalMoves());
+        assertTrue(moves.contains(new Move.TakeCard(new CardSource(Deck.II, 3), CENTER)));
+        assertTrue(moves.contains(new Move.DiscardLastCard(Deck.II)));
+        assertFalse(moves.contains(new Move.TakeCard(new CardSource(Deck.II, 4), CENTER)));
+
+        long start = duo.hash();
+        ByteBuffer before = duo.snapshot();
+        assertEquals(ActionResult.OK, duo.makeMove(new Move.DiscardLastCard(Deck.II)));
+        assertEquals(ActionResult.OK, duo.makeMove(new Move.TakeCard(new CardSource(Deck.II, 0), CENTER)));
+        assertEquals(second, ((CardImpl) grid.getCard(CENTER).get()).getCatalogId());
+        assertNotEquals(start, duo.hash());
+        assertEquals(duo.snapshot(), Game.restore(duo.snapshot(), catalog).snapshot());
+        assertEquals(duo.hash(), Game.restore(duo.snapshot(), catalog).hash());
+
+        duo.unmakeMove();
+        duo.unmakeMove();
+        assertEquals(start, duo.hash());
+        assertEquals(before, duo.snapshot());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testForkNeedsForkablePile() {
+        game.fork();
+    }
+
+    @Test
+    public void testHashFollowsMoves() {
+        CardCatalog catalog = new CardCatalog();
+        Game solo = gameWithTwoCards(catalog);
+        long before = solo.hash();
+        assertEquals(before, Game.restore(solo.snapshot(), catalog).hash());
+        assertEquals(before, solo.fork().hash());
+        for (Move move : toList(solo.legalMoves())) {
+            solo.makeMove(move);
+            assertNotEquals(move.toString(), before, solo.hash());
+            // The incrementally updated hash equals the one computed from scratch
+            assertEquals(move.toString(), Game.restore(solo.snapshot(), catalog).hash(), solo.hash());
+            solo.unmakeMove();
+            assertEquals(before, solo.hash());
+        }
+    }
+
+    @Test
+    public void testTransposedMovesHashEqually() {
+        Game solo = gameWithTwoCards(new CardCatalog());
+        GridPosition upper = new GridPosition(0, 1);
+        Move first = new Move.ActivateCard(new ActivationRequest().card(upper)
+                .input(Resource.GREEN, upper).pollution(upper).output(Resource.BULB, upper));
+        Move second = new Move.ActivateCard(new ActivationRequest().card(CENTER)
+                .input(Resource.GREEN, CENTER).pollution(CENTER).output(Resource.BULB, CENTER));
+
+        Game reversed = solo.fork();
+        assertEquals(ActionResult.OK, solo.makeMove(first));
+        assertEquals(ActionResult.OK, solo.makeMove(second));
+        assertEquals(ActionResult.OK, reversed.makeMove(second));
+        assertNotEquals(solo.hash(), reversed.hash());
+        assertEquals(ActionResult.OK, reversed.makeMove(first));
+
+        assertEquals(solo.snapshot(), reversed.snapshot());
+        assertEquals(solo.hash(), reversed.hash());
+    }
+
+    @Test
+    public void testHashAlongWholeLine() {
+        CardCatalog catalog = new CardCatalog();
+        Game solo = gameWithTwoCards(catalog);
+        for (int ply = 0; ply < 12 && solo.legalMoves().hasNext(); ply++) {
+            List<Move> moves = toList(solo.legalMoves());
+            assertEquals(ActionResult.OK, moves.get(moves.size() / 2).applyTo(solo, 1));
+            assertEquals(Game.restore(solo.snapshot(), catalog).hash(), solo.hash());
+        }
+    }
+
+    @Test
+    public void testNoMovesForPlayerWithoutGrid() {
+        Game noGrids = new Game(new int[]{1}, Map.of(), new FakePile(), 1);
+        assertFalse(noGrids.legalMoves().hasNext());
+    }
+
+    private static class FakePile implements Pile {
+        @Override
+        public Optional<Card> getCard(int index) {
+            return Optional.of(new CardImpl(new ArrayList<>(), 1, null, null));
+        }
+
+        @Override
+        public void takeCard(int cardIndex) {
+        }
+
+        @Override
+        public void removeLastCard() {
+        }
+
+        @Override
+        public String state() {
+            return "{}";
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.ActivationPattern;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
 
@@ -192,6 +193,41 @@ public class GridTest {
         assertFalse(grid.canBeActivated(P2));
     }
 
+    /**
+     * SITUATION 6b:
+     * The grid covers coordinates -2..2 around the starting card.
+     * Positions outside of that area can never hold a card.
+     */
+    @Test
+    public void testPositionsOutsideGridAreaAreRejected() {
+        GridPosition corner = new GridPosition(-2, 2);
+        GridPosition outside = new GridPosition(3, 0);
+
+        assertTrue(grid.canPutCard(corner));
+        grid.putCard(corner, new TestCard());
+        assertTrue(grid.getCard(corner).isPresent());
+        assertFalse(grid.canPutCard(corner));
+
+        assertFalse(grid.canPutCard(outside));
+        assertTrue(grid.getCard(outside).isEmpty());
+        grid.setActivationPattern(List.of(outside));
+        assertFalse(grid.canBeActivated(outside));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPutCardOutsideGridAreaThrows() {
+        grid.putCard(new GridPosition(0, -3), new TestCard());
+    }
+
+    @Test
+    public void testStateListsActivatedPositions() {
+        grid.putCard(P0, new TestCard());
+        grid.setActivationPattern(List.of(P0));
+        grid.setActivated(P0);
+
+        assertTrue(grid.state().contains("activatedThisTurn=[GridPosition[x=0, y=0]]"));
+    }
+
     /**
      * SITUATION 7:
      * My GridImpl has TWO setActivationPattern methods:
@@ -217,4 +253,83 @@ public class GridTest {
         // Activation still impossible (pattern remained empty)
         assertFalse(grid.canBeActivated(P0));
     }
+
+    /**
+     * SITUATION 8:
+     * Selecting an ActivationPattern on the grid hands it over as a cell bitmask.
+     * Only cards covered by the pattern become activatable, and endTurn resets it.
+     */
+    @Test
+    public void testActivationPatternSelectedOnGrid() {
+        grid.putCard(P0, new TestCard());
+        grid.putCard(P1, new TestCard());
+        grid.putCard(P2, new TestCard());
+
+        ActivationPattern pattern = new ActivationPattern(grid, List.of(
+                new AbstractMap.SimpleEntry<>(0, 0),
+                new AbstractMap.SimpleEntry<>(-1, 0),
+                new AbstractMap.SimpleEntry<>(7, 7)));
+        assertEquals(P0.bit() | P2.bit(), pattern.getCellMask());
+
+        pattern.select();
+
+        assertTrue(grid.canBeActivated(P0));
+        assertTrue(grid.canBeActivated(P2));
+        assertFalse(grid.canBeActivated(P1));
+
+        grid.endTurn();
+        assertFalse(grid.canBeActivated(P0));
+        assertFalse(grid.canBeActivated(P2));
+    }
+
+    /**
+     * SITUATION 9:
+     * Plain coordinate pairs set the same pattern as the bitmask variant.
+     */
+    @Test
+    public void testSetActivationPatternFromCoordinatePairs() {
+        grid.putCard(P1, new TestCard());
+
+        grid.setActivationPattern(List.of(new AbstractMap.SimpleEntry<>(1, 1)));
+
+        assertTrue(grid.canBeActivated(P1));
+        assertTrue(grid.state().contains("activationPattern=[GridPosition[x=1, y=1]]"));
+    }
+
+    /**
+     * SITUATION 10:
+     * The grid finds a card instance by identity and reports the occupied
+     * cells in its row and column without scanning.
+     */
+    @Test
+    public void testFindCardAndLineNeighbours() {
+        Card center = new TestCard();
+        Card sameRow = new TestCard();
+        Card sameColumn = new TestCard();
+        Card diagonal = new TestCard();
+        GridPosition rowPos = new GridPosition(-1, 1);
+        GridPosition columnPos = new GridPosition(1, -2);
+
+        grid.putCard(P1, center);
+        grid.putCard(rowPos, sameRow);
+        grid.putCard(columnPos, sameColumn);
+        grid.putCard(P0, diagonal);
+
+        assertEquals(Optional.of(P1), grid.findCard(center));
+        assertEquals(Optional.of(rowPos), grid.findCard(sameRow));
+        assertTrue(grid.findCard(new TestCard()).isEmpty());
+
+        assertEquals(rowPos.bit() | columnPos.bit(), grid.getLineNeighbours(P1));
+        assertEquals(0, grid.getLineNeighbours(new GridPosition(2, 2)));
+        assertEquals(0, grid.getLineNeighbours(new GridPosition(5, 5)));
+    }
+
+    @Test
+    public void testCardIsActivatedOncePerTurn() {
+        grid.putCard(P0, new TestCard());
+        grid.setActivationPattern(List.of(P0));
+        grid.setActivated(P0);
+
+        assertFalse(grid.canBeActivated(P0));
+    }
 }
@@ -0,0 +1,51 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
+import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Games and card lists shared by the tests.
+ */
+public final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Creates cards of the catalog, taking the ids in turn.
+     */
+    public static List<Card> cardsOf(final CardCatalog catalog, final int count, final int... ids) {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cards.add(catalog.create(ids[i % ids.length]));
+        }
+        return cards;
+    }
+
+    /**
+     * Creates an empty grid for every player.
+     */
+    public static Map<Integer, Grid> gridsOf(final int... players) {
+        Map<Integer, Grid> grids = new HashMap<>();
+        for (int player : players) {
+            grids.put(player, new GridImpl());
+        }
+        return grids;
+    }
+
+    /**
+     * Creates a game with empty grids, all cards in Deck I and the first player on turn.
+     */
+    public static Game newGame(final List<Card> cards, final int... players) {
+        return new Game(players, gridsOf(players), new PileImpl(cards), players[0]);
+    }
+}
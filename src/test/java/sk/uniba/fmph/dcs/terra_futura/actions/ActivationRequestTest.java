@@ -0,0 +1,64 @@
+package sk.uniba.fmph.dcs.terra_futura.actions;
+
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+import static org.junit.Assert.*;
+
+public class ActivationRequestTest {
+
+    @Test
+    public void testEncodeRoundTrip() {
+        for (Resource resource : Resource.values()) {
+            int encoded = ActivationRequest.encode(resource, new GridPosition(-2, 2));
+            assertEquals(resource, ActivationRequest.resourceOf(encoded));
+            assertEquals(new GridPosition(-2, 2), ActivationRequest.positionOf(encoded));
+        }
+    }
+
+    @Test
+    public void testRequestKeepsMovementsInOrder() {
+        ActivationRequest request = new ActivationRequest()
+                .card(new GridPosition(0, 0))
+                .input(Resource.GREEN, new GridPosition(0, 1))
+                .input(Resource.RED, new GridPosition(1, 0))
+                .output(Resource.CAR, new GridPosition(0, 0))
+                .pollution(new GridPosition(1, 1));
+
+        assertEquals(new GridPosition(0, 0), request.getCard());
+        assertEquals(2, request.getInputCount());
+        assertEquals(Resource.RED, ActivationRequest.resourceOf(request.getInput(1)));
+        assertEquals(new GridPosition(1, 0), ActivationRequest.positionOf(request.getInput(1)));
+        assertEquals(1, request.getOutputCount());
+        assertEquals(new GridPosition(1, 1), request.getPollution(0));
+        assertFalse(request.hasAssistance());
+    }
+
+    @Test
+    public void testClearAllowsReuse() {
+        ActivationRequest request = new ActivationRequest().card(new GridPosition(0, 0));
+        for (int i = 0; i < 20; i++) {
+            request.input(Resource.MONEY, new GridPosition(0, 0));
+        }
+        request.assistance(2, new GridPosition(1, 1));
+        assertEquals(20, request.getInputCount());
+        assertTrue(request.hasAssistance());
+
+        request.clear().card(new GridPosition(1, 1)).output(Resource.BULB, new GridPosition(1, 1));
+
+        assertEquals(0, request.getInputCount());
+        assertEquals(1, request.getOutputCount());
+        assertFalse(request.hasAssistance());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPositionOutsideGridIsRejected() {
+        new ActivationRequest().input(Resource.GREEN, new GridPosition(3, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingCardIsReported() {
+        new ActivationRequest().getCard();
+    }
+}
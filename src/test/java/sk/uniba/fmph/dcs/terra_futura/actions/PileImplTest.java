@@ -6,10 +6,13 @@ import org.junit.Test;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
 import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
 import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.SplittableRandom;
 
 public class PileImplTest {
 
@@ -145,4 +148,81 @@ public class PileImplTest {
                     || e instanceof java.util.NoSuchElementException);
         }
     }
+
+    private static List<Card> drawAll(final PileImpl source) {
+        List<Card> drawn = new ArrayList<>();
+        while (source.getCard(0).isPresent()) {
+            drawn.add(source.getCard(0).get());
+            source.takeCard(0);
+        }
+        return drawn;
+    }
+
+    @Test
+    public void testSameSeedGivesSameOrder() {
+        List<Card> order = drawAll(PileImpl.shuffled(sourceCards, 12345L));
+        Assert.assertEquals(order, drawAll(PileImpl.shuffled(sourceCards, 12345L)));
+        Assert.assertNotEquals(order, drawAll(PileImpl.shuffled(sourceCards, 54321L)));
+        Assert.assertEquals(new HashSet<>(sourceCards), new HashSet<>(order));
+        Assert.assertEquals(10, sourceCards.size());
+    }
+
+    @Test
+    public void testSplitGeneratorsAreReproducible() {
+        SplittableRandom first = new SplittableRandom(7);
+        SplittableRandom second = new SplittableRandom(7);
+        SplittableRandom worker = first.split();
+        Assert.assertEquals(drawAll(PileImpl.shuffled(sourceCards, worker)),
+                drawAll(PileImpl.shuffled(sourceCards, second.split())));
+    }
+
+    private static List<Card> visible(final PileImpl source) {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; source.getCard(i).isPresent(); i++) {
+            cards.add(source.getCard(i).get());
+        }
+        return cards;
+    }
+
+    @Test
+    public void testDrawsAndUndoKeepVisibleOrder() {
+        UndoLog log = new UndoLog();
+        pile.setUndoLog(log);
+        List<Card> hidden = new ArrayList<>(sourceCards.subList(0, 6));
+        List<Card> expected = visible(pile);
+        List<List<Card>> history = new ArrayList<>();
+        int[] takes = {2, 3, -1, 0, 1, -1, 3, 0, -1, 0};
+        for (int index : takes) {
+            history.add(new ArrayList<>(expected));
+            log.mark();
+            if (index < 0) {
+                pile.removeLastCard();
+                expected.remove(expected.size() - 1);
+            } else {
+                pile.takeCard(index);
+                expected.remove(index);
+            }
+            if (!hidden.isEmpty()) {
+                expected.add(0, hidden.remove(hidden.size() - 1));
+            }
+            Assert.assertEquals(expected, visible(pile));
+        }
+        for (int i = history.size() - 1; i >= 0; i--) {
+            log.undo();
+            Assert.assertEquals(history.get(i), visible(pile));
+        }
+        Assert.assertEquals(drawAll(new PileImpl(sourceCards)), drawAll(pile));
+    }
+
+    @Test
+    public void testForkSharesNoVisibleRow() {
+        PileImpl fork = pile.fork();
+        fork.takeCard(0);
+        Assert.assertEquals(sourceCards.get(9), pile.getCard(0).get());
+        Assert.assertEquals(sourceCards.get(5), fork.getCard(0).get());
+        pile.removeLastCard();
+        Assert.assertEquals(sourceCards.get(5), pile.getCard(0).get());
+        Assert.assertEquals(sourceCards.get(9), pile.getCard(1).get());
+        Assert.assertEquals(sourceCards.get(5), fork.getCard(0).get());
+    }
 }
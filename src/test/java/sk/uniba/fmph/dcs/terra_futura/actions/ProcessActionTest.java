@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.Test;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
 import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
 import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
 import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
 
@@ -382,6 +383,47 @@ public class ProcessActionTest {
         assertTrue("activateCard should return true with empty lists", result);
     }
 
+    @Test
+    public void testActivateCardRollsBackWhenCardFailsMidway() {
+        CardImpl source = new CardImpl(new ArrayList<>(List.of(Resource.GREEN, Resource.GREEN)), 1, null, null);
+        FakeCard failing = new FakeCard() {
+            @Override
+            public void putResources(List<Resource> resources) {
+                throw new IllegalStateException("Card storage failed");
+            }
+        };
+        grid.putCard(new GridPosition(2, 2), source);
+        grid.putCard(new GridPosition(3, 3), failing);
+
+        List<Pair<Resource, GridPosition>> inputs = List.of(
+                Pair.of(Resource.GREEN, new GridPosition(2, 2)),
+                Pair.of(Resource.GREEN, new GridPosition(2, 2)));
+        List<Pair<Resource, GridPosition>> outputs = List.of(
+                Pair.of(Resource.CAR, new GridPosition(3, 3)));
+
+        boolean result = processAction.activateCard(source, grid, inputs, outputs, List.of());
+
+        assertFalse("activateCard should fail when a card throws midway", result);
+        assertTrue("Taken resources should be restored",
+                source.canGetResources(List.of(Resource.GREEN, Resource.GREEN)));
+    }
+
+    @Test
+    public void testActivateCardWithRequest() {
+        card1.addResourcesToCard(List.of(Resource.GREEN, Resource.RED));
+        ActivationRequest request = new ActivationRequest()
+                .card(new GridPosition(0, 0))
+                .input(Resource.GREEN, new GridPosition(0, 0))
+                .output(Resource.YELLOW, new GridPosition(1, 1))
+                .pollution(new GridPosition(1, 1));
+
+        assertTrue(processAction.activateCard(card1, grid, request));
+        assertEquals(List.of(Resource.YELLOW, Resource.POLLUTION), card2.getReceivedResources());
+
+        request.clear().card(new GridPosition(0, 0)).input(Resource.GREEN, new GridPosition(0, 0));
+        assertFalse("GREEN was already taken", processAction.activateCard(card1, grid, request));
+    }
+
     // Fake implementations for testing
 
     private static class FakeCard implements Card {
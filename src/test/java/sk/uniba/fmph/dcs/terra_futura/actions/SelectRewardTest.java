@@ -3,6 +3,7 @@ package sk.uniba.fmph.dcs.terra_futura.actions;
 import org.junit.Before;
 import org.junit.Test;
 import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.undo.UndoLog;
 
 import java.util.List;
 
@@ -60,4 +61,20 @@ public class SelectRewardTest {
         assertTrue(selectReward.canSelectReward(Resource.GREEN));
         assertEquals("Player: 1, Selection: [GREEN]", selectReward.state());
     }
+
+    @Test
+    public void testUndoRestoresSelection() {
+        UndoLog log = new UndoLog();
+        selectReward.setUndoLog(log);
+        selectReward.setReward(1, null, List.of(Resource.GREEN, Resource.RED));
+
+        log.mark();
+        selectReward.selectReward(Resource.GREEN);
+        log.mark();
+        selectReward.setReward(2, null, List.of(Resource.YELLOW));
+        log.undo();
+        assertEquals("Player: 1, Selection: [RED]", selectReward.state());
+        log.undo();
+        assertEquals("Player: 1, Selection: [GREEN, RED]", selectReward.state());
+    }
 }
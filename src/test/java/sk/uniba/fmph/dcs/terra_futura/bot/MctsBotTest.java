@@ -0,0 +1,93 @@
+package sk.uniba.fmph.dcs.terra_futura.bot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.TestGames;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.effect.TransformationFixed;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.GameState;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.Move;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+import sk.uniba.fmph.dcs.terra_futura.simulation.Policies;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class MctsBotTest {
+
+    private CardCatalog catalog;
+    private int producer;
+    private MctsBot bot;
+
+    @Before
+    public void setUp() {
+        catalog = new CardCatalog();
+        producer = catalog.register(List.of(Resource.GREEN), 1,
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1), null);
+        bot = new MctsBot(2, Duration.ofSeconds(5), 4000, Policies.random(), 1);
+    }
+
+    @After
+    public void tearDown() {
+        bot.close();
+    }
+
+    private Game newGame(final int[] players, final int cards) {
+        return TestGames.newGame(TestGames.cardsOf(catalog, cards, producer), players);
+    }
+
+    @Test
+    public void testPrefersScoringActivation() {
+        Game solo = newGame(new int[]{1}, 6);
+        assertTrue(solo.takeCard(1, new CardSource(Deck.I, 0), new GridPosition(0, 0)));
+        ByteBuffer before = solo.snapshot();
+
+        Move move = bot.chooseMove(solo);
+
+        assertTrue(move.toString(), move instanceof Move.ActivateCard);
+        assertTrue(bot.getLastIterations() >= 4000);
+        assertEquals(before, solo.snapshot());
+        assertEquals(ActionResult.OK, bot.play(solo));
+    }
+
+    @Test
+    public void testPlaysWholeGame() {
+        MctsBot quick = new MctsBot(2, Duration.ofSeconds(5), 100, Policies.random(), 2);
+        Game duo = newGame(new int[]{1, 2}, 40);
+        SplittableRandom random = new SplittableRandom(3);
+        try {
+            while (duo.legalMoves().hasNext()) {
+                if (duo.getCurrentPlayerOnTurn() == 1) {
+                    assertEquals(ActionResult.OK, quick.play(duo));
+                } else {
+                    List<Move> moves = new ArrayList<>();
+                    duo.legalMoves().forEachRemaining(moves::add);
+                    assertEquals(ActionResult.OK, Policies.random().choose(duo, moves, random).applyTo(duo, 2));
+                }
+            }
+        } finally {
+            quick.close();
+        }
+        assertEquals(GameState.FINISH, duo.getState());
+    }
+
+    @Test
+    public void testNoMoveWithoutLegalMoves() {
+        Game empty = new Game(new int[]{1}, Map.of(), new PileImpl(new ArrayList<>()), 1);
+        assertNull(bot.chooseMove(empty));
+        assertEquals(ActionResult.WRONG_STATE, bot.play(empty));
+    }
+}
@@ -0,0 +1,77 @@
+package sk.uniba.fmph.dcs.terra_futura.hash;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoresAndFindsValues() {
+        TranspositionTable table = new TranspositionTable(16);
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(42));
+        table.put(42, 7);
+        table.put(-5, 0);
+        assertEquals(7, table.get(42));
+        assertEquals(0, table.get(-5));
+        // Same entry, other position
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(42 + 16));
+    }
+
+    @Test
+    public void testEmptyTableHasNoHashZero() {
+        TranspositionTable table = new TranspositionTable(4);
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(0));
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(TranspositionTable.NOT_FOUND));
+    }
+
+    @Test
+    public void testStoreReplacesEntry() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.put(3, 30);
+        table.put(4, 40);
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(3));
+        assertEquals(40, table.get(4));
+        table.clear();
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(4));
+    }
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals(1, new TranspositionTable(1).capacity());
+        assertEquals(4, new TranspositionTable(3).capacity());
+        assertEquals(8, new TranspositionTable(8).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotFoundCannotBeStored() {
+        new TranspositionTable(2).put(1, TranspositionTable.NOT_FOUND);
+    }
+
+    @Test
+    public void testConcurrentWritersNeverYieldForeignValues() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(4);
+        AtomicBoolean wrong = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                for (long i = 0; i < 200_000; i++) {
+                    long hash = i * 31 + seed;
+                    table.put(hash, ~hash);
+                    long value = table.get(hash ^ 1);
+                    if (value != TranspositionTable.NOT_FOUND && value != ~(hash ^ 1)) {
+                        wrong.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(wrong.get());
+    }
+}
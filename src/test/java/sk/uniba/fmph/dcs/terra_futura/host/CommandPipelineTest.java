@@ -0,0 +1,225 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CommandPipelineTest {
+
+    @Test
+    public void testCommandsAreAppliedOncePerGameThread() throws Exception {
+        Map<ActionResult, AtomicInteger> results = new ConcurrentHashMap<>();
+        CommandPipeline pipeline = new CommandPipeline(64, 3,
+                (command, result) -> results.computeIfAbsent(result, k -> new AtomicInteger()).incrementAndGet());
+        List<RecordingGame> games = new ArrayList<>();
+        for (int id = 0; id < 6; id++) {
+            RecordingGame game = new RecordingGame();
+            games.add(game);
+            pipeline.addGame(id, game);
+        }
+        pipeline.start();
+
+        int producers = 4;
+        int commandsPerProducer = 3000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < commandsPerProducer; i++) {
+                    long sequence = pipeline.next();
+                    pipeline.get(sequence).turnFinished(i % games.size(), 1);
+                    pipeline.publish(sequence);
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+        pipeline.close();
+
+        assertEquals(producers * commandsPerProducer, results.get(ActionResult.OK).get());
+        for (RecordingGame game : games) {
+            assertEquals(producers * commandsPerProducer / games.size(), game.turnsFinished);
+            assertFalse("Game was touched by more than one thread", game.sharedBetweenThreads);
+        }
+    }
+
+    @Test
+    public void testResultsOfDifferentCommands() throws Exception {
+        List<ActionResult> results = new ArrayList<>();
+        List<GameCommand.Type> types = new ArrayList<>();
+        CommandPipeline pipeline = new CommandPipeline(8, 1, (command, result) -> {
+            types.add(command.getType());
+            results.add(result);
+        });
+        pipeline.addGame(1, new RecordingGame());
+        pipeline.start();
+
+        long sequence = pipeline.next();
+        pipeline.get(sequence).activateCard(1, 2).card(new GridPosition(0, 0));
+        pipeline.publish(sequence);
+        sequence = pipeline.next();
+        pipeline.get(sequence).takeCard(1, 2, Deck.I, 0, new GridPosition(0, 1));
+        pipeline.publish(sequence);
+        sequence = pipeline.next();
+        pipeline.get(sequence).selectReward(1, 2, Resource.GREEN);
+        pipeline.publish(sequence);
+        sequence = pipeline.next();
+        pipeline.get(sequence).turnFinished(9, 2);
+        pipeline.publish(sequence);
+        pipeline.close();
+
+        assertEquals(List.of(GameCommand.Type.ACTIVATE_CARD, GameCommand.Type.TAKE_CARD,
+                GameCommand.Type.SELECT_REWARD, GameCommand.Type.TURN_FINISHED), types);
+        assertEquals(List.of(ActionResult.NOT_ON_TURN, ActionResult.REJECTED,
+                ActionResult.REJECTED, ActionResult.UNKNOWN_GAME), results);
+        // Only the reward selection threw
+        assertEquals(1, pipeline.getFailureCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailuresDoNotStallTheRing() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CommandPipeline pipeline = new CommandPipeline(2, 1, (command, result) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new AssertionError("listener failed");
+            }
+        });
+        RecordingGame game = new RecordingGame();
+        pipeline.addGame(1, game);
+        pipeline.start();
+
+        for (int i = 0; i < 5; i++) {
+            long sequence = pipeline.next();
+            pipeline.get(sequence).turnFinished(1, 1);
+            pipeline.publish(sequence);
+        }
+        pipeline.close();
+
+        assertEquals(5, game.turnsFinished);
+        assertEquals(5, calls.get());
+        assertEquals(1, pipeline.getFailureCount());
+    }
+
+    @Test
+    public void testTryNextReportsFullRing() throws Exception {
+        CommandPipeline pipeline = new CommandPipeline(4, 1, (command, result) -> { });
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, pipeline.tryNext());
+        }
+        assertEquals(-1, pipeline.tryNext());
+        pipeline.close();
+    }
+
+    @Test
+    public void testCloseWaitsForWorkersWhenInterrupted() {
+        CommandPipeline pipeline = new CommandPipeline(4, 2, (command, result) -> { });
+        pipeline.start();
+        Thread.currentThread().interrupt();
+        pipeline.close();
+        // Clears the status again for the other tests
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePowerOfTwo() {
+        new CommandPipeline(12, 1, (command, result) -> { });
+    }
+
+    /**
+     * Game without any synchronization that notices being used from several threads.
+     */
+    private static class RecordingGame implements TerraFuturaInterface {
+        private int turnsFinished;
+        private Thread owner;
+        private boolean sharedBetweenThreads;
+
+        private void touch() {
+            if (owner == null) {
+                owner = Thread.currentThread();
+            } else if (owner != Thread.currentThread()) {
+                sharedBetweenThreads = true;
+            }
+        }
+
+        @Override
+        public boolean takeCard(int playerId, CardSource source, GridPosition destination) {
+            touch();
+            return false;
+        }
+
+        @Override
+        public boolean discardLastCardInDeck(int playerId, Deck deck) {
+            touch();
+            return false;
+        }
+
+        @Override
+        public void activateCard(int playerId, GridPosition card, List<Pair<Resource, GridPosition>> inputs,
+                List<Pair<Resource, GridPosition>> outputs, List<GridPosition> pollution,
+                Optional<Integer> otherPlayerId, Optional<Card> otherCard) {
+            throw new IllegalStateException("Not supported");
+        }
+
+        @Override
+        public ActionResult tryActivateCard(int playerId, GridPosition card, List<Pair<Resource, GridPosition>> inputs,
+                List<Pair<Resource, GridPosition>> outputs, List<GridPosition> pollution,
+                Optional<Integer> otherPlayerId, Optional<Card> otherCard) {
+            touch();
+            return ActionResult.NOT_ON_TURN;
+        }
+
+        @Override
+        public ActionResult tryActivateCard(int playerId, ActivationRequest request) {
+            touch();
+            return ActionResult.NOT_ON_TURN;
+        }
+
+        @Override
+        public void selectReward(int playerId, Resource resource) {
+            throw new IllegalStateException("No reward to select");
+        }
+
+        @Override
+        public ActionResult trySelectReward(int playerId, Resource resource) {
+            touch();
+            throw new IllegalStateException("Broken game");
+        }
+
+        @Override
+        public boolean turnFinished(int playerId) {
+            touch();
+            turnsFinished++;
+            return true;
+        }
+
+        @Override
+        public boolean selectActivationPattern(int playerId, int card) {
+            touch();
+            return true;
+        }
+
+        @Override
+        public boolean selectScoring(int playerId, int card) {
+            touch();
+            return true;
+        }
+    }
+}
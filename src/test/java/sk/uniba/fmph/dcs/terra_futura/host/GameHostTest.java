@@ -0,0 +1,204 @@
+package sk.uniba.fmph.dcs.terra_futura.host;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardSource;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class GameHostTest {
+
+    private GameHost host;
+
+    @Before
+    public void setUp() {
+        host = new GameHost();
+    }
+
+    @After
+    public void tearDown() {
+        host.close();
+    }
+
+    @Test
+    public void testCommandsForOneGameAreSerialized() throws Exception {
+        CountingGame game = new CountingGame();
+        host.addGame(1, game);
+        int threads = 8;
+        int commandsPerThread = 2000;
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        List<Future<?>> submissions = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            submissions.add(clients.submit(() -> {
+                start.await();
+                List<CompletableFuture<Boolean>> own = new ArrayList<>();
+                for (int i = 0; i < commandsPerThread; i++) {
+                    own.add(host.turnFinished(1, 7));
+                }
+                synchronized (results) {
+                    results.addAll(own);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> submission : submissions) {
+            submission.get();
+        }
+        clients.shutdown();
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+        assertEquals(threads * commandsPerThread, game.turnsFinished);
+    }
+
+    @Test
+    public void testCommandsRunInSubmissionOrder() {
+        CountingGame game = new CountingGame();
+        host.addGame(3, game);
+        CompletableFuture<Boolean> last = null;
+        for (int i = 0; i < 100; i++) {
+            host.selectScoring(3, 1, i);
+            last = host.selectActivationPattern(3, 1, i);
+        }
+        last.join();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), game.selected.get(2 * i));
+            assertEquals(Integer.valueOf(i), game.selected.get(2 * i + 1));
+        }
+    }
+
+    @Test
+    public void testResultsAndExceptionsArePropagated() {
+        host.addGame(2, new CountingGame());
+
+        assertEquals(ActionResult.NOT_ON_TURN,
+                host.tryActivateCard(2, 1, new ActivationRequest().card(new GridPosition(0, 0))).join());
+        try {
+            host.selectReward(2, 1, Resource.GREEN).join();
+            fail("selectReward should fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testErrorsDoNotStopTheActor() {
+        host.addGame(1, new CountingGame());
+
+        CompletableFuture<Boolean> failed = host.submit(1, game -> {
+            throw new AssertionError("broken command");
+        });
+        try {
+            failed.join();
+            fail("the command should fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        assertTrue(host.turnFinished(1, 7).join());
+    }
+
+    @Test
+    public void testUnknownGame() {
+        assertFalse(host.hasGame(5));
+        CompletableFuture<Boolean> result = host.turnFinished(5, 1);
+        assertTrue(result.isCompletedExceptionally());
+
+        host.addGame(5, new CountingGame());
+        assertTrue(host.hasGame(5));
+        assertTrue(host.removeGame(5));
+        assertFalse(host.removeGame(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateGameIsRejected() {
+        host.addGame(4, new CountingGame());
+        host.addGame(4, new CountingGame());
+    }
+
+    /**
+     * Game without any synchronization, counting the calls it receives.
+     */
+    private static class CountingGame implements TerraFuturaInterface {
+        private int turnsFinished;
+        private final List<Integer> selected = new ArrayList<>();
+
+        @Override
+        public boolean takeCard(int playerId, CardSource source, GridPosition destination) {
+            return false;
+        }
+
+        @Override
+        public boolean discardLastCardInDeck(int playerId, Deck deck) {
+            return false;
+        }
+
+        @Override
+        public void activateCard(int playerId, GridPosition card, List<Pair<Resource, GridPosition>> inputs,
+                List<Pair<Resource, GridPosition>> outputs, List<GridPosition> pollution,
+                Optional<Integer> otherPlayerId, Optional<Card> otherCard) {
+            throw new IllegalStateException("Not supported");
+        }
+
+        @Override
+        public ActionResult tryActivateCard(int playerId, GridPosition card, List<Pair<Resource, GridPosition>> inputs,
+                List<Pair<Resource, GridPosition>> outputs, List<GridPosition> pollution,
+                Optional<Integer> otherPlayerId, Optional<Card> otherCard) {
+            return ActionResult.NOT_ON_TURN;
+        }
+
+        @Override
+        public ActionResult tryActivateCard(int playerId, ActivationRequest request) {
+            return ActionResult.NOT_ON_TURN;
+        }
+
+        @Override
+        public void selectReward(int playerId, Resource resource) {
+            throw new IllegalStateException("No reward to select");
+        }
+
+        @Override
+        public ActionResult trySelectReward(int playerId, Resource resource) {
+            return ActionResult.WRONG_STATE;
+        }
+
+        @Override
+        public boolean turnFinished(int playerId) {
+            turnsFinished++;
+            return true;
+        }
+
+        @Override
+        public boolean selectActivationPattern(int playerId, int card) {
+            selected.add(card);
+            return true;
+        }
+
+        @Override
+        public boolean selectScoring(int playerId, int card) {
+            selected.add(card);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sk.uniba.fmph.dcs.terra_futura.actions.ActivationRequest;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
+import sk.uniba.fmph.dcs.terra_futura.deck.Pile;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.GameState;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.game.TerraFuturaInterface;
+import sk.uniba.fmph.dcs.terra_futura.grid.Grid;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.host.CommandPipeline;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommandJournalTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> readAll(final Path file) throws IOException {
+        List<String> commands = new ArrayList<>();
+        CommandJournal.read(file, command -> commands.add(describe(command)));
+        return commands;
+    }
+
+    private static String describe(final GameCommand command) {
+        String text = command.getType() + " " + command.getGameId() + " " + command.getPlayerId();
+        switch (command.getType()) {
+            case TAKE_CARD:
+                return text + " " + command.getDeck() + " " + command.getIndex() + " " + command.getPosition();
+            case DISCARD_LAST_CARD:
+                return text + " " + command.getDeck();
+            case ACTIVATE_CARD:
+                ActivationRequest request = command.getActivation();
+                StringBuilder builder = new StringBuilder(text).append(' ')
+                        .append(request.hasCard() ? request.getCard() : "no card");
+                for (int i = 0; i < request.getInputCount(); i++) {
+                    builder.append(" in").append(request.getInput(i));
+                }
+                for (int i = 0; i < request.getOutputCount(); i++) {
+                    builder.append(" out").append(request.getOutput(i));
+                }
+                for (int i = 0; i < request.getPollutionCount(); i++) {
+                    builder.append(" pollution").append(request.getPollution(i));
+                }
+                if (request.hasAssistance()) {
+                    builder.append(" assisted by ").append(request.getAssistingPlayer())
+                            .append(' ').append(request.getAssistingCard());
+                }
+                return builder.toString();
+            case SELECT_REWARD:
+                return text + " " + command.getResource();
+            case SELECT_ACTIVATION_PATTERN:
+            case SELECT_SCORING:
+                return text + " " + command.getIndex();
+            default:
+                return text;
+        }
+    }
+
+    @Test
+    public void testEveryCommandTypeRoundTrips() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        GameCommand command = new GameCommand();
+        List<String> written = new ArrayList<>();
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            List<GameCommand> commands = List.of(
+                    command.takeCard(7, 1, Deck.II, 3, new GridPosition(-1, 2)),
+                    new GameCommand().discardLastCard(7, 2, Deck.I),
+                    new GameCommand().selectReward(8, 1, Resource.CAR),
+                    new GameCommand().turnFinished(-3, 2),
+                    new GameCommand().selectActivationPattern(7, 1, 1),
+                    new GameCommand().selectScoring(7, 2, 0));
+            for (GameCommand c : commands) {
+                journal.append(c);
+                written.add(describe(c));
+            }
+            GameCommand activation = new GameCommand();
+            activation.activateCard(9, 1).card(new GridPosition(0, 0))
+                    .input(Resource.GREEN, new GridPosition(1, 1))
+                    .output(Resource.GEAR, new GridPosition(-2, 0))
+                    .pollution(new GridPosition(0, -1))
+                    .assistance(2, new GridPosition(2, 2));
+            journal.append(activation);
+            written.add(describe(activation));
+            activation.activateCard(9, 2);
+            journal.append(activation);
+            written.add(describe(activation));
+        }
+
+        assertEquals(written, readAll(file));
+    }
+
+    @Test
+    public void testDecodedTakeCardUsesSharedPositions() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            journal.append(new GameCommand().takeCard(1, 1, Deck.I, 0, new GridPosition(1, -1)));
+            journal.append(new GameCommand().takeCard(1, 1, Deck.I, 0, new GridPosition(5, 5)));
+        }
+        List<GridPosition> positions = new ArrayList<>();
+        CommandJournal.read(file, command -> positions.add(command.getPosition()));
+        assertSame(GridPosition.ofIndex(new GridPosition(1, -1).index()), positions.get(0));
+        assertEquals(new GridPosition(5, 5), positions.get(1));
+    }
+
+    @Test
+    public void testRecordsContinueInNextSegment() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        GameCommand command = new GameCommand();
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(command.selectScoring(1, 1, i));
+            }
+            assertTrue(journal.getPosition() > 4 * SEGMENT_SIZE);
+        }
+
+        List<String> commands = readAll(file);
+        assertEquals(100, commands.size());
+        assertEquals("SELECT_SCORING 1 1 99", commands.get(99));
+    }
+
+    @Test
+    public void testReopenedJournalAppendsAfterLastRecord() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        GameCommand command = new GameCommand();
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(command.turnFinished(1, i));
+            }
+        }
+        try (CommandJournal journal = CommandJournal.open(file)) {
+            journal.append(command.turnFinished(1, 20));
+        }
+
+        List<String> commands = readAll(file);
+        assertEquals(21, commands.size());
+        assertEquals("TURN_FINISHED 1 20", commands.get(20));
+    }
+
+    @Test
+    public void testTornRecordEndsJournal() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        GameCommand command = new GameCommand();
+        long end;
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            journal.append(command.turnFinished(1, 1));
+            end = journal.append(command.turnFinished(1, 2));
+            journal.append(command.turnFinished(1, 3));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(end + Integer.BYTES);
+            raw.write(0x7F);
+        }
+
+        assertEquals(List.of("TURN_FINISHED 1 1", "TURN_FINISHED 1 2"), readAll(file));
+        try (CommandJournal journal = CommandJournal.open(file)) {
+            assertEquals(end, journal.getPosition());
+            journal.append(command.turnFinished(1, 4));
+        }
+        assertEquals(List.of("TURN_FINISHED 1 1", "TURN_FINISHED 1 2", "TURN_FINISHED 1 4"), readAll(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws Exception {
+        Path file = folder.newFile("other").toPath();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.writeLong(1);
+            raw.writeLong(2);
+        }
+        CommandJournal.open(file).close();
+    }
+
+    @Test
+    public void testGroupCommitterMakesAppendsDurable() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE);
+             GroupCommitter committer = new GroupCommitter(1, TimeUnit.MILLISECONDS)) {
+            committer.addJournal(journal);
+            long position = journal.append(new GameCommand().turnFinished(1, 1));
+            journal.awaitDurable(position);
+            assertTrue(journal.getDurablePosition() >= position);
+        }
+    }
+
+    @Test
+    public void testRecoverRebuildsGames() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        Map<Integer, TerraFuturaInterface> live = new HashMap<>();
+        List<ActionResult> results = new ArrayList<>();
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            JournalingListener listener = new JournalingListener(List.of(journal),
+                    (command, result) -> results.add(result));
+            GameCommand command = new GameCommand();
+            for (int gameId = 1; gameId <= 2; gameId++) {
+                live.put(gameId, newGame(gameId));
+            }
+            apply(live, listener, command.takeCard(1, 1, Deck.I, 0, new GridPosition(0, 0)));
+            apply(live, listener, command.turnFinished(1, 2));
+            apply(live, listener, command.turnFinished(1, 1));
+            apply(live, listener, command.takeCard(2, 1, Deck.I, 0, new GridPosition(0, 0)));
+            apply(live, listener, command.turnFinished(3, 1));
+        }
+        assertEquals(List.of(ActionResult.OK, ActionResult.REJECTED, ActionResult.OK, ActionResult.OK,
+                ActionResult.UNKNOWN_GAME), results);
+
+        Map<Integer, TerraFuturaInterface> recovered = new HashMap<>();
+        CommandJournal.recover(file, recovered, CommandJournalTest::newGame);
+
+        assertEquals(live.keySet(), recovered.keySet());
+        for (int gameId : live.keySet()) {
+            Game expected = (Game) live.get(gameId);
+            Game actual = (Game) recovered.get(gameId);
+            assertEquals(expected.getState(), actual.getState());
+            assertEquals(expected.getCurrentPlayerOnTurn(), actual.getCurrentPlayerOnTurn());
+            assertEquals(expected.getTurnNumber(), actual.getTurnNumber());
+        }
+        assertEquals(2, ((Game) recovered.get(1)).getCurrentPlayerOnTurn());
+        assertEquals(GameState.TAKE_CARD_NO_CARD_DISCARDED, ((Game) recovered.get(1)).getState());
+    }
+
+    @Test
+    public void testUnrecordableCommandIsNotApplied() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        List<ActionResult> results = new CopyOnWriteArrayList<>();
+        Game game = (Game) newGame(1);
+        try (CommandJournal journal = CommandJournal.open(file, SEGMENT_SIZE)) {
+            CommandPipeline pipeline = new CommandPipeline(8, 1, new JournalingListener(List.of(journal),
+                    (command, result) -> results.add(result)));
+            pipeline.addGame(1, game);
+            pipeline.start();
+            long sequence = pipeline.next();
+            ActivationRequest request = pipeline.get(sequence).activateCard(1, 1).card(new GridPosition(0, 0));
+            for (int i = 0; i < 256; i++) {
+                request.pollution(new GridPosition(0, 0));
+            }
+            pipeline.publish(sequence);
+            sequence = pipeline.next();
+            pipeline.get(sequence).takeCard(1, 1, Deck.I, 0, new GridPosition(0, 0));
+            pipeline.publish(sequence);
+            pipeline.close();
+        }
+        assertEquals(List.of(ActionResult.NOT_RECORDED, ActionResult.OK), results);
+        assertEquals(GameState.ACTIVATE_CARD, game.getState());
+
+        List<GameCommand> recorded = new ArrayList<>();
+        CommandJournal.read(file, recorded::add);
+        assertEquals(1, recorded.size());
+        assertEquals(GameCommand.Type.TAKE_CARD, recorded.get(0).getType());
+    }
+
+    private static void apply(final Map<Integer, TerraFuturaInterface> games, final JournalingListener listener,
+            final GameCommand command) {
+        TerraFuturaInterface game = games.get(command.getGameId());
+        if (game == null) {
+            listener.onResult(command, ActionResult.UNKNOWN_GAME);
+        } else {
+            listener.onResult(command, listener.beforeApply(command) ? command.applyTo(game)
+                    : ActionResult.NOT_RECORDED);
+        }
+    }
+
+    private static TerraFuturaInterface newGame(final int gameId) {
+        Map<Integer, Grid> grids = Map.of(1, new GridImpl(), 2, new GridImpl());
+        return new Game(new int[]{1, 2}, grids, new FakePile(), 1);
+    }
+
+    private static class FakePile implements Pile {
+        @Override
+        public Optional<Card> getCard(int index) {
+            return Optional.of(new CardImpl(new ArrayList<>(), 1, null, null));
+        }
+
+        @Override
+        public void takeCard(int cardIndex) {
+        }
+
+        @Override
+        public void removeLastCard() {
+        }
+
+        @Override
+        public String state() {
+            return "{}";
+        }
+    }
+}
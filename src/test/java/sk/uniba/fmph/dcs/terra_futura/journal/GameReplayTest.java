@@ -0,0 +1,114 @@
+package sk.uniba.fmph.dcs.terra_futura.journal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sk.uniba.fmph.dcs.terra_futura.TestGames;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.enums.ActionResult;
+import sk.uniba.fmph.dcs.terra_futura.enums.Deck;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.host.GameCommand;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameReplayTest {
+
+    private static final int TURNS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CardCatalog catalog;
+    private List<GameCommand> commands;
+
+    @Before
+    public void setUp() {
+        catalog = new CardCatalog();
+        catalog.register(List.of(Resource.GREEN), 1, null, null);
+        catalog.register(List.of(Resource.CAR, Resource.GEAR), 2, null, null);
+
+        commands = new ArrayList<>();
+        for (int turn = 0; turn < TURNS; turn++) {
+            for (int player = 1; player <= 2; player++) {
+                commands.add(new GameCommand().turnFinished(5, 3 - player));
+                commands.add(new GameCommand().takeCard(5, player, Deck.I, turn % 3,
+                        GridPosition.ofIndex(turn)));
+                commands.add(new GameCommand().turnFinished(5, player));
+            }
+        }
+    }
+
+    private Game newGame() {
+        return TestGames.newGame(TestGames.cardsOf(catalog, 20, 0, 1), 1, 2);
+    }
+
+    @Test
+    public void testStateAfterEveryCommandMatchesLiveGame() {
+        Game live = newGame();
+        GameReplay replay = new GameReplay(live, catalog, 4);
+        List<ByteBuffer> expected = new ArrayList<>();
+        expected.add(live.snapshot());
+        for (GameCommand command : commands) {
+            assertEquals(command.applyTo(live), replay.append(command));
+            expected.add(live.snapshot());
+        }
+
+        assertEquals(commands.size(), replay.size());
+        for (int i = 0; i <= commands.size(); i++) {
+            assertEquals("after " + i + " commands", expected.get(i), replay.stateAfter(i).snapshot());
+        }
+    }
+
+    @Test
+    public void testStateAtTurnStartsWithTakingCard() {
+        GameReplay replay = new GameReplay(newGame(), catalog);
+        for (GameCommand command : commands) {
+            replay.append(command);
+        }
+
+        assertEquals(TURNS + 1, replay.getCheckpointCount());
+        for (int turn = 1; turn <= TURNS; turn++) {
+            Game game = replay.stateAtTurn(turn);
+            assertEquals(turn, game.getTurnNumber());
+            assertEquals(1, game.getCurrentPlayerOnTurn());
+            assertEquals(ActionResult.OK, new GameCommand().takeCard(5, 1, Deck.I, 0,
+                    GridPosition.ofIndex(GridPosition.CELL_COUNT - 1)).applyTo(game));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTurnNotReached() {
+        new GameReplay(newGame(), catalog).stateAtTurn(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCommandCountOutOfRange() {
+        new GameReplay(newGame(), catalog).stateAfter(1);
+    }
+
+    @Test
+    public void testReplayFromJournalSkipsOtherGames() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        Game live = newGame();
+        try (CommandJournal journal = CommandJournal.open(file, 512)) {
+            for (GameCommand command : commands) {
+                command.applyTo(live);
+                journal.append(command);
+                journal.append(new GameCommand().turnFinished(6, 1));
+            }
+        }
+
+        GameReplay replay = GameReplay.fromJournal(file, 5, newGame(), catalog);
+        assertEquals(commands.size(), replay.size());
+        assertEquals(live.snapshot(), replay.stateAfter(replay.size()).snapshot());
+    }
+}
@@ -0,0 +1,98 @@
+package sk.uniba.fmph.dcs.terra_futura.resource;
+
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResourceBagTest {
+
+    @Test
+    public void testCountsAreOrderInsensitive() {
+        ResourceBag first = ResourceBag.of(Resource.GREEN, Resource.RED, Resource.GREEN);
+        ResourceBag second = ResourceBag.of(List.of(Resource.RED, Resource.GREEN, Resource.GREEN));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(2, first.count(Resource.GREEN));
+        assertEquals(1, first.count(Resource.RED));
+        assertEquals(0, first.count(Resource.POLLUTION));
+        assertEquals(3, first.size());
+        assertEquals(2, first.kinds());
+    }
+
+    @Test
+    public void testEmptyBag() {
+        assertTrue(ResourceBag.of().isEmpty());
+        assertEquals(ResourceBag.EMPTY, ResourceBag.of(Collections.emptyList()));
+        assertEquals(0, ResourceBag.EMPTY.size());
+        assertEquals(0, ResourceBag.EMPTY.kinds());
+        assertTrue(ResourceBag.EMPTY.toList().isEmpty());
+    }
+
+    @Test
+    public void testContainsAll() {
+        ResourceBag bag = ResourceBag.of(Resource.CAR, Resource.CAR, Resource.POLLUTION);
+
+        assertTrue(bag.containsAll(ResourceBag.EMPTY));
+        assertTrue(bag.containsAll(ResourceBag.of(Resource.CAR, Resource.POLLUTION)));
+        assertTrue(bag.containsAll(bag));
+        assertFalse(bag.containsAll(ResourceBag.of(Resource.CAR, Resource.CAR, Resource.CAR)));
+        assertFalse(bag.containsAll(ResourceBag.of(Resource.MONEY)));
+        assertFalse(ResourceBag.EMPTY.containsAll(bag));
+    }
+
+    @Test
+    public void testAddAndSubtract() {
+        ResourceBag bag = ResourceBag.of(Resource.GREEN).add(ResourceBag.of(Resource.GREEN, Resource.BULB));
+
+        assertEquals(ResourceBag.of(Resource.BULB, Resource.GREEN, Resource.GREEN), bag);
+        assertEquals(ResourceBag.of(Resource.GREEN), bag.subtract(ResourceBag.of(Resource.GREEN, Resource.BULB)));
+        assertEquals(ResourceBag.of(Resource.POLLUTION), ResourceBag.EMPTY.add(Resource.POLLUTION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubtractMissingResourceFails() {
+        ResourceBag.of(Resource.GREEN).subtract(ResourceBag.of(Resource.RED));
+    }
+
+    @Test
+    public void testMaximalCount() {
+        List<Resource> many = new ArrayList<>(Collections.nCopies(ResourceBag.MAX_COUNT, Resource.POLLUTION));
+        many.addAll(Collections.nCopies(ResourceBag.MAX_COUNT, Resource.GREEN));
+        ResourceBag bag = ResourceBag.of(many);
+
+        assertEquals(ResourceBag.MAX_COUNT, bag.count(Resource.POLLUTION));
+        assertEquals(2 * ResourceBag.MAX_COUNT, bag.size());
+        assertTrue(bag.containsAll(ResourceBag.of(Resource.POLLUTION)));
+        assertEquals(bag, ResourceBag.fromPacked(bag.packed()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverflowIsRejected() {
+        ResourceBag bag = ResourceBag.of(Collections.nCopies(ResourceBag.MAX_COUNT, Resource.CAR));
+        bag.add(Resource.CAR);
+    }
+
+    @Test
+    public void testToListGroupsByKind() {
+        ResourceBag bag = ResourceBag.of(Resource.POLLUTION, Resource.GREEN, Resource.CAR, Resource.GREEN);
+
+        assertEquals(List.of(Resource.GREEN, Resource.GREEN, Resource.CAR, Resource.POLLUTION), bag.toList());
+        assertEquals("[GREEN, GREEN, CAR, POLLUTION]", bag.toString());
+    }
+
+    @Test
+    public void testUnitBagsAndPackedValidity() {
+        assertEquals(ResourceBag.of(Resource.MONEY), ResourceBag.unit(Resource.MONEY));
+        assertSame(ResourceBag.unit(Resource.MONEY), ResourceBag.unit(Resource.MONEY));
+
+        long full = ResourceBag.of(Collections.nCopies(ResourceBag.MAX_COUNT, Resource.BULB)).packed();
+        assertTrue(ResourceBag.isValidPacked(full));
+        assertFalse(ResourceBag.isValidPacked(full + ResourceBag.unit(Resource.BULB).packed()));
+    }
+}
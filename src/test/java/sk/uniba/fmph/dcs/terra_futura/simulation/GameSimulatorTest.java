@@ -0,0 +1,82 @@
+package sk.uniba.fmph.dcs.terra_futura.simulation;
+
+import org.junit.Before;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.TestGames;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.effect.TransformationFixed;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.game.Game;
+import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class GameSimulatorTest {
+
+    private static final int CARDS = 40;
+
+    private CardCatalog catalog;
+    private int producer;
+    private int plain;
+
+    @Before
+    public void setUp() {
+        catalog = new CardCatalog();
+        producer = catalog.register(List.of(Resource.GREEN, Resource.GREEN), 3,
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1), null);
+        plain = catalog.register(List.of(Resource.RED), 1, null, null);
+    }
+
+    private Game newGame(final SplittableRandom random) {
+        return new Game(new int[]{1, 2}, TestGames.gridsOf(1, 2),
+                PileImpl.shuffled(TestGames.cardsOf(catalog, CARDS, producer, plain), random), 1);
+    }
+
+    @Test
+    public void testPlaysCompleteGames() {
+        SimulationReport report = new GameSimulator(this::newGame, player -> Policies.random()).run(100, 1);
+        assertEquals(100, report.getGames());
+        assertEquals(100, report.getFinishedGames());
+        assertEquals(100, report.getWins(1) + report.getWins(2) + report.getDraws());
+        assertTrue(report.getPlies() > 100 * 2 * 9);
+        assertTrue(report.getGamesPerSecond() > 0);
+    }
+
+    @Test
+    public void testSameSeedGivesSameGamesOnAnyPool() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool wide = new ForkJoinPool(4);
+        try {
+            SimulationReport one = new GameSimulator(this::newGame, player -> Policies.random(), single,
+                    GameSimulator.DEFAULT_MAX_PLIES).run(200, 42);
+            SimulationReport four = new GameSimulator(this::newGame, player -> Policies.random(), wide,
+                    GameSimulator.DEFAULT_MAX_PLIES).run(200, 42);
+            assertEquals(one.getPlies(), four.getPlies());
+            assertEquals(one.getWins(1), four.getWins(1));
+            assertEquals(one.getAverageScore(2), four.getAverageScore(2), 0);
+        } finally {
+            single.shutdown();
+            wide.shutdown();
+        }
+    }
+
+    @Test
+    public void testGreedyOutscoresRandom() {
+        SimulationReport report = new GameSimulator(this::newGame,
+                player -> player == 1 ? Policies.greedy() : Policies.random()).run(200, 7);
+        assertEquals(200, report.getFinishedGames());
+        assertTrue(report.getAverageScore(1) > report.getAverageScore(2));
+    }
+
+    @Test
+    public void testPlyLimitLeavesGamesUnfinished() {
+        SimulationReport report = new GameSimulator(this::newGame, player -> Policies.random(),
+                ForkJoinPool.commonPool(), 5).run(10, 3);
+        assertEquals(0, report.getFinishedGames());
+        assertEquals(50, report.getPlies());
+    }
+}
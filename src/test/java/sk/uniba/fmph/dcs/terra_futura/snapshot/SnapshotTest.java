@@ -0,0 +1,139 @@
+package sk.uniba.fmph.dcs.terra_futura.snapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import sk.uniba.fmph.dcs.terra_futura.TestGames;
+import sk.uniba.fmph.dcs.terra_futura.actions.SelectReward;
+import sk.uniba.fmph.dcs.terra_futura.card.Card;
+import sk.uniba.fmph.dcs.terra_futura.card.CardCatalog;
+import sk.uniba.fmph.dcs.terra_futura.card.CardImpl;
+import sk.uniba.fmph.dcs.terra_futura.effect.TransformationFixed;
+import sk.uniba.fmph.dcs.terra_futura.enums.Resource;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridImpl;
+import sk.uniba.fmph.dcs.terra_futura.grid.GridPosition;
+import sk.uniba.fmph.dcs.terra_futura.pile.PileImpl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTest {
+
+    private CardCatalog catalog;
+    private int greenCard;
+    private int carCard;
+
+    @Before
+    public void setUp() {
+        catalog = new CardCatalog();
+        greenCard = catalog.register(List.of(Resource.GREEN), 1,
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 0), null);
+        carCard = catalog.register(List.of(), 2, null,
+                new TransformationFixed(List.of(Resource.GEAR), List.of(Resource.CAR), 1));
+    }
+
+    private static SnapshotReader reader(final SnapshotWriter out) {
+        return new SnapshotReader(out.toByteBuffer());
+    }
+
+    @Test
+    public void testVarintsRoundTrip() {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        SnapshotWriter out = new SnapshotWriter(1);
+        for (int value : values) {
+            out.putVarint(value).putSignedVarint(value).putInt(value);
+        }
+        SnapshotReader in = reader(out);
+        for (int value : values) {
+            assertEquals(value, in.getVarint());
+            assertEquals(value, in.getSignedVarint());
+            assertEquals(value, in.getInt());
+        }
+    }
+
+    @Test
+    public void testSmallValuesTakeOneByte() {
+        SnapshotWriter out = new SnapshotWriter();
+        out.putVarint(127).putSignedVarint(-64).putSignedVarint(63);
+        assertEquals(3, out.size());
+        out.putVarint(128);
+        assertEquals(5, out.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedSnapshotIsRejected() {
+        new SnapshotReader(ByteBuffer.wrap(new byte[]{(byte) 0x80})).getVarint();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRangeValueIsRejected() {
+        reader(new SnapshotWriter().putVarint(8)).getVarint(8);
+    }
+
+    @Test
+    public void testCardKeepsCatalogIdAndResources() {
+        CardImpl card = catalog.create(greenCard);
+        card.putResources(List.of(Resource.GREEN, Resource.POLLUTION));
+        SnapshotWriter out = new SnapshotWriter();
+        card.writeSnapshot(out);
+
+        CardImpl restored = CardImpl.readSnapshot(reader(out), catalog);
+        assertEquals(greenCard, restored.getCatalogId());
+        assertEquals(card.state(), restored.state());
+        assertTrue(restored.check(List.of(Resource.GREEN), List.of(Resource.BULB), 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCardOutsideCatalogCannotBeSnapshotted() {
+        new CardImpl(new ArrayList<>(), 1, null, null).writeSnapshot(new SnapshotWriter());
+    }
+
+    @Test
+    public void testGridRoundTrip() {
+        GridImpl grid = new GridImpl();
+        grid.putCard(new GridPosition(0, 0), catalog.create(greenCard));
+        grid.putCard(new GridPosition(-1, 2), catalog.create(carCard));
+        grid.setActivationPattern(List.of(new GridPosition(0, 0), new GridPosition(1, 1)));
+        grid.setActivated(new GridPosition(0, 0));
+        SnapshotWriter out = new SnapshotWriter();
+        grid.writeSnapshot(out);
+
+        GridImpl restored = GridImpl.readSnapshot(reader(out), catalog);
+        assertEquals(grid.state(), restored.state());
+        assertFalse(restored.canPutCard(new GridPosition(-1, 2)));
+        // Already activated this turn
+        assertFalse(restored.canBeActivated(new GridPosition(0, 0)));
+        assertEquals(grid.getLineNeighbours(new GridPosition(0, 2)),
+                restored.getLineNeighbours(new GridPosition(0, 2)));
+    }
+
+    @Test
+    public void testPileRoundTripKeepsHiddenOrder() {
+        List<Card> cards = TestGames.cardsOf(catalog, 6, greenCard, carCard);
+        PileImpl pile = new PileImpl(cards);
+        pile.takeCard(2);
+        SnapshotWriter out = new SnapshotWriter();
+        pile.writeSnapshot(out);
+
+        PileImpl restored = PileImpl.readSnapshot(reader(out), catalog);
+        assertEquals(pile.state(), restored.state());
+        pile.takeCard(0);
+        restored.takeCard(0);
+        assertEquals(pile.state(), restored.state());
+    }
+
+    @Test
+    public void testSelectRewardRoundTrip() {
+        SelectReward reward = new SelectReward();
+        reward.setReward(-3, null, List.of(Resource.CAR, Resource.GREEN));
+        SnapshotWriter out = new SnapshotWriter();
+        reward.writeSnapshot(out);
+        new SelectReward().writeSnapshot(out);
+
+        SnapshotReader in = reader(out);
+        assertEquals(reward.state(), SelectReward.readSnapshot(in).state());
+        assertFalse(SelectReward.readSnapshot(in).canSelectReward(Resource.GREEN));
+    }
+}